@@ -13,6 +13,7 @@ import com.microfocus.cluster.tasks.api.enums.ClusterTaskStatus;
 import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
 import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
 
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
@@ -55,6 +56,31 @@ public interface ClusterTasksService {
 	 */
 	ClusterTaskPersistenceResult[] enqueueTasks(ClusterTasksDataProviderType dataProviderType, String processorType, ClusterTask... tasks);
 
+	/**
+	 * enqueues tasks for async processing somewhere in the cluster without waiting for the tasks to be persisted
+	 * - tasks of the concurrent callers are buffered and persisted together (group commit), so that the calling thread does not pay for the DB commit
+	 * - when the buffer is full the calling thread is blocked until enough space is freed (backpressure)
+	 * - input is validated synchronously, same as in enqueueTasks
+	 *
+	 * @param dataProviderType data provider type which this tasks' processor is working with
+	 * @param processorType    target processor type identification
+	 * @param tasks            one or more tasks content to be pushed into the queue; MUST NOT be null; MUST NOT be empty
+	 * @return promise of an array of enqueue results, corresponding to the array of the tasks; resolved when the tasks are actually persisted
+	 */
+	CompletableFuture<ClusterTaskPersistenceResult[]> enqueueTasksAsync(ClusterTasksDataProviderType dataProviderType, String processorType, ClusterTask... tasks);
+
+	/**
+	 * enqueues tasks sharing the same body (fan-out), to one or more processors, storing the body only once
+	 * - all of the tasks MUST have the same body (text or binary), which is stored once and referenced by all of the tasks
+	 * - tasks are persisted in a single transaction
+	 * - body is removed when the last task referencing it is done
+	 *
+	 * @param dataProviderType     data provider type which this tasks' processors are working with
+	 * @param tasksByProcessorType target processor types mapped to one or more tasks content to be pushed into the queue; MUST NOT be null; MUST NOT be empty
+	 * @return enqueue results mapped by the processor type, each array corresponding to the array of the tasks of that processor type
+	 */
+	Map<String, ClusterTaskPersistenceResult[]> enqueueTasksWithSharedBody(ClusterTasksDataProviderType dataProviderType, Map<String, ClusterTask[]> tasksByProcessorType);
+
 	/**
 	 * updates scheduled task with new run interval
 	 * - this method will also reset task CREATED time so that the interval will take effect as from NOW
@@ -65,4 +65,120 @@ public interface ClusterTasksServiceConfigurerSPI {
 	default boolean isEnabled() {
 		return true;
 	}
+
+	/**
+	 * MAY enable node-local cache of the tasks recently rejected due to uniqueness violation
+	 * - while cached, enqueue of a task with the same processor type and uniqueness key is rejected with no DB round trip
+	 * - cached rejection MAY be stale: the pending task, that caused the rejection, could have started to run meanwhile; keep the TTL short
+	 *
+	 * @return time to live of the cached rejection in millis; 0 (default) disables the cache
+	 */
+	default long getUniquenessRejectionsCacheTTL() {
+		return 0;
+	}
+
+	/**
+	 * MAY enable transparent compression of the task bodies
+	 * - bodies of this length (in characters) or longer are stored compressed and decompressed upon retrieval
+	 * - bodies stored before enabling (or after disabling) the compression remain readable
+	 *
+	 * @return minimal length of the body to be compressed; 0 (default) disables the compression
+	 */
+	default int getTaskBodyCompressionThreshold() {
+		return 0;
+	}
+
+	/**
+	 * MAY enable storing of the small text bodies inline, in the task's metadata row, saving a round trip on enqueue and on run per task
+	 * - bodies shorter than this length (in characters) are stored inline, the rest keep using the body tables; values above 1000 are capped
+	 * - all of the cluster nodes MUST support inline bodies before enabling it
+	 *
+	 * @return maximal (exclusive) length of the body to be stored inline; 0 (default) disables the inlining
+	 */
+	default int getTaskBodyInlineThreshold() {
+		return 0;
+	}
+
+	/**
+	 * MAY enable concurrent dispatch: non-channeled tasks are claimed with row level locks (skipping the rows claimed by the other nodes)
+	 * instead of under the cluster wide dispatch lock, so that many nodes can claim tasks in parallel; channeled tasks keep using the lock
+	 * - all of the cluster nodes MUST run the same dispatch mode, mixing the modes MAY result in a task running twice
+	 *
+	 * @return true to enable concurrent dispatch; false (default) to dispatch all the tasks under the cluster wide lock
+	 */
+	default boolean isConcurrentDispatchEnabled() {
+		return false;
+	}
+
+	/**
+	 * MAY enable single statement claim of the non-channeled tasks: selection and the transition to RUNNING are performed by a single statement
+	 * capped by the free workers of each processor, saving the separate select and update round trips
+	 * - effective only with the concurrent dispatch enabled (see {@link #isConcurrentDispatchEnabled()}) and supported by PostgreSQL only, ignored otherwise
+	 * - tasks rejected by the processor upon claim (see {@code isTaskAbleToRun}) are reverted to PENDING by an additional statement
+	 *
+	 * @return true to enable single statement claim; false (default) to select and update the claimed tasks separately
+	 */
+	default boolean isSingleStatementClaimEnabled() {
+		return false;
+	}
+
+	/**
+	 * MAY enable optimistic dispatch: candidate tasks are read with no lock, then claimed by the conditional updates (only PENDING task is claimed,
+	 * channeled one only if no other task of its channel is RUNNING); only the tasks actually claimed are handed out
+	 * - takes precedence over the concurrent dispatch, no cluster wide lock is taken at all
+	 * - all of the cluster nodes MUST run the same dispatch mode
+	 * - lost claims are counted by the {@code cts_optimistic_claims_lost_total} metric
+	 *
+	 * @return true to enable optimistic dispatch; false (default) to dispatch under the cluster wide lock
+	 */
+	default boolean isOptimisticDispatchEnabled() {
+		return false;
+	}
+
+	/**
+	 * MAY enable prefetch of the task bodies by the dispatcher: bodies of the tasks started in the dispatch round are retrieved by a query per body partition
+	 * and attached to the tasks before hand out, so that the workers start processing with no DB access of their own
+	 * - bodies of the processors having body streaming enabled are not prefetched
+	 * - should the prefetch fail, workers retrieve the bodies on their own, as usual
+	 *
+	 * @return true to enable bodies prefetch; false (default) to let each worker retrieve its task's body
+	 */
+	default boolean isTaskBodiesPrefetchEnabled() {
+		return false;
+	}
+
+	/**
+	 * MAY split the cluster wide dispatch lock into stripes keyed by the processor type, so that nodes hosting disjoint sets of processors won't contend
+	 * - each dispatch round takes only the stripes of the processors ready on this node; values above 64 are capped
+	 * - all of the cluster nodes MUST use the same number of stripes; the value is read once, upon initialization
+	 *
+	 * @return number of dispatch lock stripes; 1 (default) means the single cluster wide lock
+	 */
+	default int getDispatchLockStripes() {
+		return 1;
+	}
+
+	/**
+	 * MAY enable polling of the enqueue signal on MSSQL / Oracle (PostgreSQL uses native LISTEN / NOTIFY regardless): each store of tasks ready to run
+	 * bumps a single row counter, polled by each node with the given interval, so that the nodes dispatch the tasks enqueued elsewhere with no wait for
+	 * the regular dispatch interval
+	 * - values below 50 are raised to 50; the value is read once, upon initialization
+	 *
+	 * @return poll interval in millis; 0 (default) disables the polling, leaving the regular dispatch interval as the only cross node pick up
+	 */
+	default int getEnqueueSignalPollInterval() {
+		return 0;
+	}
+
+	/**
+	 * MAY replace the per processor worker pools with a single node wide pool of the given size, drawn by the processors on demand
+	 * - each processor takes up to its number of workers per node, idle processors leave their share to the busy ones
+	 * - processors MAY secure a minimal number of workers for themselves (see processor's 'getGuaranteedWorkers')
+	 * - processors running on virtual threads keep their own workers; the value is read once, upon initialization
+	 *
+	 * @return size of the shared workers pool; 0 (default) keeps the per processor worker pools
+	 */
+	default int getSharedWorkersPoolSize() {
+		return 0;
+	}
 }
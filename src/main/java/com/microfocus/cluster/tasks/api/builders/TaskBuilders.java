@@ -101,6 +101,19 @@ public class TaskBuilders {
 		 */
 		TaskBuilder setBody(String body) throws IllegalStateException, IllegalArgumentException;
 
+		/**
+		 * Sets task's binary body
+		 * - meant for the bodies of a binary nature (protobuf, Avro etc), which are stored as is, without any text encoding
+		 * - task may have either text or binary body, not both
+		 * - the array is taken as is (not copied), thus MUST NOT be modified after the task is built
+		 *
+		 * @param body task's binary body
+		 * @return task builder instance
+		 * @throws IllegalStateException    if the {@link #build() build} method has already been called on this builder instance
+		 * @throws IllegalArgumentException if body parameter is NULL or EMPTY or if the text body has already been set
+		 */
+		TaskBuilder setBinaryBody(byte[] body) throws IllegalStateException, IllegalArgumentException;
+
 		/**
 		 * Finalizes the build task process and locks the builder instance for further changes
 		 *
@@ -8,6 +8,13 @@
 
 package com.microfocus.cluster.tasks.api.dto;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
 /**
  * Created by gullery on 26/05/2016.
  * <p>
@@ -30,4 +37,43 @@ public interface ClusterTask {
 	Long getDelayByMillis();
 
 	String getBody();
+
+	/**
+	 * Binary body of the task; task has either text or binary body (or none of them)
+	 *
+	 * @return read-only view of the binary body or NULL, if the task has no binary body
+	 */
+	default ByteBuffer getBinaryBody() {
+		return null;
+	}
+
+	/**
+	 * Reads the body of the task as a stream
+	 * - for processors having body streaming enabled (see ClusterTasksProcessorBase#isBodyStreamingEnabled) the body is NOT pre-fetched
+	 * and the streams are backed directly by the storage; storage connection is held only for the duration of the reader's run
+	 * - for the rest of the processors the streams are served out of the already fetched body
+	 * - streams are valid only within the reader's run
+	 *
+	 * @param reader body reader; receives either text or binary stream (the other one is NULL), or both NULL if the task has no body
+	 * @param <T>    type of the reader's result
+	 * @return the reader's result
+	 * @throws IOException if the reader fails to read the body
+	 */
+	default <T> T readBody(BodyReader<T> reader) throws IOException {
+		if (getBody() != null) {
+			return reader.read(new StringReader(getBody()), null);
+		}
+		ByteBuffer binaryBody = getBinaryBody();
+		if (binaryBody != null) {
+			byte[] content = new byte[binaryBody.remaining()];
+			binaryBody.duplicate().get(content);
+			return reader.read(null, new ByteArrayInputStream(content));
+		}
+		return reader.read(null, null);
+	}
+
+	@FunctionalInterface
+	interface BodyReader<T> {
+		T read(Reader textBody, InputStream binaryBody) throws IOException;
+	}
 }
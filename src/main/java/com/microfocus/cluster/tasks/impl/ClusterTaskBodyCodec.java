@@ -0,0 +1,180 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codec of the task bodies as stored in the body tables
+ * - each body row carries a format marker; rows having no marker (stored before the marker was introduced) are plain text
+ * - text bodies exceeding the compression threshold are stored GZIP-ed in the binary column, the rest are stored as is in the text column
+ * - binary bodies are always stored in the binary column, GZIP-ed if exceeding the compression threshold
+ */
+
+final class ClusterTaskBodyCodec {
+	static final int FORMAT_TEXT = 0;
+	static final int FORMAT_TEXT_GZIP = 1;
+	static final int FORMAT_BINARY = 2;
+	static final int FORMAT_BINARY_GZIP = 3;
+
+	private ClusterTaskBodyCodec() {
+	}
+
+	/**
+	 * @param task                 task, that its body is to be encoded; MUST have a body
+	 * @param compressionThreshold minimal body length (in characters for text, in bytes for binary) to be compressed; 0 or negative means no compression
+	 * @return encoded body, ready to be stored
+	 */
+	static EncodedBody encode(ClusterTaskImpl task, int compressionThreshold) {
+		return task.body != null
+				? encode(task.body, compressionThreshold)
+				: encode(task.binaryBody, compressionThreshold);
+	}
+
+	/**
+	 * @param body                 body to be encoded; MUST NOT be null
+	 * @param compressionThreshold minimal body length (in characters) to be compressed; 0 or negative means no compression
+	 * @return encoded body, ready to be stored
+	 */
+	static EncodedBody encode(String body, int compressionThreshold) {
+		if (compressionThreshold > 0 && body.length() >= compressionThreshold) {
+			byte[] compressed = gzip(body.getBytes(StandardCharsets.UTF_8));
+			//  non-compressible content is stored as is
+			if (compressed.length < body.length()) {
+				return new EncodedBody(null, compressed, FORMAT_TEXT_GZIP);
+			}
+		}
+		return new EncodedBody(body, null, FORMAT_TEXT);
+	}
+
+	/**
+	 * @param body                 binary body to be encoded; MUST NOT be null
+	 * @param compressionThreshold minimal body length (in bytes) to be compressed; 0 or negative means no compression
+	 * @return encoded body, ready to be stored
+	 */
+	static EncodedBody encode(byte[] body, int compressionThreshold) {
+		if (compressionThreshold > 0 && body.length >= compressionThreshold) {
+			byte[] compressed = gzip(body);
+			if (compressed.length < body.length) {
+				return new EncodedBody(null, compressed, FORMAT_BINARY_GZIP);
+			}
+		}
+		return new EncodedBody(null, body, FORMAT_BINARY);
+	}
+
+	/**
+	 * @param text   content of the text column
+	 * @param binary content of the binary column
+	 * @param format format marker; MAY be null, meaning plain text
+	 * @return decoded body, either text or binary
+	 */
+	static DecodedBody decode(String text, byte[] binary, Integer format) {
+		if (format == null || format == FORMAT_TEXT) {
+			return new DecodedBody(text, null);
+		} else if (format == FORMAT_TEXT_GZIP) {
+			return new DecodedBody(binary == null ? null : new String(gunzip(binary), StandardCharsets.UTF_8), null);
+		} else if (format == FORMAT_BINARY) {
+			return new DecodedBody(null, binary);
+		} else if (format == FORMAT_BINARY_GZIP) {
+			return new DecodedBody(null, binary == null ? null : gunzip(binary));
+		} else {
+			throw new IllegalStateException("unsupported task body format " + format);
+		}
+	}
+
+	/**
+	 * Streams stored body to the reader, decoding it on the fly
+	 *
+	 * @param format       format marker; MAY be null, meaning plain text
+	 * @param textStream   opens stream of the text column
+	 * @param binaryStream opens stream of the binary column
+	 * @param reader       body reader
+	 * @return the reader's result
+	 * @throws IOException  on failure to read/decode the body
+	 * @throws SQLException on failure to open the column stream
+	 */
+	static <T> T stream(Integer format, StreamOpener<Reader> textStream, StreamOpener<InputStream> binaryStream, ClusterTask.BodyReader<T> reader) throws IOException, SQLException {
+		if (format == null || format == FORMAT_TEXT) {
+			return reader.read(textStream.open(), null);
+		} else if (format == FORMAT_TEXT_GZIP) {
+			InputStream binary = binaryStream.open();
+			return reader.read(binary == null ? null : new InputStreamReader(new GZIPInputStream(binary), StandardCharsets.UTF_8), null);
+		} else if (format == FORMAT_BINARY) {
+			return reader.read(null, binaryStream.open());
+		} else if (format == FORMAT_BINARY_GZIP) {
+			InputStream binary = binaryStream.open();
+			return reader.read(null, binary == null ? null : new GZIPInputStream(binary));
+		} else {
+			throw new IllegalStateException("unsupported task body format " + format);
+		}
+	}
+
+	private static byte[] gzip(byte[] content) {
+		ByteArrayOutputStream result = new ByteArrayOutputStream(content.length / 4 + 32);
+		try (OutputStream gzipStream = new GZIPOutputStream(result)) {
+			gzipStream.write(content);
+		} catch (IOException ioe) {
+			throw new IllegalStateException("failed to compress task body", ioe);
+		}
+		return result.toByteArray();
+	}
+
+	private static byte[] gunzip(byte[] content) {
+		ByteArrayOutputStream result = new ByteArrayOutputStream(content.length * 4);
+		try (InputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(content))) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = gzipStream.read(buffer)) > 0) {
+				result.write(buffer, 0, read);
+			}
+		} catch (IOException ioe) {
+			throw new IllegalStateException("failed to decompress task body", ioe);
+		}
+		return result.toByteArray();
+	}
+
+	static final class EncodedBody {
+		final String text;
+		final byte[] binary;
+		final int format;
+
+		private EncodedBody(String text, byte[] binary, int format) {
+			this.text = text;
+			this.binary = binary;
+			this.format = format;
+		}
+	}
+
+	@FunctionalInterface
+	interface StreamOpener<S> {
+		S open() throws SQLException;
+	}
+
+	static final class DecodedBody {
+		final String text;
+		final byte[] binary;
+
+		private DecodedBody(String text, byte[] binary) {
+			this.text = text;
+			this.binary = binary;
+		}
+	}
+}
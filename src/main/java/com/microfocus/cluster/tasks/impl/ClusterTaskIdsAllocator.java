@@ -0,0 +1,74 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hi-lo allocator of the task IDs
+ * - a block (range) of IDs is reserved from the DB with a single sequence call
+ * - IDs are handed out of the current block by a lock-free local counter; only the reservation of the next block is synchronized
+ * - IDs not handed out before the node goes down are lost, which is fine, since IDs are required to be unique, not contiguous
+ */
+
+final class ClusterTaskIdsAllocator {
+	private static final Logger logger = LoggerFactory.getLogger(ClusterTaskIdsAllocator.class);
+
+	private final Supplier<IdsBlock> blockReserver;
+	private volatile IdsBlock currentBlock = new IdsBlock(0, 0);
+
+	/**
+	 * @param blockReserver reserves the next block of IDs from the DB; MUST NOT return blocks overlapping with any other block reserved by any node
+	 */
+	ClusterTaskIdsAllocator(Supplier<IdsBlock> blockReserver) {
+		if (blockReserver == null) {
+			throw new IllegalArgumentException("block reserver MUST NOT be null");
+		}
+		this.blockReserver = blockReserver;
+	}
+
+	long nextId() {
+		while (true) {
+			IdsBlock block = currentBlock;
+			long id = block.next.getAndIncrement();
+			if (id < block.end) {
+				return id;
+			}
+			reserveNextBlock(block);
+		}
+	}
+
+	private synchronized void reserveNextBlock(IdsBlock exhaustedBlock) {
+		//  block could have been already replaced by a concurrent caller
+		if (currentBlock == exhaustedBlock) {
+			IdsBlock newBlock = blockReserver.get();
+			if (newBlock == null || newBlock.next.get() >= newBlock.end) {
+				throw new IllegalStateException("failed to reserve a valid block of task IDs");
+			}
+			currentBlock = newBlock;
+			if (logger.isDebugEnabled()) {
+				logger.debug("reserved new block of task IDs starting with " + newBlock.next.get() + ", up to (exclusive) " + newBlock.end);
+			}
+		}
+	}
+
+	static final class IdsBlock {
+		private final AtomicLong next;
+		private final long end;
+
+		IdsBlock(long first, long size) {
+			this.next = new AtomicLong(first);
+			this.end = first + size;
+		}
+	}
+}
@@ -11,6 +11,11 @@ package com.microfocus.cluster.tasks.impl;
 import com.microfocus.cluster.tasks.api.dto.ClusterTask;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskType;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
 /**
  * Created by gullery on 26/05/2016.
  * <p>
@@ -30,7 +35,12 @@ class ClusterTaskImpl implements ClusterTask {
 	Long orderingFactor;
 	Long delayByMillis;
 	String body;
+	byte[] binaryBody;
 	Long partitionIndex;
+	Long bodyId;
+	boolean bodyInline;
+	ClusterTasksDataProvider bodyStreamingSource;
+	boolean bodyPrefetched;
 
 	ClusterTaskImpl() {
 	}
@@ -46,7 +56,12 @@ class ClusterTaskImpl implements ClusterTask {
 		orderingFactor = origin.orderingFactor;
 		delayByMillis = origin.delayByMillis;
 		body = origin.body;
+		binaryBody = origin.binaryBody;
 		partitionIndex = origin.partitionIndex;
+		bodyId = origin.bodyId;
+		bodyInline = origin.bodyInline;
+		bodyStreamingSource = origin.bodyStreamingSource;
+		bodyPrefetched = origin.bodyPrefetched;
 	}
 
 	@Override
@@ -84,6 +99,38 @@ class ClusterTaskImpl implements ClusterTask {
 		return body;
 	}
 
+	@Override
+	public ByteBuffer getBinaryBody() {
+		return binaryBody == null ? null : ByteBuffer.wrap(binaryBody).asReadOnlyBuffer();
+	}
+
+	@Override
+	public <T> T readBody(BodyReader<T> reader) throws IOException {
+		if (bodyStreamingSource != null && partitionIndex != null) {
+			return bodyStreamingSource.streamTaskBody(resolveBodyId(), partitionIndex, reader);
+		} else if (body != null) {
+			return reader.read(new StringReader(body), null);
+		} else if (binaryBody != null) {
+			return reader.read(null, new ByteArrayInputStream(binaryBody));
+		} else {
+			return reader.read(null, null);
+		}
+	}
+
+	boolean hasBody() {
+		return body != null || binaryBody != null;
+	}
+
+	//  task referencing a shared body (stored once for many tasks) or having its body inline (in the metadata row) does not own a body row
+	boolean hasOwnBody() {
+		return hasBody() && bodyId == null && !bodyInline;
+	}
+
+	//  own body is stored under the task's ID, shared one - under its own ID
+	Long resolveBodyId() {
+		return bodyId != null ? bodyId : id;
+	}
+
 	@Override
 	public String toString() {
 		return "ClusterTaskImpl {" +
@@ -95,7 +142,7 @@ class ClusterTaskImpl implements ClusterTask {
 				", applicationKey: " + applicationKey +
 				", orderingFactor: " + orderingFactor +
 				", delayByMillis: " + delayByMillis +
-				", bodyLength: " + (body != null ? body.length() : "null") +
+				", bodyLength: " + (body != null ? body.length() : (binaryBody != null ? binaryBody.length : "null")) +
 				", partitionIndex: " + partitionIndex + "}";
 	}
 }
@@ -8,13 +8,16 @@
 
 package com.microfocus.cluster.tasks.impl;
 
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
 import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskStatus;
 import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Created by gullery on 08/05/2016.
@@ -47,6 +50,16 @@ interface ClusterTasksDataProvider {
 	 */
 	ClusterTaskPersistenceResult[] storeTasks(ClusterTaskImpl... tasks);
 
+	/**
+	 * Stores tasks sharing the same body: the body is stored once and referenced by all of the tasks
+	 * - body is taken from the first task, all of the tasks are expected to have the same one
+	 * - tasks are stored within a single transaction; if none of the tasks is stored (uniqueness violations) the body is not stored either
+	 *
+	 * @param tasks one or more tasks content to be pushed into the queue
+	 * @return an array of results, corresponding to the array of the tasks
+	 */
+	ClusterTaskPersistenceResult[] storeTasksWithSharedBody(ClusterTaskImpl... tasks);
+
 	/**
 	 * Updates single scheduled task with new task run interval
 	 * - implementation should also update the CREATED field so that the new interval will be effective from NOW
@@ -56,21 +69,60 @@ interface ClusterTasksDataProvider {
 	 */
 	void updateScheduledTaskInterval(String scheduledTaskType, long newTaskRunInterval);
 
+	/**
+	 * Waits for the signal, that tasks ready to run (not delayed) were enqueued by any node of the cluster
+	 * - signal is a best effort hint to dispatch right away, the regular dispatch interval remains in place
+	 *
+	 * @param maxWaitMillis maximum time to wait for the signal; MUST be positive
+	 * @return true if the signal was received, false if the wait is over with no signal
+	 */
+	boolean awaitTasksEnqueued(long maxWaitMillis);
+
+	/**
+	 * Releases resources held for awaiting the enqueue signal, if any
+	 */
+	void stopAwaitingTasksEnqueued();
+
 	/**
 	 * Attempts to retrieve next valid task per type, marks the retrieved task as running and possible checks is there are more tasks valid to be executed
 	 *
 	 * @param processors data set of all registered processors, that data provider should try to find tasks for
+	 * @return number of tasks dispatched to the processors
+	 */
+	int retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> processors);
+
+	/**
+	 * Claims the next task of the finished task's channel to be run right away by the same worker (channel lease continuation)
+	 * - MUST be invoked while the finished task is still RUNNING (not removed yet), so that the channel is not taken by the dispatch meanwhile
+	 * - only the channel's head is claimed, given it is PENDING, of the same processor and not delayed
+	 *
+	 * @param finishedTask finished channeled task
+	 * @param taskAcceptor processor's per task validation of the next task
+	 * @return next task, already marked as RUNNING; null if there is no task to continue with or on failure
 	 */
-	void retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> processors);
+	ClusterTaskImpl claimNextChannelTask(ClusterTaskImpl finishedTask, Predicate<ClusterTaskImpl> taskAcceptor);
 
 	/**
 	 * Retrieves task's body
 	 *
 	 * @param taskId         task's body will always have an ID of the task itself
 	 * @param partitionIndex index of table the body was stored to
-	 * @return task's body
+	 * @return task's body, either text or binary
+	 */
+	ClusterTaskBodyCodec.DecodedBody retrieveTaskBody(Long taskId, Long partitionIndex);
+
+	/**
+	 * Streams task's body directly from the storage to the reader, without materializing it in memory
+	 * - storage resources (connection) are held only for the duration of the reader's run
+	 *
+	 * @param taskId         task's body will always have an ID of the task itself
+	 * @param partitionIndex index of table the body was stored to
+	 * @param reader         body reader; receives either text or binary stream, or both NULL if the body was not found
+	 * @param <T>            type of the reader's result
+	 * @return the reader's result
+	 * @throws IOException if the reader fails to read the body
 	 */
-	String retrieveTaskBody(Long taskId, Long partitionIndex);
+	<T> T streamTaskBody(Long taskId, Long partitionIndex, ClusterTask.BodyReader<T> reader) throws IOException;
 
 	/**
 	 * Removes FINISHED task from the tasks metadata table (task bodies are removed in a separate flow)
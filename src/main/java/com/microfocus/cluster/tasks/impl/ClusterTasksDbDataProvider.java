@@ -8,6 +8,7 @@
 
 package com.microfocus.cluster.tasks.impl;
 
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
 import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskInsertStatus;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskStatus;
@@ -17,30 +18,41 @@ import com.microfocus.cluster.tasks.api.ClusterTasksService;
 import com.microfocus.cluster.tasks.api.ClusterTasksServiceConfigurerSPI;
 import com.microfocus.cluster.tasks.api.errors.CtsGeneralFailure;
 import com.microfocus.cluster.tasks.api.errors.CtsSqlFailure;
+import io.prometheus.client.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Clob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
@@ -53,6 +65,10 @@ import javax.sql.DataSource;
 
 abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 	private final Logger logger = LoggerFactory.getLogger(ClusterTasksDbDataProvider.class);
+	private static final Counter lockContentions;
+	private static final Counter optimisticClaimsLost;
+	static final String DISPATCH_LOCK = "dispatch";
+	static final String GC_LOCK = "gc";
 
 	protected final ClusterTasksService clusterTasksService;
 	private final ClusterTasksServiceConfigurerSPI serviceConfigurer;
@@ -83,22 +99,55 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 	static final String STARTED = META_COLUMNS_PREFIX.concat("STARTED");
 	static final String RUNTIME_INSTANCE = META_COLUMNS_PREFIX.concat("RUNTIME_INSTANCE");
 	static final String BODY_PARTITION = META_COLUMNS_PREFIX.concat("BODY_PARTITION");
+	static final String META_BODY_ID = META_COLUMNS_PREFIX.concat("BODY_ID");
+	static final String META_BODY_INLINE = META_COLUMNS_PREFIX.concat("BODY_INLINE");
 
 	//  Content table
 	private static final String BODY_COLUMNS_PREFIX = "CTSKB_";
 	static final String BODY_TABLE_NAME = "CLUSTER_TASK_BODY_P";
 	static final String BODY_ID = BODY_COLUMNS_PREFIX.concat("ID");
 	static final String BODY = BODY_COLUMNS_PREFIX.concat("BODY");
+	static final String BODY_BINARY = BODY_COLUMNS_PREFIX.concat("BODY_BINARY");
+	static final String BODY_FORMAT = BODY_COLUMNS_PREFIX.concat("BODY_FORMAT");
+
+	//  Channels table
+	//  - a row per concurrency key having non-finished tasks, referencing the task last started in the channel
+	//  - running task reference is verified against the metadata, so finished (removed) tasks and tasks of the gone nodes do not block the channel
+	private static final String CHANNEL_COLUMNS_PREFIX = "CTSKC_";
+	static final String CHANNEL_TABLE_NAME = "CLUSTER_TASK_CHANNEL";
+	static final String CHANNEL_KEY = CHANNEL_COLUMNS_PREFIX.concat("CONCURRENCY_KEY");
+	static final String CHANNEL_RUNNING_TASK_ID = CHANNEL_COLUMNS_PREFIX.concat("RUNNING_TASK_ID");
+
+	//  Enqueue signal table (MSSQL / Oracle)
+	//  - a single row, its counter bumped upon each store of tasks ready to run, polled by the nodes opted in for the enqueue signal
+	private static final String SIGNAL_COLUMNS_PREFIX = "CTSKS_";
+	static final String SIGNAL_TABLE_NAME = "CLUSTER_TASK_SIGNAL";
+	static final String SIGNAL_ID = SIGNAL_COLUMNS_PREFIX.concat("ID");
+	static final String SIGNAL_COUNTER = SIGNAL_COLUMNS_PREFIX.concat("COUNTER");
 
 	final int PARTITIONS_NUMBER = 4;
+	//  inline body column is 4000 long, which MAY be bytes (Oracle), hence 1000 characters of up to 4 bytes each
+	private final int maxInlineBodyLength = 1000;
+	private final int maxDispatchLockStripes = 64;
+	final int dispatchLockStripes;
 
 	private final String removeFinishedTaskSQL;
 	private final String removeFinishedTasksByQuerySQL;
 	private final Map<Long, String> selectDanglingBodiesSQLs = new HashMap<>();
 	private final Map<Long, String> removeDanglingBodiesSQLs = new HashMap<>();
 	private final int removeDanglingBodiesBulkSize = 50;
+	private final int storeTasksBatchSize = 1000;
+	private final String selectTaskIDsByIDsSQL;
+	private final int selectTaskIDsByIDsBulkSize = 100;
+	private final Map<String, Long> recentlyRejectedTasks = new ConcurrentHashMap<>();
+	private final int recentlyRejectedTasksMaxSize = 10000;
 
 	private final String removeStaledTasksSQL;
+	private final String removeEmptyChannelsSQL;
+	private final String updateChannelStartedSQL;
+	private final String updateTaskClaimRevertedSQL;
+	private final String lockChannelSQL;
+	private final String selectNextChannelTaskSQL;
 
 	private final String countScheduledPendingTasksSQL;
 
@@ -106,32 +155,81 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 	private final Map<Long, String> truncateByPartitionSQLs = new LinkedHashMap<>();
 
 	private final String countTasksByStatusSQL;
+
+	private final String selectEnqueueSignalSQL;
+	private final String updateEnqueueSignalSQL;
+	private final int minEnqueueSignalPollInterval = 50;
+	private final long enqueueSignalPollInterval;
+	private Long lastSignalCounter;
 	private final Map<Long, String> countTaskBodiesByPartitionSQLs = new LinkedHashMap<>();
+	private final int bodiesPrefetchChunkSize = 100;
+	private final Map<Long, String> selectTaskBodiesByPartitionSQLs = new LinkedHashMap<>();
 
 	private ZonedDateTime lastTruncateTime;
 	private JdbcTemplate jdbcTemplate;
 	private TransactionTemplate transactionTemplate;
 
+	static {
+		lockContentions = Counter.build()
+				.name("cts_lock_contentions_total")
+				.help("CTS cluster wide locks found held by another node (by lock)")
+				.labelNames("runtime_instance_id", "lock")
+				.register();
+		optimisticClaimsLost = Counter.build()
+				.name("cts_optimistic_claims_lost_total")
+				.help("CTS tasks selected for run by optimistic dispatch, yet claimed by another node first (or no more ready to run)")
+				.labelNames("runtime_instance_id")
+				.register();
+	}
+
 	ClusterTasksDbDataProvider(ClusterTasksService clusterTasksService, ClusterTasksServiceConfigurerSPI serviceConfigurer) {
 		this.clusterTasksService = clusterTasksService;
 		this.serviceConfigurer = serviceConfigurer;
+		this.dispatchLockStripes = resolveDispatchLockStripesNumber();
+		this.enqueueSignalPollInterval = resolveEnqueueSignalPollInterval();
 
 		//  prepare SQL statements
 		removeFinishedTaskSQL = "DELETE FROM " + META_TABLE_NAME + " WHERE " + META_ID + " = ?";
 		removeFinishedTasksByQuerySQL = "DELETE FROM " + META_TABLE_NAME + " WHERE " + STATUS + " = " + ClusterTaskStatus.FINISHED.value;
+		selectTaskIDsByIDsSQL = "SELECT " + META_ID + " FROM " + META_TABLE_NAME + " WHERE " + META_ID + " IN (" + String.join(",", Collections.nCopies(selectTaskIDsByIDsBulkSize, "?")) + ")";
 
 		for (long partition = 0; partition < PARTITIONS_NUMBER; partition++) {
-			lookupOrphansByPartitionSQLs.put(partition, "SELECT " + String.join(",", BODY_ID, META_ID) + " FROM " + BODY_TABLE_NAME + partition +
-					" LEFT OUTER JOIN " + META_TABLE_NAME + " ON " + META_ID + " = " + BODY_ID);
+			//  body is referenced either by the task owning it (same ID) or by the tasks sharing it (shared body ID), the latter aggregated to a row per body
+			lookupOrphansByPartitionSQLs.put(partition, "SELECT " + BODY_ID + ", COALESCE(o." + META_ID + ", s.shared_task_id) AS " + META_ID +
+					" FROM " + BODY_TABLE_NAME + partition +
+					" LEFT OUTER JOIN " + META_TABLE_NAME + " o ON o." + META_ID + " = " + BODY_ID +
+					" LEFT OUTER JOIN (SELECT " + META_BODY_ID + " AS shared_body_id, MIN(" + META_ID + ") AS shared_task_id FROM " + META_TABLE_NAME +
+					"   WHERE " + META_BODY_ID + " IS NOT NULL GROUP BY " + META_BODY_ID + ") s ON s.shared_body_id = " + BODY_ID);
 
 			selectDanglingBodiesSQLs.put(partition, "SELECT " + BODY_ID + " AS bodyId FROM " + BODY_TABLE_NAME + partition +
-					" WHERE NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " WHERE " + META_ID + " = " + BODY_ID + ")");
-			removeDanglingBodiesSQLs.put(partition, "DELETE FROM " + BODY_TABLE_NAME + partition + " WHERE " + BODY_ID + " IN (" + String.join(",", Collections.nCopies(removeDanglingBodiesBulkSize, "?")) + ")");
+					" WHERE NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " WHERE " + META_ID + " = " + BODY_ID + ")" +
+					"   AND NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " WHERE " + META_BODY_ID + " = " + BODY_ID + ")");
+			removeDanglingBodiesSQLs.put(partition, "DELETE FROM " + BODY_TABLE_NAME + partition + " WHERE " + BODY_ID + " IN (" + String.join(",", Collections.nCopies(removeDanglingBodiesBulkSize, "?")) + ")" +
+					" AND NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " WHERE " + META_BODY_ID + " = " + BODY_ID + ")");
 
 			truncateByPartitionSQLs.put(partition, "TRUNCATE TABLE " + BODY_TABLE_NAME + partition);
 			countTaskBodiesByPartitionSQLs.put(partition, "SELECT COUNT(*) AS counter FROM " + BODY_TABLE_NAME + partition);
+			selectTaskBodiesByPartitionSQLs.put(partition, "SELECT " + String.join(",", BODY_ID, BODY_FORMAT, BODY, BODY_BINARY) + " FROM " + BODY_TABLE_NAME + partition +
+					" WHERE " + BODY_ID + " IN(" + String.join(",", Collections.nCopies(bodiesPrefetchChunkSize, "?")) + ")");
 		}
 
+		removeEmptyChannelsSQL = "DELETE FROM " + CHANNEL_TABLE_NAME +
+				" WHERE NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " WHERE " + CONCURRENCY_KEY + " = " + CHANNEL_TABLE_NAME + "." + CHANNEL_KEY + ")";
+		updateChannelStartedSQL = "UPDATE " + CHANNEL_TABLE_NAME + " SET " + CHANNEL_RUNNING_TASK_ID + " = ? WHERE " + CHANNEL_KEY + " = ?";
+		//  no-op update takes the channel's row lock, serializing the optimistic claims of the same channel
+		lockChannelSQL = "UPDATE " + CHANNEL_TABLE_NAME + " SET " + CHANNEL_RUNNING_TASK_ID + " = " + CHANNEL_RUNNING_TASK_ID + " WHERE " + CHANNEL_KEY + " = ?";
+		//  next channel's head: first non-finished task (by the ordering) other than the finished one, given it is PENDING, of the same processor and not delayed
+		String nextChannelTaskCandidates = " FROM " + META_TABLE_NAME + " WHERE " + CONCURRENCY_KEY + " = ? AND " + META_ID + " <> ? AND " + STATUS + " < " + ClusterTaskStatus.FINISHED.value;
+		selectNextChannelTaskSQL = "SELECT " + String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, ORDERING_FACTOR, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, STATUS) +
+				" FROM " + META_TABLE_NAME +
+				" WHERE " + META_ID + " = (SELECT MIN(" + META_ID + ")" + nextChannelTaskCandidates +
+				"       AND " + ORDERING_FACTOR + " = (SELECT MIN(" + ORDERING_FACTOR + ")" + nextChannelTaskCandidates + "))" +
+				"   AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"   AND " + PROCESSOR_TYPE + " = ?" +
+				"   AND " + DELAY_BY_MILLIS + " = 0";
+		updateTaskClaimRevertedSQL = "UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.PENDING.value + ", " + STARTED + " = NULL, " + RUNTIME_INSTANCE + " = NULL" +
+				" WHERE " + META_ID + " = ?";
+
 		removeStaledTasksSQL = "DELETE FROM " + META_TABLE_NAME +
 				" WHERE " + RUNTIME_INSTANCE + " IS NOT NULL" +
 				"   AND NOT EXISTS (SELECT 1 FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_ID + " = " + RUNTIME_INSTANCE + ")";
@@ -140,17 +238,720 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 				" WHERE " + TASK_TYPE + " = " + ClusterTaskType.SCHEDULED.value + " AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value + " GROUP BY " + PROCESSOR_TYPE;
 
 		countTasksByStatusSQL = "SELECT COUNT(*) AS counter," + PROCESSOR_TYPE + " FROM " + META_TABLE_NAME + " WHERE " + STATUS + " = ? GROUP BY " + PROCESSOR_TYPE;
+
+		selectEnqueueSignalSQL = "SELECT " + SIGNAL_COUNTER + " FROM " + SIGNAL_TABLE_NAME + " WHERE " + SIGNAL_ID + " = 0";
+		updateEnqueueSignalSQL = "UPDATE " + SIGNAL_TABLE_NAME + " SET " + SIGNAL_COUNTER + " = " + SIGNAL_COUNTER + " + 1 WHERE " + SIGNAL_ID + " = 0";
 	}
 
+	/**
+	 * @return either the single staled tasks selection SQL, or the try-lock SQL (returning 1 if acquired, 0 otherwise), the selection SQL and optionally the release lock SQL
+	 */
 	abstract String[] getSelectReRunnableStaledTasksSQL();
 
 	abstract String getUpdateScheduledTaskIntervalSQL();
 
+	/**
+	 * @return SQL conditionally claiming a single task (params: runtime instance ID, task ID) - updating it to RUNNING only if still PENDING
+	 * and, for the channeled task, only if no other task of its channel is RUNNING; update count of 1 means the claim succeeded
+	 */
+	abstract String getClaimTaskSQL();
+
+	/**
+	 * @return SQL inserting the channels of the non-finished tasks having no channel yet; MUST NOT fail on the channels inserted concurrently
+	 */
+	abstract String getInsertMissingChannelsSQL();
+
+	/**
+	 * Inserts channels of the given concurrency keys, skipping the existing ones; invoked within the transaction of the tasks' insert
+	 * - MUST NOT fail on the channels existing or inserted concurrently
+	 *
+	 * @param jdbcTemplate    JDBC template to work with
+	 * @param concurrencyKeys concurrency keys, distinct and ordered, so that the concurrent inserts won't deadlock
+	 */
+	abstract void insertChannels(JdbcTemplate jdbcTemplate, List<String> concurrencyKeys);
+
+	/**
+	 * @param partitionIndex index of the body table
+	 * @return SQL selecting the body of a single task by its ID; format column MUST be the first, followed by the text and binary ones (streaming drivers require columns to be read in order)
+	 */
+	abstract String getSelectTaskBodySQL(Long partitionIndex);
+
+	/**
+	 * Inserts a single task (metadata and body, if any); invoked within a transaction
+	 * - uniqueness violation MUST NOT be thrown, but reported by the returned value, so that no exception nor rollback is involved
+	 * - implementation MUST throw on any other failure, so that the transaction will be rolled back
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param task         task to be inserted
+	 * @return true if the task was inserted, false if it was rejected due to uniqueness violation
+	 */
+	abstract boolean insertTask(JdbcTemplate jdbcTemplate, ClusterTaskImpl task);
+
+	/**
+	 * Inserts a batch of tasks (metadata and bodies, if any) using JDBC batching; invoked within a single transaction
+	 * - uniqueness violation of any of the tasks MUST NOT be thrown, but reported by the returned value; body of a rejected task MUST NOT be inserted
+	 * - implementation MUST throw on any other failure, so that the whole batch will be rolled back
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param tasks        tasks to be inserted, in the order of their submission
+	 * @return array, corresponding to the list of the tasks, having true for each inserted task and false for each task rejected due to uniqueness violation
+	 */
+	abstract boolean[] insertTasks(JdbcTemplate jdbcTemplate, List<ClusterTaskImpl> tasks);
+
+	/**
+	 * Reserves a single ID out of the task IDs sequence; used as an ID of the shared bodies, so that those never collide with the tasks' own bodies
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @return reserved ID
+	 */
+	abstract long reserveTaskId(JdbcTemplate jdbcTemplate);
+
+	/**
+	 * Inserts the body of the task into the body table of the task's partition, under the task's ID
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param task         task, that its body is to be inserted; MUST have a body, ID and partition index
+	 */
+	abstract void insertTaskBody(JdbcTemplate jdbcTemplate, ClusterTaskImpl task);
+
+	/**
+	 * Selects PENDING non-channeled tasks ready to run, locking the selected rows and skipping the rows locked by the others; invoked within a transaction
+	 * - the limit is applied per processor type, so that the backlog of one processor won't starve the others
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param claimLimits  maximum number of tasks to select (and lock) by processor type
+	 * @return selected tasks, ordered by the ordering factor within each processor type
+	 */
+	abstract List<ClusterTaskImpl> selectClaimableTasks(JdbcTemplate jdbcTemplate, Map<String, Integer> claimLimits);
+
+	/**
+	 * Marks the tasks as RUNNING by this node; invoked within a transaction
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param taskIds      IDs of the tasks to be marked
+	 */
+	abstract void updateTasksStarted(JdbcTemplate jdbcTemplate, Collection<Long> taskIds);
+
+	/**
+	 * Selects candidate tasks to be run (heads of the idle channels and the non-channeled tasks capped by the free workers), with no lock taken
+	 *
+	 * @param jdbcTemplate        JDBC template to work with
+	 * @param availableProcessors processors available for the dispatch, by type
+	 * @return candidate tasks; MAY be stale by the time of the claim
+	 */
+	abstract List<ClusterTaskImpl> selectDispatchCandidates(JdbcTemplate jdbcTemplate, Map<String, ClusterTasksProcessorBase> availableProcessors);
+
+	/**
+	 * MAY claim non-channeled tasks ready to run and transition them to RUNNING by a single statement; invoked within the transaction of the claim
+	 * - no more tasks of a processor than its free workers are claimed
+	 *
+	 * @param jdbcTemplate        JDBC template to work with
+	 * @param processorsToClaimBy processors having free workers, by type
+	 * @return tasks claimed and already marked RUNNING; null if not supported (default), in which case the tasks are selected and updated separately
+	 */
+	List<ClusterTaskImpl> claimTasksStarted(JdbcTemplate jdbcTemplate, Map<String, ClusterTasksProcessorBase> processorsToClaimBy) {
+		return null;
+	}
+
 	@Override
 	public ClusterTasksDataProviderType getType() {
 		return ClusterTasksDataProviderType.DB;
 	}
 
+	/**
+	 * Stores tasks in batches, each batch within a single transaction
+	 * - uniqueness violation is reported per task by the inserts themselves, with no exception nor rollback involved
+	 * - if a batch fails as a whole for any other reason, its tasks are stored one by one, so that the failure is isolated to the offending task
+	 * - tasks recently rejected due to uniqueness violation are rejected right away, if the rejections cache is enabled
+	 */
+	@Override
+	public ClusterTaskPersistenceResult[] storeTasks(ClusterTaskImpl... tasks) {
+		ClusterTaskPersistenceResult[] result = new ClusterTaskPersistenceResult[tasks.length];
+		resolveInlineBodies(tasks);
+		long rejectionsCacheTTL = getUniquenessRejectionsCacheTTL();
+		List<ClusterTaskImpl> tasksToStore = new ArrayList<>(tasks.length);
+		List<Integer> tasksToStoreIndices = new ArrayList<>(tasks.length);
+		for (int i = 0; i < tasks.length; i++) {
+			if (rejectionsCacheTTL > 0 && isRecentlyRejected(tasks[i])) {
+				result[i] = new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE);
+			} else {
+				tasksToStore.add(tasks[i]);
+				tasksToStoreIndices.add(i);
+			}
+		}
+
+		for (int batchStart = 0; batchStart < tasksToStore.size(); batchStart += storeTasksBatchSize) {
+			int batchEnd = Math.min(tasksToStore.size(), batchStart + storeTasksBatchSize);
+			boolean[] inserted = batchEnd - batchStart > 1 ? storeTasksBatch(tasksToStore.subList(batchStart, batchEnd)) : null;
+			for (int i = batchStart; i < batchEnd; i++) {
+				ClusterTaskImpl task = tasksToStore.get(i);
+				ClusterTaskPersistenceResult taskResult;
+				if (inserted != null) {
+					taskResult = new ClusterTaskPersistenceResultImpl(inserted[i - batchStart] ? ClusterTaskInsertStatus.SUCCESS : ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE);
+				} else {
+					taskResult = storeTask(task);
+				}
+				if (rejectionsCacheTTL > 0 && taskResult.getStatus() == ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE) {
+					rememberRejected(task, rejectionsCacheTTL);
+				}
+				result[tasksToStoreIndices.get(i)] = taskResult;
+			}
+		}
+
+		signalIfReadyTasksStored(tasks, result);
+		return result;
+	}
+
+	@Override
+	public ClusterTaskPersistenceResult[] storeTasksWithSharedBody(ClusterTaskImpl... tasks) {
+		ClusterTaskPersistenceResult[] result = new ClusterTaskPersistenceResult[tasks.length];
+		ClusterTaskImpl sharedBody = new ClusterTaskImpl();
+		sharedBody.body = tasks[0].body;
+		sharedBody.binaryBody = tasks[0].binaryBody;
+		try {
+			boolean[] inserted = getTransactionTemplate().execute(transactionStatus -> {
+				JdbcTemplate jdbcTemplate = getJdbcTemplate();
+				sharedBody.id = reserveTaskId(jdbcTemplate);
+				sharedBody.partitionIndex = resolveBodyTablePartitionIndex();
+				insertTaskBody(jdbcTemplate, sharedBody);
+				for (ClusterTaskImpl task : tasks) {
+					task.bodyId = sharedBody.id;
+					task.partitionIndex = sharedBody.partitionIndex;
+				}
+				registerChannels(jdbcTemplate, Arrays.asList(tasks));
+				boolean[] insertResults = insertTasks(jdbcTemplate, Arrays.asList(tasks));
+
+				//  no task referencing the body - no body
+				boolean anyInserted = false;
+				for (boolean insertResult : insertResults) {
+					anyInserted |= insertResult;
+				}
+				if (!anyInserted) {
+					transactionStatus.setRollbackOnly();
+				}
+				return insertResults;
+			});
+			if (inserted == null || inserted.length != tasks.length) {
+				throw new IllegalStateException("expected to get insert results for " + tasks.length + " tasks");
+			}
+			for (int i = 0; i < tasks.length; i++) {
+				result[i] = new ClusterTaskPersistenceResultImpl(inserted[i] ? ClusterTaskInsertStatus.SUCCESS : ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("successfully processed " + tasks.length + " tasks sharing body " + sharedBody.id);
+			}
+		} catch (Exception e) {
+			logger.error(clusterTasksService.getInstanceID() + " failed to persist " + tasks.length + " tasks sharing a body", e);
+			Arrays.fill(result, new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNEXPECTED_FAILURE));
+		}
+		signalIfReadyTasksStored(tasks, result);
+		return result;
+	}
+
+	/**
+	 * Polls the enqueue signal counter (a single row, looked up by its primary key) for the changes, if opted in
+	 * - DBs having no native notifications support rely on this one; the signal is a hint only, changes MAY be missed by it
+	 * - with the polling not opted in, the wait is just slept out, the regular dispatch interval being the only fallback
+	 */
+	@Override
+	public boolean awaitTasksEnqueued(long maxWaitMillis) {
+		if (enqueueSignalPollInterval <= 0) {
+			sleepOut(maxWaitMillis);
+			return false;
+		}
+
+		long deadline = System.currentTimeMillis() + maxWaitMillis;
+		boolean failed = false;
+		try {
+			do {
+				Boolean signaled = false;
+				try {
+					signaled = getJdbcTemplate().query(selectEnqueueSignalSQL, resultSet -> {
+						if (!resultSet.next()) {
+							return false;
+						}
+						long counter = resultSet.getLong(SIGNAL_COUNTER);
+						boolean changed = lastSignalCounter != null && counter != lastSignalCounter;
+						lastSignalCounter = counter;
+						return changed;
+					});
+				} catch (DataAccessException dae) {
+					//  failing poll is not retried till the end of the wait, to not flood the DB nor the log
+					logger.warn("failed to poll for enqueued tasks", dae);
+					failed = true;
+				}
+				if (Boolean.TRUE.equals(signaled)) {
+					return true;
+				}
+				long sleepInterval = failed ? deadline - System.currentTimeMillis() : Math.min(enqueueSignalPollInterval, deadline - System.currentTimeMillis());
+				Thread.sleep(Math.max(1, sleepInterval));
+			} while (System.currentTimeMillis() < deadline);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	@Override
+	public void stopAwaitingTasksEnqueued() {
+	}
+
+	void sleepOut(long maxWaitMillis) {
+		try {
+			Thread.sleep(Math.max(1, maxWaitMillis));
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Signals the other nodes, that tasks ready to run were enqueued; DBs having no native notifications support bump the polled counter instead
+	 * - the counter is bumped out of the enqueue transaction (which is already committed), so that the concurrent enqueues are not serialized on it
+	 */
+	void signalTasksEnqueued() {
+		if (enqueueSignalPollInterval > 0) {
+			getJdbcTemplate().update(updateEnqueueSignalSQL);
+		}
+	}
+
+	void signalIfReadyTasksStored(ClusterTaskImpl[] tasks, ClusterTaskPersistenceResult[] results) {
+		for (int i = 0; i < tasks.length; i++) {
+			if (results[i].getStatus() == ClusterTaskInsertStatus.SUCCESS && (tasks[i].delayByMillis == null || tasks[i].delayByMillis == 0)) {
+				try {
+					signalTasksEnqueued();
+				} catch (Exception e) {
+					logger.warn("failed to signal enqueued tasks", e);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Claims non-channeled tasks with row level locks, with no cluster wide lock involved, so that many nodes claim disjoint tasks in parallel
+	 * - no more tasks than the free workers of each processor can take are claimed (plus one, so that the backlog is noticed), the rest are left for the other nodes
+	 *
+	 * @param availableProcessors processors available for the dispatch, having the tasks of the current round already handed out
+	 * @return number of dispatched tasks
+	 */
+	int claimAndDispatchNonChanneledTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		Map<String, ClusterTasksProcessorBase> processorsWithWorkers = new LinkedHashMap<>();
+		Map<String, Integer> claimLimits = new LinkedHashMap<>();
+		for (Map.Entry<String, ClusterTasksProcessorBase> processor : availableProcessors.entrySet()) {
+			if (processor.getValue().hasAvailableWorkers()) {
+				processorsWithWorkers.put(processor.getKey(), processor.getValue());
+				claimLimits.put(processor.getKey(), processor.getValue().getAvailableWorkers() + 1);
+			}
+		}
+		if (processorsWithWorkers.isEmpty()) {
+			return 0;
+		}
+
+		Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun = new LinkedHashMap<>();
+		getTransactionTemplate().execute(transactionStatus -> {
+			try {
+				JdbcTemplate jdbcTemplate = getJdbcTemplate();
+				List<ClusterTaskImpl> tasks = isSingleStatementClaimEnabled() ? claimTasksStarted(jdbcTemplate, processorsWithWorkers) : null;
+				boolean claimedStarted = tasks != null;
+				if (!claimedStarted) {
+					tasks = selectClaimableTasks(jdbcTemplate, claimLimits);
+				}
+				if (tasks != null && !tasks.isEmpty()) {
+					Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType, LinkedHashMap::new, Collectors.toList()));
+					List<Long> tasksToRunIDs = new ArrayList<>();
+					List<Long> tasksToRevertIDs = new ArrayList<>();
+					tasksByProcessor.forEach((processorType, processorTasks) -> {
+						ClusterTasksProcessorBase processor = processorsWithWorkers.get(processorType);
+						int processorFreeWorkers = processor.getAvailableWorkers();
+						Collection<ClusterTaskImpl> tmpTasks = processor.selectTasksToRun(processorTasks);
+						tasksToRun.put(processor, tmpTasks);
+						tmpTasks.forEach(task -> tasksToRunIDs.add(task.id));
+						if (claimedStarted) {
+							//  claim capped by the free workers can't tell the backlog, hence claim filling all the workers is assumed to leave some behind
+							if (processorTasks.size() >= processorFreeWorkers) {
+								processor.notifyBacklogged();
+							}
+							processorTasks.stream().filter(task -> !tmpTasks.contains(task)).forEach(task -> tasksToRevertIDs.add(task.id));
+						}
+					});
+					if (claimedStarted) {
+						if (!tasksToRevertIDs.isEmpty()) {
+							Collections.sort(tasksToRevertIDs);
+							jdbcTemplate.batchUpdate(updateTaskClaimRevertedSQL, tasksToRevertIDs.stream().map(id -> new Object[]{id}).collect(Collectors.toList()), new int[]{Types.BIGINT});
+						}
+					} else if (!tasksToRunIDs.isEmpty()) {
+						Collections.sort(tasksToRunIDs);
+						updateTasksStarted(jdbcTemplate, tasksToRunIDs);
+					}
+					if (logger.isDebugEnabled()) {
+						logger.debug("from a total of " + tasks.size() + " claimed non-channeled tasks " + tasksToRunIDs.size() + " has been started");
+					}
+				}
+			} catch (Throwable t) {
+				transactionStatus.setRollbackOnly();
+				tasksToRun.clear();
+				throw new CtsGeneralFailure("failed to claim and execute non-channeled tasks", t);
+			}
+			return null;
+		});
+
+		handOutTasks(tasksToRun);
+		return tasksToRun.values().stream().mapToInt(Collection::size).sum();
+	}
+
+	/**
+	 * Dispatches tasks with no cluster wide lock: candidates are read as is, then claimed by the conditional updates, handing out only the tasks actually claimed
+	 * - channel rows of the channeled tasks are locked (in keys order) before the claims, so that the channel guard of the claim sees the claims of the other nodes
+	 * - claims lost to the other nodes are counted by the optimistic claims lost metric
+	 *
+	 * @param availableProcessors processors available for the dispatch, by type
+	 * @return number of dispatched tasks
+	 */
+	int optimisticallyDispatchTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		List<ClusterTaskImpl> tasks = selectDispatchCandidates(getJdbcTemplate(), availableProcessors);
+		if (tasks == null || tasks.isEmpty()) {
+			return 0;
+		}
+
+		//  let processors decide which tasks will be processed from all available
+		Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType, LinkedHashMap::new, Collectors.toList()));
+		List<ClusterTaskImpl> tasksToClaim = new ArrayList<>();
+		tasksByProcessor.forEach((processorType, processorTasks) -> tasksToClaim.addAll(availableProcessors.get(processorType).selectTasksToRun(processorTasks)));
+		if (tasksToClaim.isEmpty()) {
+			return 0;
+		}
+		tasksToClaim.sort(Comparator.comparing(task -> task.id));
+
+		Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun = new LinkedHashMap<>();
+		getTransactionTemplate().execute(transactionStatus -> {
+			try {
+				JdbcTemplate jdbcTemplate = getJdbcTemplate();
+				List<Object[]> lockChannelParams = tasksToClaim.stream()
+						.map(task -> task.concurrencyKey)
+						.filter(Objects::nonNull)
+						.distinct()
+						.sorted()
+						.map(concurrencyKey -> new Object[]{concurrencyKey})
+						.collect(Collectors.toList());
+				if (!lockChannelParams.isEmpty()) {
+					jdbcTemplate.batchUpdate(lockChannelSQL, lockChannelParams, new int[]{Types.VARCHAR});
+				}
+
+				String runtimeInstanceID = clusterTasksService.getInstanceID();
+				List<Object[]> claimParams = tasksToClaim.stream()
+						.map(task -> new Object[]{runtimeInstanceID, task.id})
+						.collect(Collectors.toList());
+				int[] claimResults = jdbcTemplate.batchUpdate(getClaimTaskSQL(), claimParams, new int[]{Types.VARCHAR, Types.BIGINT});
+				for (int i = 0; i < claimResults.length; i++) {
+					if (claimResults[i] == 1) {
+						ClusterTaskImpl task = tasksToClaim.get(i);
+						tasksToRun.computeIfAbsent(availableProcessors.get(task.processorType), processor -> new ArrayList<>()).add(task);
+					}
+				}
+				updateChannelsStarted(jdbcTemplate, tasksToRun);
+			} catch (Throwable t) {
+				transactionStatus.setRollbackOnly();
+				tasksToRun.clear();
+				throw new CtsGeneralFailure("failed to optimistically claim and execute tasks", t);
+			}
+			return null;
+		});
+
+		int dispatched = tasksToRun.values().stream().mapToInt(Collection::size).sum();
+		if (dispatched < tasksToClaim.size()) {
+			optimisticClaimsLost.labels(clusterTasksService.getInstanceID()).inc(tasksToClaim.size() - dispatched);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("from a total of " + tasks.size() + " available tasks " + tasksToClaim.size() + " selected to run, " + dispatched + " of them claimed");
+		}
+
+		handOutTasks(tasksToRun);
+		return dispatched;
+	}
+
+	@Override
+	public ClusterTaskImpl claimNextChannelTask(ClusterTaskImpl finishedTask, Predicate<ClusterTaskImpl> taskAcceptor) {
+		if (finishedTask.concurrencyKey == null) {
+			return null;
+		}
+
+		try {
+			return getTransactionTemplate().execute(transactionStatus -> {
+				try {
+					JdbcTemplate jdbcTemplate = getJdbcTemplate();
+					//  channel's row lock serializes with the other claims of the channel; the finished task, still RUNNING, keeps the channel from the dispatch
+					jdbcTemplate.update(lockChannelSQL, new Object[]{finishedTask.concurrencyKey}, new int[]{Types.VARCHAR});
+					List<ClusterTaskImpl> nextTasks = jdbcTemplate.query(
+							selectNextChannelTaskSQL,
+							new Object[]{finishedTask.concurrencyKey, finishedTask.id, finishedTask.concurrencyKey, finishedTask.id, finishedTask.processorType},
+							new int[]{Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.VARCHAR},
+							this::tasksMetadataReader);
+					if (nextTasks == null || nextTasks.isEmpty() || !taskAcceptor.test(nextTasks.get(0))) {
+						return null;
+					}
+
+					ClusterTaskImpl nextTask = nextTasks.get(0);
+					updateTasksStarted(jdbcTemplate, Collections.singletonList(nextTask.id));
+					jdbcTemplate.update(updateChannelStartedSQL, new Object[]{nextTask.id, nextTask.concurrencyKey}, new int[]{Types.BIGINT, Types.VARCHAR});
+					return nextTask;
+				} catch (Throwable t) {
+					transactionStatus.setRollbackOnly();
+					throw t;
+				}
+			});
+		} catch (Throwable t) {
+			logger.warn(clusterTasksService.getInstanceID() + " failed to claim the next task of the channel of " + finishedTask + ", the channel is left to the dispatch", t);
+			return null;
+		}
+	}
+
+	/**
+	 * Completes the dispatch round past its locked (channeled) part: hands out the tasks started in it and, in concurrent dispatch mode,
+	 * claims the non-channeled tasks, which takes no cluster wide lock and thus is done even when the lock was contended
+	 * - contention is reported after the claim, carrying the number of tasks dispatched, so that the dispatcher still backs off
+	 *
+	 * @param tasksToRun         tasks started in the locked part of the round, by processor
+	 * @param concurrentDispatch true if concurrent dispatch mode is enabled
+	 * @param contention         contention of the locked part of the round, if any
+	 * @return number of tasks dispatched
+	 */
+	int completeDispatchRound(Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun, Map<String, ClusterTasksProcessorBase> availableProcessors, boolean concurrentDispatch, ClusterTasksLockContendedException contention) {
+		handOutTasks(tasksToRun);
+		int dispatched = tasksToRun.values().stream().mapToInt(Collection::size).sum();
+		if (concurrentDispatch) {
+			dispatched += claimAndDispatchNonChanneledTasks(availableProcessors);
+		}
+		if (contention != null) {
+			throw contention.withDispatched(dispatched);
+		}
+		return dispatched;
+	}
+
+	/**
+	 * Hands out the started tasks to their processors, having their bodies prefetched if enabled
+	 *
+	 * @param tasksToRun tasks started, by processor
+	 */
+	void handOutTasks(Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun) {
+		if (!tasksToRun.isEmpty() && isTaskBodiesPrefetchEnabled()) {
+			try {
+				prefetchTaskBodies(tasksToRun);
+			} catch (Throwable t) {
+				logger.warn(clusterTasksService.getInstanceID() + " failed to prefetch task bodies, workers will retrieve them on their own", t);
+			}
+		}
+		tasksToRun.forEach((processor, tasks) -> processor.handleTasks(tasks, this));
+	}
+
+	/**
+	 * Retrieves the bodies of the started tasks by a query per body partition (chunked), instead of a query per task by its worker
+	 * - tasks of the streaming processors and scheduled tasks (reinserted by their worker as is) are left for their workers
+	 * - shared body is retrieved once for all of the tasks referencing it
+	 *
+	 * @param tasksToRun tasks started, by processor
+	 */
+	private void prefetchTaskBodies(Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun) {
+		Map<Long, Map<Long, List<ClusterTaskImpl>>> tasksByBodyByPartition = new HashMap<>();
+		tasksToRun.forEach((processor, tasks) -> {
+			if (!processor.isBodyStreamingEnabled()) {
+				tasks.stream()
+						.filter(task -> task.partitionIndex != null && task.taskType != ClusterTaskType.SCHEDULED)
+						.forEach(task -> tasksByBodyByPartition
+								.computeIfAbsent(task.partitionIndex, partition -> new LinkedHashMap<>())
+								.computeIfAbsent(task.resolveBodyId(), bodyId -> new ArrayList<>())
+								.add(task));
+			}
+		});
+
+		JdbcTemplate jdbcTemplate = getJdbcTemplate();
+		tasksByBodyByPartition.forEach((partition, tasksByBody) -> {
+			List<Long> bodyIds = new ArrayList<>(tasksByBody.keySet());
+			for (int chunkStart = 0; chunkStart < bodyIds.size(); chunkStart += bodiesPrefetchChunkSize) {
+				//  padding nulls match no body
+				Object[] params = new Object[bodiesPrefetchChunkSize];
+				int[] paramTypes = new int[bodiesPrefetchChunkSize];
+				Arrays.fill(paramTypes, Types.BIGINT);
+				List<Long> chunk = bodyIds.subList(chunkStart, Math.min(chunkStart + bodiesPrefetchChunkSize, bodyIds.size()));
+				System.arraycopy(chunk.toArray(), 0, params, 0, chunk.size());
+				jdbcTemplate.query(selectTaskBodiesByPartitionSQLs.get(partition), params, paramTypes, (ResultSet resultSet) -> {
+					//  columns are read in order (streaming drivers require so)
+					long bodyId = resultSet.getLong(BODY_ID);
+					int format = resultSet.getInt(BODY_FORMAT);
+					Integer bodyFormat = resultSet.wasNull() ? null : format;
+					ClusterTaskBodyCodec.DecodedBody body = ClusterTaskBodyCodec.decode(readBodyText(resultSet), resultSet.getBytes(BODY_BINARY), bodyFormat);
+					for (ClusterTaskImpl task : tasksByBody.getOrDefault(bodyId, Collections.emptyList())) {
+						task.body = body.text;
+						task.binaryBody = body.binary;
+						task.bodyPrefetched = true;
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Registers channels of the channeled tasks to be inserted; invoked within the transaction of the tasks' insert, before the tasks themselves
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param tasks        tasks to be inserted
+	 */
+	void registerChannels(JdbcTemplate jdbcTemplate, Collection<ClusterTaskImpl> tasks) {
+		List<String> concurrencyKeys = tasks.stream()
+				.map(task -> task.concurrencyKey)
+				.filter(Objects::nonNull)
+				.distinct()
+				.sorted()
+				.collect(Collectors.toList());
+		if (!concurrencyKeys.isEmpty()) {
+			insertChannels(jdbcTemplate, concurrencyKeys);
+		}
+	}
+
+	/**
+	 * Marks the channels of the channeled tasks started as running those tasks; invoked within the transaction of the tasks' start
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param tasksToRun   tasks started, by processor
+	 */
+	void updateChannelsStarted(JdbcTemplate jdbcTemplate, Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun) {
+		List<Object[]> updateParams = tasksToRun.values().stream()
+				.flatMap(Collection::stream)
+				.filter(task -> task.concurrencyKey != null)
+				.sorted(Comparator.comparing(task -> task.concurrencyKey))
+				.map(task -> new Object[]{task.id, task.concurrencyKey})
+				.collect(Collectors.toList());
+		if (!updateParams.isEmpty()) {
+			jdbcTemplate.batchUpdate(updateChannelStartedSQL, updateParams, new int[]{Types.BIGINT, Types.VARCHAR});
+		}
+	}
+
+	/**
+	 * Builds params of the select for update SQL: processor types of the channeled part (padded with nulls up to the params total),
+	 * followed, if capped (non-channeled part included), by the processor types of the non-channeled part and the pairs of processor type and the maximum of its non-channeled tasks to be selected
+	 * - the maximum is the number of the free workers plus one, so that the backlog (tasks left behind for the lack of workers) is still noticed
+	 *
+	 * @param availableProcessors processors, that their tasks are to be dispatched
+	 * @param paramsTotal         number of the processor types params in the SQL
+	 * @param capped              true if the SQL caps the non-channeled tasks per processor type
+	 * @return params of the select for update SQL
+	 */
+	Object[] buildSelectForUpdateTasksParams(Map<String, ClusterTasksProcessorBase> availableProcessors, int paramsTotal, boolean capped) {
+		Object[] params = new Object[capped ? paramsTotal * 4 : paramsTotal];
+		int index = 0;
+		for (String processorType : availableProcessors.keySet()) {
+			params[index] = processorType;
+			if (capped) {
+				params[paramsTotal + index] = processorType;
+				params[paramsTotal * 2 + index * 2] = processorType;
+				params[paramsTotal * 2 + index * 2 + 1] = availableProcessors.get(processorType).getAvailableWorkers() + 1;
+			}
+			index++;
+		}
+		return params;
+	}
+
+	int[] buildSelectForUpdateTasksParamTypes(int paramsTotal, boolean capped, int processorTypeParamType) {
+		int[] paramTypes = new int[capped ? paramsTotal * 4 : paramsTotal];
+		for (int i = 0; i < paramsTotal; i++) {
+			paramTypes[i] = processorTypeParamType;
+			if (capped) {
+				paramTypes[paramsTotal + i] = processorTypeParamType;
+				paramTypes[paramsTotal * 2 + i * 2] = processorTypeParamType;
+				paramTypes[paramsTotal * 2 + i * 2 + 1] = Types.INTEGER;
+			}
+		}
+		return paramTypes;
+	}
+
+	/**
+	 * @param processorTypes processor types, that their tasks are to be dispatched
+	 * @return dispatch lock stripes to be taken, distinct and ascending, so that the stripes are always taken in the same order (no deadlocks)
+	 */
+	List<Integer> resolveDispatchLockStripes(Collection<String> processorTypes) {
+		return processorTypes.stream()
+				.map(processorType -> Math.floorMod(processorType.hashCode(), dispatchLockStripes))
+				.distinct()
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	private long resolveEnqueueSignalPollInterval() {
+		try {
+			int interval = serviceConfigurer.getEnqueueSignalPollInterval();
+			return interval <= 0 ? 0 : Math.max(interval, minEnqueueSignalPollInterval);
+		} catch (Throwable t) {
+			logger.error("failed to get enqueue signal poll interval from hosting application, polling disabled", t);
+			return 0;
+		}
+	}
+
+	private int resolveDispatchLockStripesNumber() {
+		try {
+			int stripes = serviceConfigurer.getDispatchLockStripes();
+			if (stripes < 1) {
+				logger.warn("invalid number of dispatch lock stripes (" + stripes + "), falling back to the single cluster wide lock");
+				return 1;
+			}
+			return Math.min(stripes, maxDispatchLockStripes);
+		} catch (Throwable t) {
+			logger.error("failed to get number of dispatch lock stripes from hosting application, falling back to the single cluster wide lock", t);
+			return 1;
+		}
+	}
+
+	/**
+	 * @param dae failure of a try-lock statement
+	 * @return true if the failure means that the lock is held by another node (for the DBs failing the try-lock instead of reporting it)
+	 */
+	boolean isResourceBusy(DataAccessException dae) {
+		return false;
+	}
+
+	/**
+	 * @param lockName name of the lock found held by another node
+	 * @return exception to be thrown, having the contention counted
+	 */
+	ClusterTasksLockContendedException lockContended(String lockName) {
+		lockContentions.labels(clusterTasksService.getInstanceID(), lockName).inc();
+		return new ClusterTasksLockContendedException(lockName);
+	}
+
+	boolean isTaskBodiesPrefetchEnabled() {
+		try {
+			return serviceConfigurer.isTaskBodiesPrefetchEnabled();
+		} catch (Throwable t) {
+			logger.error("failed to get task bodies prefetch mode from hosting application, falling back to the bodies retrieved by the workers", t);
+			return false;
+		}
+	}
+
+	boolean isOptimisticDispatchEnabled() {
+		try {
+			return serviceConfigurer.isOptimisticDispatchEnabled();
+		} catch (Throwable t) {
+			logger.error("failed to get optimistic dispatch mode from hosting application, falling back to the dispatch under the cluster wide lock", t);
+			return false;
+		}
+	}
+
+	boolean isSingleStatementClaimEnabled() {
+		try {
+			return serviceConfigurer.isSingleStatementClaimEnabled();
+		} catch (Throwable t) {
+			logger.error("failed to get single statement claim mode from hosting application, falling back to the separate select and update of the claimed tasks", t);
+			return false;
+		}
+	}
+
+	boolean isConcurrentDispatchEnabled() {
+		try {
+			return serviceConfigurer.isConcurrentDispatchEnabled();
+		} catch (Throwable t) {
+			logger.error("failed to get concurrent dispatch mode from hosting application, falling back to the dispatch under the cluster wide lock", t);
+			return false;
+		}
+	}
+
 	@Override
 	public void updateScheduledTaskInterval(String scheduledTaskType, long newTaskRunInterval) {
 		String sql = getUpdateScheduledTaskIntervalSQL();
@@ -250,11 +1051,23 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 				String[] sqls = getSelectReRunnableStaledTasksSQL();
 				String selectStaledSQL;
 				if (sqls.length > 1) {
-					jdbcTemplate.execute(sqls[0]);
-					selectStaledSQL = sqls[1];
 					if (sqls.length > 2) {
 						releaseLock = sqls[2];
 					}
+					//  try-lock: should another node be collecting right now, this round is skipped
+					Integer lockAcquired;
+					try {
+						lockAcquired = jdbcTemplate.queryForObject(sqls[0], Integer.class);
+					} catch (DataAccessException dae) {
+						if (isResourceBusy(dae)) {
+							throw lockContended(GC_LOCK);
+						}
+						throw dae;
+					}
+					if (lockAcquired == null || lockAcquired != 1) {
+						throw lockContended(GC_LOCK);
+					}
+					selectStaledSQL = sqls[1];
 				} else {
 					selectStaledSQL = sqls[0];
 				}
@@ -277,6 +1090,16 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 				if (removed > 0) {
 					logger.info("found and removed " + removed + " staled task/s");
 				}
+
+				//  maintain channels: remove the ones having no tasks, restore the ones missing (inserted concurrently with the removal or by the former versions)
+				int channelsRemoved = jdbcTemplate.update(removeEmptyChannelsSQL);
+				int channelsRestored = jdbcTemplate.update(getInsertMissingChannelsSQL());
+				if (logger.isDebugEnabled()) {
+					logger.debug("removed " + channelsRemoved + " empty channel/s, restored " + channelsRestored + " missing channel/s");
+				}
+			} catch (ClusterTasksLockContendedException lce) {
+				transactionStatus.setRollbackOnly();
+				logger.debug("skipping staled tasks handling: " + lce.getMessage());
 			} catch (Exception e) {
 				transactionStatus.setRollbackOnly();
 				throw new CtsGeneralFailure("failed to cleanup cluster tasks", e);
@@ -392,6 +1215,140 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 		return result != null ? result : 0;
 	}
 
+	/**
+	 * Resolves which of the tasks were actually inserted, given the update counts of the metadata batch insert
+	 * - update counts not reported by the driver (SUCCESS_NO_INFO) are resolved by looking up the tasks by their IDs,
+	 * which is valid only for the tasks having IDs assigned before the insert
+	 *
+	 * @param jdbcTemplate JDBC template to work with
+	 * @param tasks        tasks, that were inserted
+	 * @param updateCounts update counts of the metadata batch insert, corresponding to the list of the tasks
+	 * @return array, corresponding to the list of the tasks, having true for each inserted task
+	 */
+	boolean[] resolveInsertedTasks(JdbcTemplate jdbcTemplate, List<ClusterTaskImpl> tasks, int[] updateCounts) {
+		if (updateCounts.length != tasks.size()) {
+			throw new IllegalStateException("expected to get " + tasks.size() + " update counts, yet got " + updateCounts.length);
+		}
+
+		boolean[] result = new boolean[tasks.size()];
+		List<Long> unresolvedIDs = new ArrayList<>();
+		for (int i = 0; i < updateCounts.length; i++) {
+			if (updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+				unresolvedIDs.add(tasks.get(i).id);
+			} else {
+				result[i] = updateCounts[i] > 0;
+			}
+		}
+
+		if (!unresolvedIDs.isEmpty()) {
+			Set<Long> insertedIDs = new HashSet<>();
+			int[] paramTypes = new int[selectTaskIDsByIDsBulkSize];
+			Arrays.fill(paramTypes, Types.BIGINT);
+			for (int index = 0; index < unresolvedIDs.size(); index += selectTaskIDsByIDsBulkSize) {
+				Object[] params = new Object[selectTaskIDsByIDsBulkSize];
+				List<Long> bulk = unresolvedIDs.subList(index, Math.min(unresolvedIDs.size(), index + selectTaskIDsByIDsBulkSize));
+				System.arraycopy(bulk.toArray(), 0, params, 0, bulk.size());
+				insertedIDs.addAll(jdbcTemplate.queryForList(selectTaskIDsByIDsSQL, params, paramTypes, Long.class));
+			}
+			for (int i = 0; i < updateCounts.length; i++) {
+				if (updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+					result[i] = insertedIDs.contains(tasks.get(i).id);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private boolean[] storeTasksBatch(List<ClusterTaskImpl> tasks) {
+		try {
+			boolean[] result = getTransactionTemplate().execute(transactionStatus -> {
+				registerChannels(getJdbcTemplate(), tasks);
+				return insertTasks(getJdbcTemplate(), tasks);
+			});
+			if (result == null || result.length != tasks.size()) {
+				throw new IllegalStateException("expected to get insert results for " + tasks.size() + " tasks");
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("successfully processed batch of " + tasks.size() + " tasks");
+			}
+			return result;
+		} catch (DuplicateKeyException dke) {
+			logger.info(clusterTasksService.getInstanceID() + " failed to persist batch of " + tasks.size() + " tasks due to uniqueness violation, falling back to per task persistence; specifically: " + dke.getMostSpecificCause().getMessage());
+			return null;
+		} catch (Exception e) {
+			logger.warn(clusterTasksService.getInstanceID() + " failed to persist batch of " + tasks.size() + " tasks, falling back to per task persistence", e);
+			return null;
+		}
+	}
+
+	private ClusterTaskPersistenceResult storeTask(ClusterTaskImpl task) {
+		return getTransactionTemplate().execute(transactionStatus -> {
+			try {
+				registerChannels(getJdbcTemplate(), Collections.singletonList(task));
+				if (insertTask(getJdbcTemplate(), task)) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("successfully created " + task);
+					}
+					return new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.SUCCESS);
+				} else {
+					if (logger.isDebugEnabled()) {
+						logger.debug(clusterTasksService.getInstanceID() + " rejected " + task + " due to uniqueness violation");
+					}
+					return new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE);
+				}
+			} catch (DuplicateKeyException dke) {
+				transactionStatus.setRollbackOnly();
+				logger.info(clusterTasksService.getInstanceID() + " rejected " + task + " due to uniqueness violation; specifically: " + dke.getMostSpecificCause().getMessage());
+				return new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE);
+			} catch (Exception e) {
+				transactionStatus.setRollbackOnly();
+				logger.error(clusterTasksService.getInstanceID() + " failed to persist " + task, e);
+				return new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNEXPECTED_FAILURE);
+			}
+		});
+	}
+
+	private long getUniquenessRejectionsCacheTTL() {
+		try {
+			return Math.max(0, serviceConfigurer.getUniquenessRejectionsCacheTTL());
+		} catch (Throwable t) {
+			logger.error("failed to get uniqueness rejections cache TTL from hosting application, the cache is disabled", t);
+			return 0;
+		}
+	}
+
+	//  scheduled tasks are never served from the cache, since their re-insert MUST reach the DB
+	private boolean isRecentlyRejected(ClusterTaskImpl task) {
+		if (task.taskType == ClusterTaskType.SCHEDULED) {
+			return false;
+		}
+		String key = task.processorType + "|" + task.uniquenessKey;
+		Long expiry = recentlyRejectedTasks.get(key);
+		if (expiry == null) {
+			return false;
+		} else if (expiry > System.currentTimeMillis()) {
+			return true;
+		} else {
+			recentlyRejectedTasks.remove(key, expiry);
+			return false;
+		}
+	}
+
+	private void rememberRejected(ClusterTaskImpl task, long ttl) {
+		if (task.taskType == ClusterTaskType.SCHEDULED) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if (recentlyRejectedTasks.size() >= recentlyRejectedTasksMaxSize) {
+			recentlyRejectedTasks.values().removeIf(expiry -> expiry <= now);
+			if (recentlyRejectedTasks.size() >= recentlyRejectedTasksMaxSize) {
+				return;
+			}
+		}
+		recentlyRejectedTasks.put(task.processorType + "|" + task.uniquenessKey, now + ttl);
+	}
+
 	JdbcTemplate getJdbcTemplate() {
 		if (jdbcTemplate == null) {
 			try {
@@ -425,10 +1382,14 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 	}
 
 	List<ClusterTaskImpl> tasksMetadataReader(ResultSet resultSet) throws SQLException {
+		return limitedTasksMetadataReader(resultSet, Integer.MAX_VALUE);
+	}
+
+	List<ClusterTaskImpl> limitedTasksMetadataReader(ResultSet resultSet, int maxTasks) throws SQLException {
 		List<ClusterTaskImpl> result = new LinkedList<>();
 		ClusterTaskImpl tmpTask;
 		Long tmpLong;
-		while (resultSet.next()) {
+		while (result.size() < maxTasks && resultSet.next()) {
 			try {
 				tmpTask = new ClusterTaskImpl();
 				tmpTask.id = resultSet.getLong(META_ID);
@@ -446,6 +1407,12 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 				if (!resultSet.wasNull()) {
 					tmpTask.partitionIndex = tmpLong;
 				}
+				tmpLong = resultSet.getLong(META_BODY_ID);
+				if (!resultSet.wasNull()) {
+					tmpTask.bodyId = tmpLong;
+				}
+				tmpTask.body = resultSet.getString(META_BODY_INLINE);
+				tmpTask.bodyInline = tmpTask.body != null;
 
 				result.add(tmpTask);
 			} catch (Exception e) {
@@ -456,14 +1423,26 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 		return result;
 	}
 
-	String rowToTaskBodyReader(ResultSet resultSet) throws SQLException {
-		String result = null;
+	/**
+	 * @param resultSet result set positioned on the body row
+	 * @return content of the text body column; reads it as CLOB by default
+	 * @throws SQLException on failure to read the column
+	 */
+	String readBodyText(ResultSet resultSet) throws SQLException {
+		Clob clobBody = resultSet.getClob(BODY);
+		return clobBody == null ? null : clobBody.getSubString(1, (int) clobBody.length());
+	}
+
+	ClusterTaskBodyCodec.DecodedBody rowToTaskBodyReader(ResultSet resultSet) throws SQLException {
+		ClusterTaskBodyCodec.DecodedBody result = null;
 		if (resultSet.next()) {
 			try {
-				Clob clobBody = resultSet.getClob(BODY);
-				if (clobBody != null) {
-					result = clobBody.getSubString(1, (int) clobBody.length());
-				}
+				int format = resultSet.getInt(BODY_FORMAT);
+				Integer bodyFormat = resultSet.wasNull() ? null : format;
+				String textBody = readBodyText(resultSet);
+				//  binary content is read directly into the array, with no intermediate LOB copy
+				byte[] binaryBody = resultSet.getBytes(BODY_BINARY);
+				result = ClusterTaskBodyCodec.decode(textBody, binaryBody, bodyFormat);
 			} catch (SQLException sqle) {
 				logger.error("failed to read cluster task body", sqle);
 				throw new CtsSqlFailure("failed to read cluster task body", sqle);
@@ -473,6 +1452,74 @@ abstract class ClusterTasksDbDataProvider implements ClusterTasksDataProvider {
 		return result;
 	}
 
+	@Override
+	public <T> T streamTaskBody(Long taskId, Long partitionIndex, ClusterTask.BodyReader<T> reader) throws IOException {
+		try {
+			return getJdbcTemplate().query(getSelectTaskBodySQL(partitionIndex), new Object[]{taskId}, new int[]{Types.BIGINT}, resultSet -> {
+				try {
+					if (!resultSet.next()) {
+						return reader.read(null, null);
+					}
+					int format = resultSet.getInt(BODY_FORMAT);
+					return ClusterTaskBodyCodec.stream(
+							resultSet.wasNull() ? null : format,
+							() -> resultSet.getCharacterStream(BODY),
+							() -> resultSet.getBinaryStream(BODY_BINARY),
+							reader);
+				} catch (IOException ioe) {
+					throw new UncheckedIOException(ioe);
+				}
+			});
+		} catch (UncheckedIOException uioe) {
+			throw uioe.getCause();
+		} catch (DataAccessException dae) {
+			logger.error(clusterTasksService.getInstanceID() + " failed to stream task's body", dae);
+			throw new CtsGeneralFailure("failed to stream task's body", dae);
+		}
+	}
+
+	/**
+	 * Builds parameters for the body insert statement: ID, text body, binary body, body format
+	 *
+	 * @param task task, that its body is to be inserted; MUST have a body
+	 * @return insert parameters
+	 */
+	Object[] buildInsertTaskBodyParams(ClusterTaskImpl task) {
+		ClusterTaskBodyCodec.EncodedBody encodedBody = ClusterTaskBodyCodec.encode(task, getTaskBodyCompressionThreshold());
+		return new Object[]{task.id, encodedBody.text, encodedBody.binary, encodedBody.format};
+	}
+
+	/**
+	 * Marks the tasks having text bodies shorter than the inline threshold to have their bodies stored inline, in the metadata row
+	 * - tasks referencing a shared body are never inlined
+	 *
+	 * @param tasks tasks to be stored
+	 */
+	void resolveInlineBodies(ClusterTaskImpl[] tasks) {
+		int inlineThreshold = Math.min(getTaskBodyInlineThreshold(), maxInlineBodyLength + 1);
+		for (ClusterTaskImpl task : tasks) {
+			task.bodyInline = task.body != null && task.bodyId == null && task.body.length() < inlineThreshold;
+		}
+	}
+
+	int getTaskBodyInlineThreshold() {
+		try {
+			return serviceConfigurer.getTaskBodyInlineThreshold();
+		} catch (Throwable t) {
+			logger.error("failed to get task body inline threshold from hosting application, the inlining is disabled", t);
+			return 0;
+		}
+	}
+
+	int getTaskBodyCompressionThreshold() {
+		try {
+			return serviceConfigurer.getTaskBodyCompressionThreshold();
+		} catch (Throwable t) {
+			logger.error("failed to get task body compression threshold from hosting application, the compression is disabled", t);
+			return 0;
+		}
+	}
+
 	long resolveBodyTablePartitionIndex() {
 		int hour = ZonedDateTime.now(ZoneOffset.UTC).getHour();
 		return hour / (24 / PARTITIONS_NUMBER);
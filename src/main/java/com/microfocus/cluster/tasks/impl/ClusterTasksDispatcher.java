@@ -15,14 +15,31 @@ import org.slf4j.LoggerFactory;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatcher of the tasks to the processors, adapting its cadence to the queue state:
+ * - round, that dispatched tasks while workers are still available, is followed by the next one right away
+ * - round, that found nothing to dispatch, is followed by an exponentially growing interval, up to a ceiling
+ * - round, that found the dispatch lock held by another node, is retried shortly, after a random (jittered) interval
+ * - otherwise the regular interval is used; processor's worker freed while its tasks are backlogged wakes up the dispatcher
+ */
 
 final class ClusterTasksDispatcher extends ClusterTasksInternalWorker {
 	private final Logger logger = LoggerFactory.getLogger(ClusterTasksDispatcher.class);
 	private final static Integer DEFAULT_DISPATCH_INTERVAL = 1023;
+	private final static Integer MAX_DISPATCH_INTERVAL = 4095;
+	private final static int MIN_CONTENDED_RETRY_INTERVAL = 50;
+	private final static int MAX_CONTENDED_RETRY_INTERVAL = 250;
 	private final static Counter dispatchErrors;
 	private final static Summary dispatchDurationSummary;
 
 	private final String RUNTIME_INSTANCE_ID;
+	private int idleRounds = 0;
+	private boolean dispatchRightAway = false;
+	private boolean dispatchContended = false;
 
 	static {
 		dispatchErrors = Counter.build()
@@ -45,6 +62,8 @@ final class ClusterTasksDispatcher extends ClusterTasksInternalWorker {
 	@Override
 	void performWorkCycle() {
 		Summary.Timer dispatchTimer = dispatchDurationSummary.labels(RUNTIME_INSTANCE_ID).startTimer();
+		AtomicInteger dispatched = new AtomicInteger(0);
+		AtomicBoolean contended = new AtomicBoolean(false);
 		try {
 			configurer.getDataProvidersMap().forEach((providerType, provider) -> {
 				if (provider.isReady()) {
@@ -56,7 +75,11 @@ final class ClusterTasksDispatcher extends ClusterTasksInternalWorker {
 					});
 					if (!availableProcessorsOfDPType.isEmpty()) {
 						try {
-							provider.retrieveAndDispatchTasks(availableProcessorsOfDPType);
+							dispatched.addAndGet(provider.retrieveAndDispatchTasks(availableProcessorsOfDPType));
+						} catch (ClusterTasksLockContendedException lce) {
+							dispatched.addAndGet(lce.getDispatched());
+							contended.set(true);
+							logger.debug("skipping dispatch round in " + providerType + ": " + lce.getMessage());
 						} catch (Throwable t) {
 							dispatchErrors.labels(RUNTIME_INSTANCE_ID).inc();
 							logger.error("failed to dispatch tasks in " + providerType + "; total failures: " + dispatchErrors.labels(RUNTIME_INSTANCE_ID).get(), t);
@@ -70,11 +93,35 @@ final class ClusterTasksDispatcher extends ClusterTasksInternalWorker {
 			dispatchErrors.labels(RUNTIME_INSTANCE_ID).inc();
 			logger.error("failure within dispatch iteration; total failures: " + dispatchErrors.labels(RUNTIME_INSTANCE_ID).get(), t);
 		} finally {
+			ClusterTasksWorkersBudget sharedWorkersBudget = configurer.getSharedWorkersBudget();
+			if (sharedWorkersBudget != null) {
+				sharedWorkersBudget.endRound();
+			}
 			dispatchTimer.observeDuration();
 		}
+
+		dispatchContended = contended.get();
+		if (dispatched.get() > 0) {
+			idleRounds = 0;
+			dispatchRightAway = configurer.getProcessorsMap().values().stream().anyMatch(ClusterTasksProcessorBase::hasAvailableWorkers);
+		} else {
+			//  contended round tells nothing about the queue, so it does not count as idle
+			if (!dispatchContended) {
+				idleRounds = Math.min(idleRounds + 1, 8);
+			}
+			dispatchRightAway = false;
+		}
 	}
 
 	Integer getEffectiveBreathingInterval() {
-		return DEFAULT_DISPATCH_INTERVAL;
+		if (dispatchRightAway) {
+			return 0;
+		} else if (dispatchContended) {
+			return ThreadLocalRandom.current().nextInt(MIN_CONTENDED_RETRY_INTERVAL, MAX_CONTENDED_RETRY_INTERVAL);
+		} else if (idleRounds <= 1) {
+			return DEFAULT_DISPATCH_INTERVAL;
+		} else {
+			return Math.min(MAX_DISPATCH_INTERVAL, ((DEFAULT_DISPATCH_INTERVAL + 1) << (idleRounds - 1)) - 1);
+		}
 	}
 }
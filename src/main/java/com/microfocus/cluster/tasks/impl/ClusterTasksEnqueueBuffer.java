@@ -0,0 +1,227 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer of the asynchronous tasks enqueue flow
+ * - tasks of the concurrent callers are coalesced into a single storeTasks call per flush window or flush threshold, whichever comes first
+ * - buffer is bounded by the number of the pending tasks; callers submitting beyond the capacity are blocked until the space is freed (backpressure)
+ */
+
+final class ClusterTasksEnqueueBuffer {
+	private static final Logger logger = LoggerFactory.getLogger(ClusterTasksEnqueueBuffer.class);
+	private static final Gauge pendingTasksGauge;
+	private static final Summary flushSizeSummary;
+
+	static final int DEFAULT_CAPACITY = 10000;
+	static final int DEFAULT_FLUSH_THRESHOLD = 1000;
+	static final long DEFAULT_FLUSH_WINDOW_MILLIS = 10;
+	private static final long HALT_CHECK_INTERVAL_MILLIS = 100;
+
+	private final ClusterTasksDataProvider dataProvider;
+	private final String runtimeInstanceId;
+	private final int capacity;
+	private final int flushThreshold;
+	private final long flushWindowMillis;
+	private final Semaphore freeCapacity;
+	private final BlockingQueue<EnqueueRequest> requests = new LinkedBlockingQueue<>();
+	private final CompletableFuture<Object> haltPromise = new CompletableFuture<>();
+	private volatile boolean halting = false;
+
+	static {
+		pendingTasksGauge = Gauge.build()
+				.name("cts_enqueue_buffer_pending_tasks")
+				.help("CTS asynchronous enqueue buffer - number of tasks waiting to be flushed")
+				.labelNames("runtime_instance_id")
+				.register();
+		flushSizeSummary = Summary.build()
+				.name("cts_enqueue_buffer_flush_size")
+				.help("CTS asynchronous enqueue buffer - number of tasks stored per flush")
+				.labelNames("runtime_instance_id")
+				.register();
+	}
+
+	ClusterTasksEnqueueBuffer(ClusterTasksDataProvider dataProvider, String runtimeInstanceId) {
+		this(dataProvider, runtimeInstanceId, DEFAULT_CAPACITY, DEFAULT_FLUSH_THRESHOLD, DEFAULT_FLUSH_WINDOW_MILLIS);
+	}
+
+	ClusterTasksEnqueueBuffer(ClusterTasksDataProvider dataProvider, String runtimeInstanceId, int capacity, int flushThreshold, long flushWindowMillis) {
+		if (dataProvider == null) {
+			throw new IllegalArgumentException("data provider MUST NOT be null");
+		}
+		if (capacity <= 0 || flushThreshold <= 0 || flushWindowMillis < 0) {
+			throw new IllegalArgumentException("capacity and flush threshold MUST be positive, flush window MUST NOT be negative");
+		}
+		this.dataProvider = dataProvider;
+		this.runtimeInstanceId = runtimeInstanceId;
+		this.capacity = capacity;
+		this.flushThreshold = flushThreshold;
+		this.flushWindowMillis = flushWindowMillis;
+		this.freeCapacity = new Semaphore(capacity, true);
+
+		new ClusterTasksEnqueueFlusherThreadFactory()
+				.newThread(this::flushLoop)
+				.start();
+	}
+
+	/**
+	 * Submits tasks to be stored with the next flush
+	 * - blocks the calling thread while the buffer is full
+	 *
+	 * @param tasks tasks to be stored; MUST NOT be null nor empty
+	 * @return promise resolved with the enqueue results, corresponding to the array of the tasks, once the flush is done
+	 */
+	CompletableFuture<ClusterTaskPersistenceResult[]> submit(ClusterTaskImpl[] tasks) {
+		if (halting) {
+			throw new IllegalStateException("enqueue buffer is halted, no more tasks accepted");
+		}
+
+		//  a single oversized submission takes the whole capacity, but not more, so that it won't block forever
+		int permits = Math.min(tasks.length, capacity);
+		try {
+			freeCapacity.acquire(permits);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for enqueue buffer capacity", ie);
+		}
+
+		EnqueueRequest request = new EnqueueRequest(tasks, permits);
+		pendingTasksGauge.labels(runtimeInstanceId).inc(tasks.length);
+		requests.add(request);
+
+		//  halt could have been completed concurrently, in which case the request won't be picked up by the flusher anymore
+		if (haltPromise.isDone() && requests.remove(request)) {
+			reject(request);
+		}
+		return request.promise;
+	}
+
+	/**
+	 * Halts the buffer: no more tasks are accepted, the ones already submitted are flushed
+	 *
+	 * @return promise resolved when the last flush is done
+	 */
+	CompletableFuture<Object> halt() {
+		halting = true;
+		return haltPromise;
+	}
+
+	private void flushLoop() {
+		List<EnqueueRequest> batch = new ArrayList<>();
+		try {
+			while (!halting || !requests.isEmpty()) {
+				try {
+					EnqueueRequest first = requests.poll(HALT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+					if (first == null) {
+						continue;
+					}
+
+					//  collect more requests till the flush window is over or flush threshold is reached
+					batch.add(first);
+					int batchSize = first.tasks.length;
+					long flushDeadline = System.currentTimeMillis() + flushWindowMillis;
+					while (batchSize < flushThreshold) {
+						long timeLeft = flushDeadline - System.currentTimeMillis();
+						EnqueueRequest next = timeLeft > 0 ? requests.poll(timeLeft, TimeUnit.MILLISECONDS) : requests.poll();
+						if (next == null) {
+							break;
+						}
+						batch.add(next);
+						batchSize += next.tasks.length;
+					}
+
+					flush(batch, batchSize);
+				} catch (InterruptedException ie) {
+					logger.warn("interrupted while collecting tasks to flush", ie);
+				} finally {
+					batch.clear();
+				}
+			}
+		} finally {
+			logger.info("enqueue buffer of " + runtimeInstanceId + " halted");
+			haltPromise.complete(null);
+			EnqueueRequest stranded;
+			while ((stranded = requests.poll()) != null) {
+				reject(stranded);
+			}
+		}
+	}
+
+	private void reject(EnqueueRequest request) {
+		freeCapacity.release(request.permits);
+		pendingTasksGauge.labels(runtimeInstanceId).dec(request.tasks.length);
+		request.promise.completeExceptionally(new IllegalStateException("enqueue buffer is halted, no more tasks accepted"));
+	}
+
+	private void flush(List<EnqueueRequest> batch, int batchSize) {
+		ClusterTaskImpl[] tasks = new ClusterTaskImpl[batchSize];
+		int offset = 0;
+		for (EnqueueRequest request : batch) {
+			System.arraycopy(request.tasks, 0, tasks, offset, request.tasks.length);
+			offset += request.tasks.length;
+		}
+
+		try {
+			ClusterTaskPersistenceResult[] results = dataProvider.storeTasks(tasks);
+			offset = 0;
+			for (EnqueueRequest request : batch) {
+				ClusterTaskPersistenceResult[] requestResults = new ClusterTaskPersistenceResult[request.tasks.length];
+				System.arraycopy(results, offset, requestResults, 0, requestResults.length);
+				offset += requestResults.length;
+				request.promise.complete(requestResults);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("flushed " + batchSize + " tasks of " + batch.size() + " enqueue requests");
+			}
+		} catch (Throwable t) {
+			logger.error("failed to flush " + batchSize + " tasks of " + batch.size() + " enqueue requests", t);
+			batch.forEach(request -> request.promise.completeExceptionally(t));
+		} finally {
+			batch.forEach(request -> freeCapacity.release(request.permits));
+			pendingTasksGauge.labels(runtimeInstanceId).dec(batchSize);
+			flushSizeSummary.labels(runtimeInstanceId).observe(batchSize);
+		}
+	}
+
+	private static final class EnqueueRequest {
+		private final ClusterTaskImpl[] tasks;
+		private final int permits;
+		private final CompletableFuture<ClusterTaskPersistenceResult[]> promise = new CompletableFuture<>();
+
+		private EnqueueRequest(ClusterTaskImpl[] tasks, int permits) {
+			this.tasks = tasks;
+			this.permits = permits;
+		}
+	}
+
+	private static final class ClusterTasksEnqueueFlusherThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread result = new Thread(runnable);
+			result.setName("CTS Enqueue Flusher; TID: " + result.getId());
+			result.setDaemon(true);
+			return result;
+		}
+	}
+}
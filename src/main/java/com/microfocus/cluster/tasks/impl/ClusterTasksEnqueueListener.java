@@ -0,0 +1,68 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener on the tasks enqueued by any node of the cluster
+ * - wakes up the dispatcher as soon as the tasks ready to run are signaled, so that those won't wait for the next dispatch round
+ * - the signal is a hint only, the dispatcher keeps its regular interval regardless
+ */
+
+final class ClusterTasksEnqueueListener extends ClusterTasksInternalWorker {
+	private final Logger logger = LoggerFactory.getLogger(ClusterTasksEnqueueListener.class);
+	private final static long MAX_AWAIT_INTERVAL = 1000;
+	private final static int DISABLED_BREATHING_INTERVAL = 1000;
+	private final static int ENABLED_BREATHING_INTERVAL = 1;
+
+	private final ClusterTasksDispatcher dispatcher;
+	private volatile boolean awaiting = false;
+
+	ClusterTasksEnqueueListener(ClusterTasksServiceImpl.SystemWorkersConfigurer configurer, ClusterTasksDispatcher dispatcher) {
+		super(configurer);
+		if (dispatcher == null) {
+			throw new IllegalArgumentException("dispatcher MUST NOT be null");
+		}
+		this.dispatcher = dispatcher;
+	}
+
+	@Override
+	void performWorkCycle() {
+		//  awaiting time is split between the providers, though typically there is only one
+		long awaitInterval = MAX_AWAIT_INTERVAL / Math.max(1, configurer.getDataProvidersMap().size());
+		configurer.getDataProvidersMap().forEach((providerType, provider) -> {
+			try {
+				if (provider.isReady()) {
+					if (provider.awaitTasksEnqueued(awaitInterval)) {
+						logger.debug("tasks enqueued signal received from " + providerType + ", waking up the dispatcher");
+						dispatcher.wakeUp();
+					}
+					awaiting = true;
+				}
+			} catch (Throwable t) {
+				logger.error("failed to await tasks enqueued signal from " + providerType, t);
+			}
+		});
+	}
+
+	//  the awaiting itself is the breathing, unless the service is disabled or no provider is awaitable
+	@Override
+	Integer getEffectiveBreathingInterval() {
+		boolean wasAwaiting = awaiting;
+		awaiting = false;
+		return wasAwaiting ? ENABLED_BREATHING_INTERVAL : DISABLED_BREATHING_INTERVAL;
+	}
+
+	@Override
+	void onHalted() {
+		configurer.getDataProvidersMap().values().forEach(ClusterTasksDataProvider::stopAwaitingTasksEnqueued);
+	}
+}
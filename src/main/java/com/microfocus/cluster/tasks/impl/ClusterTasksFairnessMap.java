@@ -0,0 +1,78 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last run time per concurrency key, used to order the channels fairly upon tasks selection
+ * - entries are kept in the order of their last touch, so that the least recently touched ones are evicted first
+ * - entries not touched longer than the TTL, as well as those exceeding the maximal size, are evicted; evicted key is as good as never touched,
+ * which is the highest priority anyway
+ */
+
+final class ClusterTasksFairnessMap {
+	static final int DEFAULT_MAX_SIZE = 10000;
+	static final long DEFAULT_TTL = 60 * 60 * 1000;
+
+	private final int maxSize;
+	private final long ttl;
+	private final LinkedHashMap<String, LastTouch> lastTouches = new LinkedHashMap<>();
+
+	ClusterTasksFairnessMap() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL);
+	}
+
+	ClusterTasksFairnessMap(int maxSize, long ttl) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("max size MUST be positive");
+		}
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+	}
+
+	synchronized void touch(String concurrencyKey, long now) {
+		//  re-inserted to move the key to the tail of the touch order
+		LastTouch lastTouch = lastTouches.remove(concurrencyKey);
+		if (lastTouch == null) {
+			lastTouch = new LastTouch();
+		}
+		lastTouch.time = now;
+		lastTouches.put(concurrencyKey, lastTouch);
+
+		Iterator<Map.Entry<String, LastTouch>> eldestFirst = lastTouches.entrySet().iterator();
+		while (eldestFirst.hasNext()) {
+			Map.Entry<String, LastTouch> eldest = eldestFirst.next();
+			if (lastTouches.size() > maxSize || now - eldest.getValue().time > ttl) {
+				eldestFirst.remove();
+			} else {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @param concurrencyKey concurrency key
+	 * @return last touch time of the key, 0 if never touched (or evicted)
+	 */
+	synchronized long getLastTouch(String concurrencyKey) {
+		LastTouch lastTouch = lastTouches.get(concurrencyKey);
+		return lastTouch == null ? 0 : lastTouch.time;
+	}
+
+	synchronized int size() {
+		return lastTouches.size();
+	}
+
+	private static final class LastTouch {
+		private long time;
+	}
+}
@@ -9,6 +9,7 @@ abstract class ClusterTasksInternalWorker implements Runnable {
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 	private final Object HALT_MONITOR = new Object();
 	private volatile CompletableFuture<Object> haltPromise;
+	private boolean wakeUpRequested = false;
 
 	final ClusterTasksServiceImpl.SystemWorkersConfigurer configurer;
 
@@ -40,9 +41,24 @@ abstract class ClusterTasksInternalWorker implements Runnable {
 
 			breathe();
 		}
+		onHalted();
 		haltPromise.complete(null);
 	}
 
+	//  hook for the workers holding resources to be released upon halt
+	void onHalted() {
+	}
+
+	/**
+	 * Cuts short the current breathing interval, or the next one, if called while the work cycle is in progress
+	 */
+	void wakeUp() {
+		synchronized (HALT_MONITOR) {
+			wakeUpRequested = true;
+			HALT_MONITOR.notify();
+		}
+	}
+
 	CompletableFuture<Object> halt() {
 		if (haltPromise == null) {
 			System.out.println(getClass().getSimpleName() + " of " + configurer.getInstanceID() + " is halting");
@@ -58,7 +74,10 @@ abstract class ClusterTasksInternalWorker implements Runnable {
 		try {
 			Integer maintenanceInterval = getEffectiveBreathingInterval();
 			synchronized (HALT_MONITOR) {
-				HALT_MONITOR.wait(maintenanceInterval);
+				if (!wakeUpRequested && haltPromise == null && maintenanceInterval > 0) {
+					HALT_MONITOR.wait(maintenanceInterval);
+				}
+				wakeUpRequested = false;
 			}
 		} catch (InterruptedException ie) {
 			logger.warn("interrupted while breathing between dispatch rounds", ie);
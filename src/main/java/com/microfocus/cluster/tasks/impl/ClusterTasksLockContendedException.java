@@ -0,0 +1,31 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+/**
+ * Thrown when a cluster wide lock is found to be held by another node; the caller is expected to skip the round or to retry shortly
+ */
+
+final class ClusterTasksLockContendedException extends RuntimeException {
+	private int dispatched;
+
+	ClusterTasksLockContendedException(String lockName) {
+		super(lockName + " lock is held by another node");
+	}
+
+	//  number of tasks dispatched in the round regardless of the contention (concurrent dispatch mode)
+	ClusterTasksLockContendedException withDispatched(int dispatched) {
+		this.dispatched = dispatched;
+		return this;
+	}
+
+	int getDispatched() {
+		return dispatched;
+	}
+}
@@ -103,7 +103,7 @@ final class ClusterTasksMaintainer extends ClusterTasksInternalWorker {
 				taskBodiesToRemove
 						.computeIfAbsent(dataProvider, dp -> new HashMap<>())
 						.computeIfAbsent(task.partitionIndex, pi -> new ArrayList<>())
-						.add(task.id);
+						.add(task.resolveBodyId());
 			}
 		}
 	}
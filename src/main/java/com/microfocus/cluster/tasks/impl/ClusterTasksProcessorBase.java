@@ -17,10 +17,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -33,20 +36,27 @@ public abstract class ClusterTasksProcessorBase {
 	private final Logger logger = LoggerFactory.getLogger(ClusterTasksProcessorBase.class);
 	private static final String NON_CONCURRENT_TASKS_GROUP_KEY = "NULL";
 	private static final Gauge threadsUtilizationGauge;
+	private static final Gauge workersLimitGauge;
+	private static final Gauge fairnessMapSizeGauge;
+	private static final OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
 	private static final Histogram foreignIsReadyToHandleTasksCallDuration;
 	private static final Histogram foreignIsTaskAbleToRunCallDuration;
 
 	private final String type;
 	private final ClusterTasksDataProviderType dataProviderType;
 	private final AtomicInteger availableWorkers = new AtomicInteger(0);
-	private final Map<String, Long> concurrencyKeysFairnessMap = new LinkedHashMap<>();
-	private int numberOfWorkersPerNode;
+	private final ClusterTasksFairnessMap concurrencyKeysFairnessMap = new ClusterTasksFairnessMap();
+	private volatile int numberOfWorkersPerNode;
 	private int minimalTasksTakeInterval;
 	private long lastTaskHandledLocalTime;
+	private volatile boolean backlogged;
 	protected long scheduledTaskRunInterval;
 	protected boolean forceUpdateSchedulingInterval;
 
 	private ExecutorService workersThreadPool;
+	private boolean virtualThreads;
+	private volatile ClusterTasksWorkersBudget sharedWorkersBudget;
+	private ClusterTasksWorkersLimitController workersLimitController;
 
 	@Autowired
 	private ClusterTasksServiceImpl clusterTasksService;
@@ -57,6 +67,16 @@ public abstract class ClusterTasksProcessorBase {
 				.help("CTS per-processor threads utilization")
 				.labelNames("processor_type")
 				.register();
+		workersLimitGauge = Gauge.build()
+				.name("cts_per_processor_workers_limit")
+				.help("CTS per-processor workers limit (may change in runtime)")
+				.labelNames("processor_type")
+				.register();
+		fairnessMapSizeGauge = Gauge.build()
+				.name("cts_per_processor_fairness_map_size")
+				.help("CTS per-processor number of concurrency keys tracked for fairness")
+				.labelNames("processor_type")
+				.register();
 		foreignIsReadyToHandleTasksCallDuration = Histogram.build()
 				.name("cts_foreign_is_ready_to_handle_tasks_duration")
 				.help("CTS foreign 'isReadyToHandleTasks' call duration")
@@ -82,10 +102,20 @@ public abstract class ClusterTasksProcessorBase {
 
 	@PostConstruct
 	private void initialize() {
-		workersThreadPool = Executors.newFixedThreadPool(numberOfWorkersPerNode, new CTPWorkersThreadFactory());
+		virtualThreads = isVirtualThreadsEnabled() && (workersThreadPool = createVirtualThreadsExecutor()) != null;
+		if (!virtualThreads) {
+			workersThreadPool = Executors.newFixedThreadPool(numberOfWorkersPerNode, new CTPWorkersThreadFactory());
+		}
 		availableWorkers.set(numberOfWorkersPerNode);
+		workersLimitGauge.labels(type).set(numberOfWorkersPerNode);
+
+		int maximalWorkersPerNode = getMaximalWorkersPerNodeInternal();
+		if (maximalWorkersPerNode > 0) {
+			workersLimitController = new ClusterTasksWorkersLimitController(numberOfWorkersPerNode, 1, maximalWorkersPerNode, System.currentTimeMillis());
+			logger.info(this.type + " workers auto scaling enabled, up to " + maximalWorkersPerNode + " workers per node");
+		}
 
-		logger.info(this.type + " initialized: data provider type: " + dataProviderType + "; worker threads per node: " + numberOfWorkersPerNode);
+		logger.info(this.type + " initialized: data provider type: " + dataProviderType + "; worker threads per node: " + numberOfWorkersPerNode + (virtualThreads ? " (virtual)" : ""));
 	}
 
 	//
@@ -133,6 +163,48 @@ public abstract class ClusterTasksProcessorBase {
 		this.minimalTasksTakeInterval = Math.max(minimalTasksTakeInterval, 0);
 	}
 
+	/**
+	 * sets the number of workers per node in runtime, with no redeploy
+	 * - when lowered, running tasks are not interrupted: new tasks are not taken until the busy workers drop below the new number
+	 * - when workers auto scaling is enabled (see 'getMaximalWorkersPerNode'), the number is capped by the maximal one and further managed by the service,
+	 * starting from the number set
+	 *
+	 * @param numberOfWorkersPerNode new number of workers per node, values below 1 are taken as 1
+	 */
+	protected final synchronized void setNumberOfWorkersPerNode(int numberOfWorkersPerNode) {
+		int newNumberOfWorkers = Math.max(1, numberOfWorkersPerNode);
+		ClusterTasksWorkersLimitController controller = workersLimitController;
+		if (controller != null) {
+			//  otherwise the controller would revert the number set to its own one upon the next evaluation
+			newNumberOfWorkers = controller.setLimit(newNumberOfWorkers);
+		}
+		int delta = newNumberOfWorkers - this.numberOfWorkersPerNode;
+		if (delta == 0) {
+			return;
+		}
+
+		//  own pool is resized in the order keeping the core size not above the maximum one; shared pool is never resized by the processor
+		ClusterTasksWorkersBudget budget = sharedWorkersBudget;
+		if (budget == null && workersThreadPool instanceof ThreadPoolExecutor) {
+			ThreadPoolExecutor ownWorkersPool = (ThreadPoolExecutor) workersThreadPool;
+			if (delta > 0) {
+				ownWorkersPool.setMaximumPoolSize(newNumberOfWorkers);
+				ownWorkersPool.setCorePoolSize(newNumberOfWorkers);
+			} else {
+				ownWorkersPool.setCorePoolSize(newNumberOfWorkers);
+				ownWorkersPool.setMaximumPoolSize(newNumberOfWorkers);
+			}
+		}
+		this.numberOfWorkersPerNode = newNumberOfWorkers;
+		availableWorkers.addAndGet(delta);
+		if (budget != null) {
+			budget.updateMaximum(type, newNumberOfWorkers);
+		}
+
+		workersLimitGauge.labels(type).set(newNumberOfWorkers);
+		logger.info(type + " worker threads per node changed to " + newNumberOfWorkers);
+	}
+
 	/**
 	 * gets a processor's status as of ability to handle tasks in general (not specific one)
 	 * - call to this API performed each dispatch cycle BEFORE even going to DB
@@ -158,6 +230,70 @@ public abstract class ClusterTasksProcessorBase {
 		return true;
 	}
 
+	/**
+	 * allows implementations to opt-in for streaming of the task bodies
+	 * - when enabled, task bodies are NOT pre-fetched before the processTask is called, getBody/getBinaryBody will return NULL
+	 * - processor is expected to read the bodies via ClusterTask#readBody, which streams them directly from the storage
+	 * - meant for processors handling very large bodies, so that the memory consumption won't depend on the body size
+	 *
+	 * @return true to stream the task bodies, false [default] to pre-fetch them
+	 */
+	protected boolean isBodyStreamingEnabled() {
+		return false;
+	}
+
+	/**
+	 * allows implementations to opt-in for running each task on its own virtual thread (JDK 21 and above)
+	 * - meant for I/O bound processors, which need many concurrent workers with no cost of a platform thread (stack) per worker
+	 * - the number of concurrently running tasks is still bounded by the number of workers per node, as given upon construction
+	 * - on JDKs having no virtual threads the regular pool of platform threads is used
+	 * - called once, upon processor's initialization
+	 *
+	 * @return true to run the tasks on virtual threads, false [default] to run them on the pool of platform threads
+	 */
+	protected boolean isVirtualThreadsEnabled() {
+		return false;
+	}
+
+	/**
+	 * allows implementations to opt-in for channel leases
+	 * - worker finishing a channeled task claims the next task of the same channel and runs it right away, with no dispatch round in between
+	 * - the continuation is limited to the given number of follow-up tasks claimed after the dispatched one (lease of 1 runs 2 tasks in a row), then the channel is left to the dispatch (for fairness)
+	 * - each continued task is a regular RUNNING task of this node: should the node go down, the channel is released as with any task of the gone node
+	 * - the next task is claimed only while the processor is ready to handle tasks (see {@link #isReadyToHandleTasks()}); processors having a minimal tasks take interval are not continued at all
+	 *
+	 * @return maximal number of follow-up tasks of the channel claimed by a worker after the dispatched one, 0 [default] disables the leases
+	 */
+	protected int getChannelLeaseLength() {
+		return 0;
+	}
+
+	/**
+	 * allows implementations to secure a minimal number of workers, when running on the node wide shared workers pool
+	 * - the guaranteed workers are never taken by the other processors, even when this processor is idle
+	 * - the number of workers per node, as given upon construction, remains the maximum this processor may take
+	 * - has no effect when the shared workers pool is not configured (see configurer's 'getSharedWorkersPoolSize')
+	 * - called once, upon attachment to the shared workers pool
+	 *
+	 * @return minimal number of workers reserved for this processor, 0 [default] reserves none
+	 */
+	protected int getGuaranteedWorkers() {
+		return 0;
+	}
+
+	/**
+	 * allows implementations to opt-in for auto scaling of the number of workers per node
+	 * - the number of workers per node given upon construction is the starting point, the number moves between 1 and the returned maximum
+	 * - the number grows by one while tasks are left behind with all of the workers busy (unless the host CPU is overloaded)
+	 * - the number is cut by a quarter when the tasks duration grows well above its baseline, which is a sign of the downstream slowing down
+	 * - called once, upon processor's initialization
+	 *
+	 * @return maximal number of workers per node, 0 [default] disables the auto scaling
+	 */
+	protected int getMaximalWorkersPerNode() {
+		return 0;
+	}
+
 	//
 	//  INTERNAL STUFF FROM HERE
 	//
@@ -166,8 +302,10 @@ public abstract class ClusterTasksProcessorBase {
 	}
 
 	final boolean isReadyToHandleTaskInternal() {
+		adjustWorkersLimit();
+
 		boolean internalResult = true;
-		if (availableWorkers.get() == 0) {
+		if (getAvailableWorkers() == 0) {
 			internalResult = false;
 		} else if (minimalTasksTakeInterval > 0) {
 			internalResult = System.currentTimeMillis() - lastTaskHandledLocalTime > minimalTasksTakeInterval;
@@ -182,50 +320,60 @@ public abstract class ClusterTasksProcessorBase {
 		return internalResult && foreignResult;
 	}
 
+	//  continuing worker keeps its own worker, hence only the rest of the dispatch readiness applies
+	//  the task just finished counts as taken now, hence the minimal tasks take interval can't have passed yet
+	final boolean isReadyToContinueChannelInternal() {
+		if (minimalTasksTakeInterval > 0) {
+			return false;
+		}
+
+		Histogram.Timer foreignCallTimer = foreignIsReadyToHandleTasksCallDuration.labels(clusterTasksService.getInstanceID()).startTimer();
+		boolean foreignResult = isReadyToHandleTasks();
+		foreignCallTimer.close();
+		return foreignResult;
+	}
+
 	final Collection<ClusterTaskImpl> selectTasksToRun(List<ClusterTaskImpl> candidates) {
 		Set<ClusterTaskImpl> tasksToRun = new HashSet<>();
 
 		//  group tasks by concurrency key
 		//  while filtering out tasks rejected on applicative per-task validation
 		Map<String, List<ClusterTaskImpl>> tasksGroupedByConcurrencyKeys = new LinkedHashMap<>();
+		int tasksAbleToRun = 0;
 		for (ClusterTaskImpl candidate : candidates) {
-			Histogram.Timer foreignCallTimer = foreignIsTaskAbleToRunCallDuration.labels(clusterTasksService.getInstanceID()).startTimer();
-			boolean taskAbleToRan = isTaskAbleToRun(candidate.applicationKey);
-			foreignCallTimer.close();
-			if (taskAbleToRan) {
+			if (isTaskAbleToRunInternal(candidate)) {
 				String tmpCK = candidate.concurrencyKey != null ? candidate.concurrencyKey : NON_CONCURRENT_TASKS_GROUP_KEY;
 				tasksGroupedByConcurrencyKeys
 						.computeIfAbsent(tmpCK, ck -> new ArrayList<>())
 						.add(candidate);
+				tasksAbleToRun++;
 			}
 		}
 
 		if (!tasksGroupedByConcurrencyKeys.isEmpty()) {
-			int availableWorkersTmp = availableWorkers.get();
+			int availableWorkersTmp = getAvailableWorkers();
 
 			//  order relevant concurrency keys by fairness logic
 			//  - first see the LRU concurrency key and give priority to it's channel
 			//  - when two keys are equal, give priority to the channel with less ordered first item
-			List<String> orderedRelevantKeys = new ArrayList<>(tasksGroupedByConcurrencyKeys.keySet());
-			orderedRelevantKeys.sort((keyA, keyB) -> {
-				long keyALastTouch = concurrencyKeysFairnessMap.getOrDefault(keyA, 0L);
-				long keyBLastTouch = concurrencyKeysFairnessMap.getOrDefault(keyB, 0L);
-				if (keyALastTouch != keyBLastTouch) {
-					return Long.compare(keyALastTouch, keyBLastTouch);
+			//  last touches are taken once per key, so that the comparator does not go to the (synchronized) fairness map
+			List<ChannelHead> orderedChannelHeads = new ArrayList<>(tasksGroupedByConcurrencyKeys.size());
+			tasksGroupedByConcurrencyKeys.forEach((concurrencyKey, tasksGroup) ->
+					orderedChannelHeads.add(new ChannelHead(tasksGroup.get(0), concurrencyKeysFairnessMap.getLastTouch(concurrencyKey))));
+			orderedChannelHeads.sort((headA, headB) -> {
+				if (headA.lastTouch != headB.lastTouch) {
+					return Long.compare(headA.lastTouch, headB.lastTouch);
 				} else {
-					ClusterTaskImpl headA = tasksGroupedByConcurrencyKeys.get(keyA).get(0);
-					ClusterTaskImpl headB = tasksGroupedByConcurrencyKeys.get(keyB).get(0);
-					int comp = Long.compare(headA.orderingFactor, headB.orderingFactor);
-					return comp != 0 ? comp : Long.compare(headA.id, headB.id);
+					int comp = Long.compare(headA.task.orderingFactor, headB.task.orderingFactor);
+					return comp != 0 ? comp : Long.compare(headA.task.id, headB.task.id);
 				}
 			});
 
 			//  first - select tasks fairly - including NON_CONCURRENT_TASKS_GROUP to let them chance to run as well
 			//  here we taking a single (first) task from each CONCURRENT CHANNEL
-			for (String concurrencyKey : orderedRelevantKeys) {
+			for (ChannelHead channelHead : orderedChannelHeads) {
 				if (availableWorkersTmp <= 0) break;
-				List<ClusterTaskImpl> channeledTasksGroup = tasksGroupedByConcurrencyKeys.get(concurrencyKey);
-				tasksToRun.add(channeledTasksGroup.get(0));
+				tasksToRun.add(channelHead.task);
 				availableWorkersTmp--;
 			}
 
@@ -238,13 +386,21 @@ public abstract class ClusterTasksProcessorBase {
 			}
 		}
 
+		//  shared workers selected here are not to be drawn by the processors dispatched next within the same round
+		ClusterTasksWorkersBudget budget = sharedWorkersBudget;
+		if (budget != null) {
+			budget.reserve(type, tasksToRun.size());
+		}
+
+		//  tasks left behind for the lack of workers will be picked up as soon as any worker is freed
+		backlogged = tasksAbleToRun > tasksToRun.size();
 		return tasksToRun;
 	}
 
 	final void handleTasks(Collection<ClusterTaskImpl> tasks, ClusterTasksDataProvider dataProvider) {
 		tasks.forEach(task -> {
 			if (handoutTaskToWorker(dataProvider, task)) {
-				concurrencyKeysFairnessMap.put(
+				concurrencyKeysFairnessMap.touch(
 						task.concurrencyKey != null ? task.concurrencyKey : NON_CONCURRENT_TASKS_GROUP_KEY,
 						System.currentTimeMillis());
 			} else {
@@ -254,23 +410,147 @@ public abstract class ClusterTasksProcessorBase {
 
 		threadsUtilizationGauge
 				.labels(getType())
-				.set(((double) (numberOfWorkersPerNode - availableWorkers.get())) / ((double) numberOfWorkersPerNode));
+				.set(((double) getBusyWorkers()) / ((double) numberOfWorkersPerNode));
+		fairnessMapSizeGauge
+				.labels(getType())
+				.set(concurrencyKeysFairnessMap.size());
+	}
+
+	//  processors running on own threads (virtual ones included) keep them
+	final void attachSharedWorkers(ExecutorService sharedWorkersPool, ClusterTasksWorkersBudget budget) {
+		if (virtualThreads) {
+			logger.info(type + " runs on virtual threads, not attached to the shared workers pool");
+			return;
+		}
+
+		int guaranteedWorkers;
+		try {
+			guaranteedWorkers = Math.max(0, getGuaranteedWorkers());
+		} catch (Throwable t) {
+			logger.error(type + " failed to get guaranteed workers, none reserved", t);
+			guaranteedWorkers = 0;
+		}
+		budget.register(type, guaranteedWorkers, numberOfWorkersPerNode);
+
+		//  own pool has its threads created lazily, thus is expected to have none by now
+		ExecutorService ownWorkersPool = workersThreadPool;
+		workersThreadPool = sharedWorkersPool;
+		sharedWorkersBudget = budget;
+		if (ownWorkersPool != null) {
+			ownWorkersPool.shutdown();
+		}
+		logger.info(type + " attached to the shared workers pool: guaranteed workers: " + Math.min(guaranteedWorkers, numberOfWorkersPerNode) + "; maximal workers: " + numberOfWorkersPerNode);
+	}
+
+	final void recordTaskDuration(double durationSeconds) {
+		ClusterTasksWorkersLimitController controller = workersLimitController;
+		if (controller != null) {
+			controller.recordTaskDuration(durationSeconds);
+		}
+	}
+
+	final int getChannelLeaseLengthInternal() {
+		try {
+			return Math.max(0, getChannelLeaseLength());
+		} catch (Throwable t) {
+			logger.error(type + " failed to get channel lease length, leases disabled", t);
+			return 0;
+		}
+	}
+
+	final boolean isTaskAbleToRunInternal(ClusterTaskImpl task) {
+		Histogram.Timer foreignCallTimer = foreignIsTaskAbleToRunCallDuration.labels(clusterTasksService.getInstanceID()).startTimer();
+		boolean taskAbleToRun = isTaskAbleToRun(task.applicationKey);
+		foreignCallTimer.close();
+		return taskAbleToRun;
+	}
+
+	//  worker keeps running the next task of the channel, hence remains busy
+	final void notifyTaskWorkerContinued(ClusterTasksDataProvider dataProvider, ClusterTaskImpl task) {
+		lastTaskHandledLocalTime = System.currentTimeMillis();
+		clusterTasksService.getMaintainer().submitTaskToRemove(dataProvider, task);
 	}
 
 	final void notifyTaskWorkerFinished(ClusterTasksDataProvider dataProvider, ClusterTaskImpl task) {
-		int aWorkers = availableWorkers.incrementAndGet();
+		ClusterTasksWorkersBudget budget = sharedWorkersBudget;
+		if (budget != null) {
+			budget.release(type);
+		} else {
+			availableWorkers.incrementAndGet();
+		}
+		int aWorkers = getAvailableWorkers();
 		lastTaskHandledLocalTime = System.currentTimeMillis();
 		logger.debug(type + " available workers " + aWorkers);
 
 		//  submit task for removal
 		clusterTasksService.getMaintainer().submitTaskToRemove(dataProvider, task);
+
+		if (backlogged) {
+			clusterTasksService.wakeUpDispatcher();
+		}
+	}
+
+	final void notifyBacklogged() {
+		backlogged = true;
+	}
+
+	final boolean hasAvailableWorkers() {
+		return getAvailableWorkers() > 0;
+	}
+
+	final int getAvailableWorkers() {
+		ClusterTasksWorkersBudget budget = sharedWorkersBudget;
+		return budget != null ? budget.getAvailable(type) : Math.max(0, availableWorkers.get());
+	}
+
+	private int getMaximalWorkersPerNodeInternal() {
+		try {
+			return Math.max(0, getMaximalWorkersPerNode());
+		} catch (Throwable t) {
+			logger.error(type + " failed to get maximal workers per node, auto scaling disabled", t);
+			return 0;
+		}
+	}
+
+	private void adjustWorkersLimit() {
+		ClusterTasksWorkersLimitController controller = workersLimitController;
+		if (controller != null) {
+			int limit = controller.evaluate(System.currentTimeMillis(), backlogged, ((double) getBusyWorkers()) / ((double) numberOfWorkersPerNode), getHostLoad());
+			if (limit != numberOfWorkersPerNode) {
+				setNumberOfWorkersPerNode(limit);
+			}
+		}
+	}
+
+	//  system load average per CPU, negative when not available on the platform
+	private static double getHostLoad() {
+		double loadAverage = operatingSystemMXBean.getSystemLoadAverage();
+		return loadAverage < 0 ? -1 : loadAverage / operatingSystemMXBean.getAvailableProcessors();
+	}
+
+	private int getBusyWorkers() {
+		ClusterTasksWorkersBudget budget = sharedWorkersBudget;
+		return budget != null ? budget.getRunning(type) : numberOfWorkersPerNode - availableWorkers.get();
 	}
 
 	private boolean handoutTaskToWorker(ClusterTasksDataProvider dataProvider, ClusterTaskImpl task) {
 		try {
 			ClusterTasksProcessorWorker worker = new ClusterTasksProcessorWorker(dataProvider, this, task);
-			workersThreadPool.execute(worker);
-			int aWorkers = availableWorkers.decrementAndGet();
+			ClusterTasksWorkersBudget budget = sharedWorkersBudget;
+			if (budget != null) {
+				//  shared worker is taken before the execution, since the worker may finish (and release it) before this method returns
+				budget.acquire(type);
+				try {
+					workersThreadPool.execute(worker);
+				} catch (RuntimeException re) {
+					budget.release(type);
+					throw re;
+				}
+			} else {
+				workersThreadPool.execute(worker);
+				availableWorkers.decrementAndGet();
+			}
+			int aWorkers = getAvailableWorkers();
 			if (logger.isDebugEnabled()) {
 				logger.debug("processor " + getType() + " took " + task);
 				logger.debug(type + " available workers " + aWorkers);
@@ -282,6 +562,30 @@ public abstract class ClusterTasksProcessorBase {
 		}
 	}
 
+	//  virtual threads are resolved reflectively, so that the Java 8 baseline is kept
+	private ExecutorService createVirtualThreadsExecutor() {
+		try {
+			Object virtualThreadsBuilder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			virtualThreadsBuilder = builderClass.getMethod("name", String.class, long.class).invoke(virtualThreadsBuilder, "CTP worker on behalf of " + type + "; #", 0L);
+			ThreadFactory virtualThreadsFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(virtualThreadsBuilder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, virtualThreadsFactory);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			logger.warn(type + " requested virtual threads, which are not available in this JVM (" + System.getProperty("java.version") + "), falling back to platform threads", e);
+			return null;
+		}
+	}
+
+	private static final class ChannelHead {
+		private final ClusterTaskImpl task;
+		private final long lastTouch;
+
+		private ChannelHead(ClusterTaskImpl task, long lastTouch) {
+			this.task = task;
+			this.lastTouch = lastTouch;
+		}
+	}
+
 	private final class CTPWorkersThreadFactory implements ThreadFactory {
 
 		@Override
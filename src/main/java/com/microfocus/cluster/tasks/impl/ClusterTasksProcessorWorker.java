@@ -68,6 +68,17 @@ class ClusterTasksProcessorWorker implements Runnable {
 
 	@Override
 	public void run() {
+		//  with channel lease, worker keeps claiming and running the next tasks of the channel (up to the lease length of follow-ups) as long as those are claimed
+		int leaseLeft = processor.getChannelLeaseLengthInternal();
+		ClusterTaskImpl currentTask = task;
+		while (currentTask != null) {
+			currentTask = runTask(currentTask, leaseLeft-- > 0);
+		}
+	}
+
+	private ClusterTaskImpl runTask(ClusterTaskImpl task, boolean continuationAllowed) {
+		ClusterTaskImpl nextTask = null;
+
 		//  reinsert scheduled task at the soonest possible point in time
 		if (task.taskType == ClusterTaskType.SCHEDULED) {
 			reinsertScheduledTask(task);
@@ -89,16 +100,25 @@ class ClusterTasksProcessorWorker implements Runnable {
 			logger.error("failed processing " + task + ", body: " + task.body, t);
 			errorsPerProcessorCounter.labels(processor.getType(), t.getClass().getSimpleName()).inc();                      //  metric
 		} finally {
-			taskSelfDurationTimer.observeDuration();                                                                        //  metric
+			processor.recordTaskDuration(taskSelfDurationTimer.observeDuration());                                          //  metric
 			try {
+				//  next task of the channel is claimed while this one is still RUNNING, so that the channel is not taken by the dispatch meanwhile; subject to the processor's readiness, as the dispatch is
+				if (continuationAllowed && task.concurrencyKey != null && task.taskType != ClusterTaskType.SCHEDULED && processor.isReadyToContinueChannelInternal()) {
+					nextTask = dataProvider.claimNextChannelTask(task, processor::isTaskAbleToRunInternal);
+				}
 				removeFinishedTask(task.id);
 			} catch (Throwable t) {
 				logger.error("failed to remove finished " + task, t);
 				ctsOwnErrorsCounter.labels(TASK_FINALIZATION_PHASE, t.getClass().getSimpleName()).inc();                    //  metric
 			} finally {
-				processor.notifyTaskWorkerFinished(dataProvider, task);
+				if (nextTask != null) {
+					processor.notifyTaskWorkerContinued(dataProvider, task);
+				} else {
+					processor.notifyTaskWorkerFinished(dataProvider, task);
+				}
 			}
 		}
+		return nextTask;
 	}
 
 	//  scheduled task reinsert is mission critical part of functionality - MUST be handled and validated
@@ -119,11 +139,20 @@ class ClusterTasksProcessorWorker implements Runnable {
 	}
 
 	private boolean enrichTaskWithBodyIfRelevant(ClusterTaskImpl task) {
-		if (task.partitionIndex != null) {
+		if (task.partitionIndex != null && processor.isBodyStreamingEnabled()) {
+			logger.debug(task + " has body, which will be streamed on demand");
+			task.bodyStreamingSource = dataProvider;
+			return true;
+		} else if (task.partitionIndex != null && task.bodyPrefetched) {
+			logger.debug(task + " has prefetched body: " + (task.binaryBody != null ? task.binaryBody.length + " bytes" : task.body));
+			return true;
+		} else if (task.partitionIndex != null) {
 			return CTSUtils.retry(3, () -> {
 				try {
-					task.body = dataProvider.retrieveTaskBody(task.id, task.partitionIndex);
-					logger.debug(task + " has body: " + task.body);
+					ClusterTaskBodyCodec.DecodedBody body = dataProvider.retrieveTaskBody(task.resolveBodyId(), task.partitionIndex);
+					task.body = body == null ? null : body.text;
+					task.binaryBody = body == null ? null : body.binary;
+					logger.debug(task + " has body: " + (task.binaryBody != null ? task.binaryBody.length + " bytes" : task.body));
 					return true;
 				} catch (Throwable t) {
 					ctsOwnErrorsCounter.labels(BODY_RETRIEVAL_PHASE, t.getClass().getSimpleName()).inc();                   //  metric
@@ -131,7 +160,7 @@ class ClusterTasksProcessorWorker implements Runnable {
 				}
 			});
 		} else {
-			logger.debug(task + " is bodiless");
+			logger.debug(task + (task.bodyInline ? " has inline body: " + task.body : " is bodiless"));
 			return true;
 		}
 	}
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
@@ -43,13 +44,18 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 	private final CompletableFuture<Boolean> readyPromise = new CompletableFuture<>();
 	private final Map<ClusterTasksDataProviderType, ClusterTasksDataProvider> dataProvidersMap = new LinkedHashMap<>();
 	private final Map<String, ClusterTasksProcessorBase> processorsMap = new LinkedHashMap<>();
+	private final Map<ClusterTasksDataProviderType, ClusterTasksEnqueueBuffer> enqueueBuffersMap = new LinkedHashMap<>();
 	private final ExecutorService dispatcherExecutor = Executors.newSingleThreadExecutor(new ClusterTasksDispatcherThreadFactory());
 	private final ExecutorService maintainerExecutor = Executors.newSingleThreadExecutor(new ClusterTasksMaintainerThreadFactory());
+	private final ExecutorService enqueueListenerExecutor = Executors.newSingleThreadExecutor(new ClusterTasksEnqueueListenerThreadFactory());
 	private final SystemWorkersConfigurer workersConfigurer = new SystemWorkersConfigurer();
 	private final ClusterTasksDispatcher dispatcher = new ClusterTasksDispatcher(workersConfigurer);
 	private final ClusterTasksMaintainer maintainer = new ClusterTasksMaintainer(workersConfigurer);
+	private final ClusterTasksEnqueueListener enqueueListener = new ClusterTasksEnqueueListener(workersConfigurer, dispatcher);
 
 	private ClusterTasksServiceConfigurerSPI serviceConfigurer;
+	private ExecutorService sharedWorkersPool;
+	private ClusterTasksWorkersBudget sharedWorkersBudget;
 	private ClusterTasksServiceSchemaManager schemaManager;
 
 	static {
@@ -116,6 +122,7 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 				logger.error("processor " + className + " rejected: more than one implementation pretend to process '" + type + "' tasks");
 			} else {
 				processorsMap.put(type, processor);
+				attachSharedWorkers(processor);
 			}
 		});
 		if (!processorsMap.isEmpty()) {
@@ -138,40 +145,65 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 
 	@Override
 	public ClusterTaskPersistenceResult[] enqueueTasks(ClusterTasksDataProviderType dataProviderType, String processorType, ClusterTask... tasks) {
-		if (!readyPromise.isDone()) {
-			throw new IllegalStateException("CTS has not yet been initialized; either postpone tasks submission or listen to completion of [clusterTasksService].getReadyPromise()");
-		}
-		if (readyPromise.isCompletedExceptionally()) {
-			throw new IllegalStateException("CTS failed to initialize; check previous logs for a root cause");
-		}
+		validateEnqueueRequest(dataProviderType, processorType, tasks);
+
+		long startStore = System.currentTimeMillis();
+		ClusterTaskImpl[] taskInternals = convertTasks(tasks, processorType);
+		ClusterTaskPersistenceResult[] result = dataProvidersMap.get(dataProviderType).storeTasks(taskInternals);
+		long timeForAll = System.currentTimeMillis() - startStore;
+		tasksInsertionAverageDuration.labels(RUNTIME_INSTANCE_ID).set((double) timeForAll / tasks.length);
+		wakeUpDispatcherIfRelevant(taskInternals, result);
+		return result;
+	}
 
-		if (dataProviderType == null) {
-			throw new IllegalArgumentException("data provider type MUST NOT be null");
-		}
-		if (!dataProvidersMap.containsKey(dataProviderType)) {
-			throw new IllegalStateException("unknown data provider of type " + dataProviderType);
+	@Override
+	public CompletableFuture<ClusterTaskPersistenceResult[]> enqueueTasksAsync(ClusterTasksDataProviderType dataProviderType, String processorType, ClusterTask... tasks) {
+		validateEnqueueRequest(dataProviderType, processorType, tasks);
+
+		ClusterTaskImpl[] taskInternals = convertTasks(tasks, processorType);
+		return enqueueBuffersMap.get(dataProviderType).submit(taskInternals)
+				.thenApply(result -> {
+					wakeUpDispatcherIfRelevant(taskInternals, result);
+					return result;
+				});
+	}
+
+	@Override
+	public Map<String, ClusterTaskPersistenceResult[]> enqueueTasksWithSharedBody(ClusterTasksDataProviderType dataProviderType, Map<String, ClusterTask[]> tasksByProcessorType) {
+		if (tasksByProcessorType == null || tasksByProcessorType.isEmpty()) {
+			throw new IllegalArgumentException("tasks by processor type MUST NOT be null nor empty");
 		}
-		if (processorType == null || processorType.isEmpty()) {
-			throw new IllegalArgumentException("processor type MUST NOT be null nor empty");
+
+		long startStore = System.currentTimeMillis();
+		List<ClusterTaskImpl> taskInternals = new ArrayList<>();
+		for (Map.Entry<String, ClusterTask[]> processorTasks : tasksByProcessorType.entrySet()) {
+			validateEnqueueRequest(dataProviderType, processorTasks.getKey(), processorTasks.getValue());
+			taskInternals.addAll(Arrays.asList(convertTasks(processorTasks.getValue(), processorTasks.getKey())));
 		}
-		if (processorType.length() > 40) {
-			throw new IllegalArgumentException("processor type MAY NOT exceed 40 characters; given " + processorType.length() + " (" + processorType + ")");
+		ClusterTaskImpl first = taskInternals.get(0);
+		if (!first.hasBody()) {
+			throw new IllegalArgumentException("tasks sharing a body MUST have a body");
 		}
-		if (tasks == null || tasks.length == 0) {
-			throw new IllegalArgumentException("tasks array MUST NOT be null nor empty");
+		for (ClusterTaskImpl task : taskInternals) {
+			if (!Objects.equals(first.body, task.body) || !Arrays.equals(first.binaryBody, task.binaryBody)) {
+				throw new IllegalArgumentException("tasks sharing a body MUST all have the same body");
+			}
 		}
 
-		ClusterTasksDataProvider dataProvider = dataProvidersMap.get(dataProviderType);
-		if (dataProvider != null) {
-			long startStore = System.currentTimeMillis();
-			ClusterTaskImpl[] taskInternals = convertTasks(tasks, processorType);
-			ClusterTaskPersistenceResult[] result = dataProvidersMap.get(dataProviderType).storeTasks(taskInternals);
-			long timeForAll = System.currentTimeMillis() - startStore;
-			tasksInsertionAverageDuration.labels(RUNTIME_INSTANCE_ID).set((double) timeForAll / tasks.length);
-			return result;
-		} else {
-			throw new IllegalArgumentException("unknown data provider of type '" + processorType + "'");
+		ClusterTaskImpl[] tasksToStore = taskInternals.toArray(new ClusterTaskImpl[0]);
+		ClusterTaskPersistenceResult[] storeResults = dataProvidersMap.get(dataProviderType).storeTasksWithSharedBody(tasksToStore);
+		wakeUpDispatcherIfRelevant(tasksToStore, storeResults);
+		Map<String, ClusterTaskPersistenceResult[]> result = new LinkedHashMap<>();
+		int offset = 0;
+		for (Map.Entry<String, ClusterTask[]> processorTasks : tasksByProcessorType.entrySet()) {
+			ClusterTaskPersistenceResult[] processorResults = new ClusterTaskPersistenceResult[processorTasks.getValue().length];
+			System.arraycopy(storeResults, offset, processorResults, 0, processorResults.length);
+			offset += processorResults.length;
+			result.put(processorTasks.getKey(), processorResults);
 		}
+		long timeForAll = System.currentTimeMillis() - startStore;
+		tasksInsertionAverageDuration.labels(RUNTIME_INSTANCE_ID).set((double) timeForAll / taskInternals.size());
+		return result;
 	}
 
 	@Override
@@ -199,10 +231,12 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 
 	@Override
 	public Future<Boolean> stop() {
-		return CompletableFuture.allOf(
-				dispatcher.halt(),
-				maintainer.halt()
-		).handleAsync((e, r) -> true);
+		List<CompletableFuture<Object>> haltPromises = new ArrayList<>();
+		haltPromises.add(dispatcher.halt());
+		haltPromises.add(maintainer.halt());
+		haltPromises.add(enqueueListener.halt());
+		enqueueBuffersMap.values().forEach(enqueueBuffer -> haltPromises.add(enqueueBuffer.halt()));
+		return CompletableFuture.allOf(haltPromises.toArray(new CompletableFuture<?>[0])).handleAsync((r, e) -> true);
 	}
 
 	@Override
@@ -232,6 +266,10 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 		return maintainer;
 	}
 
+	void wakeUpDispatcher() {
+		dispatcher.wakeUp();
+	}
+
 	private void initService() {
 		logger.info("starting initialization");
 		if (serviceConfigurer.getDbType() == null) {
@@ -249,15 +287,17 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 		}
 
 		setupDataProviders();
+		setupSharedWorkers();
 
 		logger.info("initialising scheduled tasks...");
 		ensureScheduledTasksInitialized();
 		logger.info("... scheduled tasks initialization verified");
 
-		logger.info("initialising Dispatcher and Maintainer threads...");
+		logger.info("initialising Dispatcher, Maintainer and Enqueue Listener threads...");
 		dispatcherExecutor.execute(dispatcher);
 		maintainerExecutor.execute(maintainer);
-		logger.info("... Dispatcher and Maintainer threads initialized");
+		enqueueListenerExecutor.execute(enqueueListener);
+		logger.info("... Dispatcher, Maintainer and Enqueue Listener threads initialized");
 
 		logger.info("CTS is configured & initialized, instance ID: " + RUNTIME_INSTANCE_ID);
 		readyPromise.complete(true);
@@ -280,6 +320,9 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 				break;
 		}
 
+		//  asynchronous enqueue buffers
+		dataProvidersMap.forEach((type, provider) -> enqueueBuffersMap.put(type, new ClusterTasksEnqueueBuffer(provider, RUNTIME_INSTANCE_ID)));
+
 		//  summary
 		if (!dataProvidersMap.isEmpty()) {
 			logger.info("summarizing registered data providers:");
@@ -337,6 +380,31 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 				});
 	}
 
+	private void validateEnqueueRequest(ClusterTasksDataProviderType dataProviderType, String processorType, ClusterTask[] tasks) {
+		if (!readyPromise.isDone()) {
+			throw new IllegalStateException("CTS has not yet been initialized; either postpone tasks submission or listen to completion of [clusterTasksService].getReadyPromise()");
+		}
+		if (readyPromise.isCompletedExceptionally()) {
+			throw new IllegalStateException("CTS failed to initialize; check previous logs for a root cause");
+		}
+
+		if (dataProviderType == null) {
+			throw new IllegalArgumentException("data provider type MUST NOT be null");
+		}
+		if (!dataProvidersMap.containsKey(dataProviderType)) {
+			throw new IllegalStateException("unknown data provider of type " + dataProviderType);
+		}
+		if (processorType == null || processorType.isEmpty()) {
+			throw new IllegalArgumentException("processor type MUST NOT be null nor empty");
+		}
+		if (processorType.length() > 40) {
+			throw new IllegalArgumentException("processor type MAY NOT exceed 40 characters; given " + processorType.length() + " (" + processorType + ")");
+		}
+		if (tasks == null || tasks.length == 0) {
+			throw new IllegalArgumentException("tasks array MUST NOT be null nor empty");
+		}
+	}
+
 	private ClusterTaskImpl[] convertTasks(ClusterTask[] sourceTasks, String targetProcessorType) {
 		ClusterTaskImpl[] result = new ClusterTaskImpl[sourceTasks.length];
 		for (int i = 0; i < sourceTasks.length; i++) {
@@ -360,6 +428,10 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 			target.orderingFactor = null;
 			target.delayByMillis = source.getDelayByMillis() == null ? (Long) 0L : source.getDelayByMillis();
 			target.body = source.getBody() == null || source.getBody().isEmpty() ? null : source.getBody();
+			target.binaryBody = source instanceof ClusterTaskImpl ? ((ClusterTaskImpl) source).binaryBody : toBinaryBody(source.getBinaryBody());
+			if (target.body != null && target.binaryBody != null) {
+				throw new IllegalArgumentException("task MAY have either text or binary body, not both");
+			}
 			target.taskType = ClusterTaskType.REGULAR;
 
 			result[i] = target;
@@ -368,6 +440,25 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 		return result;
 	}
 
+	//  tasks ready to run are dispatched right away by this node, other nodes are signaled by the data provider
+	private void wakeUpDispatcherIfRelevant(ClusterTaskImpl[] tasks, ClusterTaskPersistenceResult[] results) {
+		for (int i = 0; i < tasks.length; i++) {
+			if (results[i].getStatus() == ClusterTaskInsertStatus.SUCCESS && tasks[i].delayByMillis == 0) {
+				dispatcher.wakeUp();
+				return;
+			}
+		}
+	}
+
+	private static byte[] toBinaryBody(ByteBuffer source) {
+		if (source == null || !source.hasRemaining()) {
+			return null;
+		}
+		byte[] result = new byte[source.remaining()];
+		source.duplicate().get(result);
+		return result;
+	}
+
 	private void preprocessConcurrencyKey(ClusterTask source, ClusterTaskImpl target, String processorType) {
 		String cKey;
 		if (source.getUniquenessKey() != null) {
@@ -389,6 +480,29 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 		}
 	}
 
+	//  processors registered later on are attached upon registration
+	private synchronized void setupSharedWorkers() {
+		int sharedWorkersPoolSize;
+		try {
+			sharedWorkersPoolSize = serviceConfigurer.getSharedWorkersPoolSize();
+		} catch (Throwable t) {
+			logger.error("failed to get shared workers pool size, falling back to per processor workers", t);
+			sharedWorkersPoolSize = 0;
+		}
+		if (sharedWorkersPoolSize > 0) {
+			logger.info("initialising shared workers pool of " + sharedWorkersPoolSize + " workers...");
+			sharedWorkersPool = Executors.newFixedThreadPool(sharedWorkersPoolSize, new ClusterTasksSharedWorkersThreadFactory());
+			sharedWorkersBudget = new ClusterTasksWorkersBudget(sharedWorkersPoolSize);
+			processorsMap.values().forEach(this::attachSharedWorkers);
+		}
+	}
+
+	private synchronized void attachSharedWorkers(ClusterTasksProcessorBase processor) {
+		if (sharedWorkersBudget != null) {
+			processor.attachSharedWorkers(sharedWorkersPool, sharedWorkersBudget);
+		}
+	}
+
 	private static final class ClusterTasksDispatcherThreadFactory implements ThreadFactory {
 		@Override
 		public Thread newThread(Runnable runnable) {
@@ -409,6 +523,26 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 		}
 	}
 
+	private static final class ClusterTasksSharedWorkersThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread result = new Thread(runnable);
+			result.setName("CTS Shared Worker; TID: " + result.getId());
+			result.setDaemon(true);
+			return result;
+		}
+	}
+
+	private static final class ClusterTasksEnqueueListenerThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread result = new Thread(runnable);
+			result.setName("CTS Enqueue Listener; TID: " + result.getId());
+			result.setDaemon(true);
+			return result;
+		}
+	}
+
 	/**
 	 * Configurer class with a very limited creation access level, but wider read access level for protected internal configuration flows
 	 * - for a most reasons this class is just a proxy for getting ClusterTasksService private properties in a safe way
@@ -440,5 +574,9 @@ public class ClusterTasksServiceImpl implements ClusterTasksService {
 		Map<String, ClusterTasksProcessorBase> getProcessorsMap() {
 			return processorsMap;
 		}
+
+		ClusterTasksWorkersBudget getSharedWorkersBudget() {
+			return sharedWorkersBudget;
+		}
 	}
 }
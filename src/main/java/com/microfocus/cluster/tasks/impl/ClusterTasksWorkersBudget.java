@@ -0,0 +1,134 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Node wide budget of the shared workers, drawn by the processors within their quotas
+ * - processor MAY take a worker as long as it is below its maximum and the budget has workers not reserved for the guaranteed minimums of the other processors
+ * - tasks selected to run during the dispatch round are reserved right away, so that the processors of the same round won't draw the same workers;
+ * reservations not turned into running tasks (failed or lost claims) are dropped at the end of the round
+ */
+
+final class ClusterTasksWorkersBudget {
+	private final int totalWorkers;
+	private final Map<String, Quota> quotas = new HashMap<>();
+	private int totalBusy = 0;
+
+	ClusterTasksWorkersBudget(int totalWorkers) {
+		if (totalWorkers <= 0) {
+			throw new IllegalArgumentException("total workers MUST be positive");
+		}
+		this.totalWorkers = totalWorkers;
+	}
+
+	int getTotalWorkers() {
+		return totalWorkers;
+	}
+
+	synchronized void register(String processorType, int minWorkers, int maxWorkers) {
+		quotas.put(processorType, new Quota(Math.max(0, Math.min(minWorkers, maxWorkers)), Math.max(0, maxWorkers)));
+	}
+
+	synchronized void updateMaximum(String processorType, int maxWorkers) {
+		Quota quota = quotas.get(processorType);
+		if (quota != null) {
+			quota.max = Math.max(0, maxWorkers);
+		}
+	}
+
+	/**
+	 * @param processorType processor type
+	 * @return number of workers the processor MAY take right now
+	 */
+	synchronized int getAvailable(String processorType) {
+		Quota quota = quotas.get(processorType);
+		if (quota == null) {
+			return 0;
+		}
+		int ownHeadroom = quota.max - quota.busy();
+		if (ownHeadroom <= 0) {
+			return 0;
+		}
+		int reservedByOthers = 0;
+		for (Map.Entry<String, Quota> other : quotas.entrySet()) {
+			if (!other.getKey().equals(processorType)) {
+				reservedByOthers += Math.max(0, Math.min(other.getValue().min, other.getValue().max) - other.getValue().busy());
+			}
+		}
+		return Math.max(0, Math.min(ownHeadroom, totalWorkers - totalBusy - reservedByOthers));
+	}
+
+	synchronized int getRunning(String processorType) {
+		Quota quota = quotas.get(processorType);
+		return quota == null ? 0 : quota.running;
+	}
+
+	/**
+	 * Reserves workers for the tasks selected to run within the current dispatch round
+	 */
+	synchronized void reserve(String processorType, int workers) {
+		Quota quota = quotas.get(processorType);
+		if (quota != null && workers > 0) {
+			quota.reserved += workers;
+			totalBusy += workers;
+		}
+	}
+
+	/**
+	 * Takes a worker for the task handed out, turning the processor's reservation (if any) into the running one
+	 */
+	synchronized void acquire(String processorType) {
+		Quota quota = quotas.get(processorType);
+		if (quota != null) {
+			if (quota.reserved > 0) {
+				quota.reserved--;
+			} else {
+				totalBusy++;
+			}
+			quota.running++;
+		}
+	}
+
+	synchronized void release(String processorType) {
+		Quota quota = quotas.get(processorType);
+		if (quota != null && quota.running > 0) {
+			quota.running--;
+			totalBusy--;
+		}
+	}
+
+	/**
+	 * Drops the reservations of the dispatch round, that were not turned into the running tasks
+	 */
+	synchronized void endRound() {
+		for (Quota quota : quotas.values()) {
+			totalBusy -= quota.reserved;
+			quota.reserved = 0;
+		}
+	}
+
+	private static final class Quota {
+		private final int min;
+		private int max;
+		private int running;
+		private int reserved;
+
+		private Quota(int min, int max) {
+			this.min = min;
+			this.max = max;
+		}
+
+		private int busy() {
+			return running + reserved;
+		}
+	}
+}
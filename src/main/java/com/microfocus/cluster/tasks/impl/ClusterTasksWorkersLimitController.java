@@ -0,0 +1,94 @@
+/*
+	(c) Copyright 2018 Micro Focus or one of its affiliates.
+	Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+	Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.microfocus.cluster.tasks.impl;
+
+/**
+ * Additive increase / multiplicative decrease controller of the processor's workers limit, evaluated once per interval over the tasks finished within it
+ * - tasks duration growing well above its baseline means the processor's downstream slows down: the limit is cut by a quarter
+ * - backlog left behind while the workers are fully utilized (and the host is not overloaded) means more workers are needed: the limit grows by one
+ * - otherwise the limit is held; intervals with no finished tasks are not judged
+ */
+
+final class ClusterTasksWorkersLimitController {
+	static final long EVALUATION_INTERVAL = 5000;
+	private static final double DURATION_TOLERANCE = 2.0;
+	private static final double DECREASE_FACTOR = 0.75;
+	private static final double BASELINE_DRIFT = 0.05;
+	private static final double FULL_UTILIZATION = 0.9;
+	private static final double HOST_LOAD_HIGH = 0.9;
+
+	private final int minimalLimit;
+	private final int maximalLimit;
+	private int limit;
+	private double baselineDuration = 0;
+	private double durationsSum = 0;
+	private int durationsCount = 0;
+	private long lastEvaluation;
+
+	ClusterTasksWorkersLimitController(int initialLimit, int minimalLimit, int maximalLimit, long now) {
+		this.minimalLimit = Math.max(1, minimalLimit);
+		this.maximalLimit = Math.max(this.minimalLimit, maximalLimit);
+		this.limit = Math.max(this.minimalLimit, Math.min(initialLimit, this.maximalLimit));
+		this.lastEvaluation = now;
+	}
+
+	synchronized int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * takes the limit set from the outside (manually) as the one to be managed further on
+	 *
+	 * @param limit new limit
+	 * @return the limit, clamped to the minimal / maximal ones
+	 */
+	synchronized int setLimit(int limit) {
+		this.limit = Math.max(minimalLimit, Math.min(limit, maximalLimit));
+		return this.limit;
+	}
+
+	synchronized void recordTaskDuration(double durationSeconds) {
+		durationsSum += durationSeconds;
+		durationsCount++;
+	}
+
+	/**
+	 * @param now          current time, in millis
+	 * @param backlogged   true if the last dispatch left tasks behind for the lack of workers
+	 * @param utilization  busy workers to the limit ratio
+	 * @param hostLoad     system load average per CPU; negative when not available
+	 * @return the limit, adjusted if the evaluation interval has passed
+	 */
+	synchronized int evaluate(long now, boolean backlogged, double utilization, double hostLoad) {
+		if (now - lastEvaluation < EVALUATION_INTERVAL) {
+			return limit;
+		}
+		lastEvaluation = now;
+		if (durationsCount == 0) {
+			return limit;
+		}
+
+		double averageDuration = durationsSum / durationsCount;
+		durationsSum = 0;
+		durationsCount = 0;
+		if (baselineDuration == 0 || averageDuration < baselineDuration) {
+			baselineDuration = averageDuration;
+		}
+
+		if (averageDuration > baselineDuration * DURATION_TOLERANCE) {
+			limit = Math.max(minimalLimit, (int) (limit * DECREASE_FACTOR));
+		} else if (backlogged && utilization >= FULL_UTILIZATION && hostLoad < HOST_LOAD_HIGH) {
+			limit = Math.min(maximalLimit, limit + 1);
+		}
+
+		//  baseline slowly follows the durations, so that a persistent (and accepted) change won't keep the limit down forever
+		baselineDuration += (averageDuration - baselineDuration) * BASELINE_DRIFT;
+		return limit;
+	}
+}
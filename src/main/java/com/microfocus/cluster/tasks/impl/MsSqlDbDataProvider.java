@@ -10,14 +10,11 @@ package com.microfocus.cluster.tasks.impl;
 
 import com.microfocus.cluster.tasks.api.ClusterTasksService;
 import com.microfocus.cluster.tasks.api.ClusterTasksServiceConfigurerSPI;
-import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
-import com.microfocus.cluster.tasks.api.enums.ClusterTaskInsertStatus;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskStatus;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskType;
 import com.microfocus.cluster.tasks.api.errors.CtsGeneralFailure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.sql.Types;
@@ -49,15 +46,45 @@ final class MsSqlDbDataProvider extends ClusterTasksDbDataProvider {
 	private final String updateSelfLastSeenSQL;
 	private final String removeLongTimeNoSeeSQL;
 
-	private final String insertTaskWithoutBodySQL;
-	private final Map<Long, String> insertTaskWithBodySQLs = new HashMap<>();
+	private final int taskIdsBlockSize = 1000;
+	private final String reserveTaskIdsBlockSQL;
+	private final ClusterTaskIdsAllocator taskIdsAllocator;
+	private final String insertTaskMetaSQL;
+	private final Map<Long, String> insertTaskBodySQLs = new HashMap<>();
 	private final String updateScheduledTaskIntervalSQL;
-
-	private final String takeLockForSelectForRunTasksSQL;
+	private final String insertChannelSQL;
+	private final String insertMissingChannelsSQL;
+	private final int[] insertTaskMetaParamTypes = new int[]{
+			Types.BIGINT,               //  task ID
+			Types.BIGINT,               //  task type
+			Types.NVARCHAR,             //  processor type
+			Types.NVARCHAR,             //  uniqueness key
+			Types.NVARCHAR,             //  concurrency key
+			Types.NVARCHAR,             //  application key
+			Types.BIGINT,               //  delay by millis
+			Types.BIGINT,               //  partition index
+			Types.BIGINT,               //  shared body ID
+			Types.NVARCHAR,             //  inline body
+			Types.BIGINT,               //  ordering factor
+			Types.BIGINT,               //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
+			Types.NVARCHAR,             //  processor type (second time for uniqueness verification)
+			Types.NVARCHAR              //  uniqueness key (second time for uniqueness verification)
+	};
+	private final int[] insertTaskBodyParamTypes = new int[]{
+			Types.BIGINT,               //  task ID
+			Types.CLOB,                 //  task body - text
+			Types.VARBINARY,            //  task body - binary
+			Types.INTEGER               //  task body format
+	};
+
+	private final Map<Integer, String> takeLockForSelectForRunTasksSQLs = new HashMap<>();
 	private final Map<Integer, String> selectForUpdateTasksSQLs = new HashMap<>();
+	private final Map<Integer, String> selectForUpdateChanneledTasksSQLs = new HashMap<>();
+	private final Map<Integer, String> selectClaimableTasksSQLs = new HashMap<>();
 	private final Map<Long, String> selectTaskBodyByPartitionSQLs = new HashMap<>();
 	private final String updateTasksStartedSQL;
-	private final String releaseLockForSelectForRunTasksSQL;
+	private final String claimTaskSQL;
+	private final Map<Integer, String> releaseLockForSelectForRunTasksSQLs = new HashMap<>();
 
 	private final String takeLockForSelectForCleanTasksSQL;
 	private final String selectReRunnableStaledTasksSQL;
@@ -79,52 +106,113 @@ final class MsSqlDbDataProvider extends ClusterTasksDbDataProvider {
 		removeLongTimeNoSeeSQL = "DELETE FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_LAST_SEEN + " < DATEADD(MILLISECOND, -?, GETDATE())";
 
 		//  insert / update tasks
-		String insertFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, DELAY_BY_MILLIS, BODY_PARTITION, ORDERING_FACTOR, CREATED, STATUS);
-		insertTaskWithoutBodySQL = "INSERT INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
-				" VALUES (NEXT VALUE FOR " + CLUSTER_TASK_ID_SEQUENCE + ", ?, ?, ?, ?, ?, ?, ?, COALESCE(?, CAST(FORMAT(SYSDATETIME(),'yyMMddHHmmssfffffff') AS BIGINT) + ?), GETDATE(), " + ClusterTaskStatus.PENDING.value + ")";
+		//  task IDs are reserved in blocks (hi-lo), so that the inserts themselves are plain statements with no sequence call per row
+		reserveTaskIdsBlockSQL = "SET NOCOUNT ON;" +
+				" DECLARE @rangeFirstValue SQL_VARIANT;" +
+				" EXEC sp_sequence_get_range @sequence_name = N'" + CLUSTER_TASK_ID_SEQUENCE + "', @range_size = ?, @range_first_value = @rangeFirstValue OUTPUT;" +
+				" SELECT CAST(@rangeFirstValue AS BIGINT) AS range_first_value";
+		taskIdsAllocator = new ClusterTaskIdsAllocator(this::reserveTaskIdsBlock);
+		String insertFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, ORDERING_FACTOR, CREATED, STATUS);
+		//  uniqueness conflicts are skipped and reported by zero update count, with no exception nor rollback; UPDLOCK + HOLDLOCK serialize concurrent inserts of the same key
+		insertTaskMetaSQL = "INSERT INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
+				" SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, CAST(FORMAT(SYSDATETIME(),'yyMMddHHmmssfffffff') AS BIGINT) + ?), GETDATE(), " + ClusterTaskStatus.PENDING.value +
+				" WHERE NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " WITH (UPDLOCK, HOLDLOCK)" +
+				"   WHERE " + PROCESSOR_TYPE + " = ? AND " + UNIQUENESS_KEY + " = ? AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value + ")";
 		updateScheduledTaskIntervalSQL = "UPDATE " + META_TABLE_NAME +
 				" SET " + CREATED + " = GETDATE(), " + DELAY_BY_MILLIS + " = ?" +
 				" WHERE " + PROCESSOR_TYPE + " = ? AND " + TASK_TYPE + " = " + ClusterTaskType.SCHEDULED.value + " AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value;
 
+		//  channels are registered idempotently, UPDLOCK and HOLDLOCK serialize the concurrent registrations of the same channel
+		insertChannelSQL = "INSERT INTO " + CHANNEL_TABLE_NAME + " (" + CHANNEL_KEY + ")" +
+				" SELECT ? WHERE NOT EXISTS (SELECT 1 FROM " + CHANNEL_TABLE_NAME + " WITH (UPDLOCK, HOLDLOCK) WHERE " + CHANNEL_KEY + " = ?)";
+		insertMissingChannelsSQL = "INSERT INTO " + CHANNEL_TABLE_NAME + " (" + CHANNEL_KEY + ")" +
+				" SELECT DISTINCT " + CONCURRENCY_KEY + " FROM " + META_TABLE_NAME + " m" +
+				" WHERE " + CONCURRENCY_KEY + " IS NOT NULL" +
+				"   AND NOT EXISTS (SELECT 1 FROM " + CHANNEL_TABLE_NAME + " c WITH (UPDLOCK, HOLDLOCK) WHERE c." + CHANNEL_KEY + " = m." + CONCURRENCY_KEY + ")";
+
 		//  select and run tasks flow
-		takeLockForSelectForRunTasksSQL = "BEGIN TRAN; EXEC sp_getapplock @Resource = 'LOCK_FOR_TASKS_DISPATCH', @LockMode = 'Exclusive', @LockOwner = 'Transaction'";
-		String selectFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, ORDERING_FACTOR, DELAY_BY_MILLIS, BODY_PARTITION, STATUS);
+		//  single lock keeps the original resource name, so that the nodes of the former versions are still mutually excluded
+		//  locks are tried with no wait (the next stripe is tried only if all the former ones were acquired), release is guarded so that only the acquired ones are released
+		for (int stripe = 0; stripe < dispatchLockStripes; stripe++) {
+			String lockResource = dispatchLockStripes == 1 ? "LOCK_FOR_TASKS_DISPATCH" : "LOCK_FOR_TASKS_DISPATCH_" + stripe;
+			takeLockForSelectForRunTasksSQLs.put(stripe, "IF @lockResult >= 0 EXEC @lockResult = sp_getapplock @Resource = '" + lockResource + "', @LockMode = 'Exclusive', @LockOwner = 'Transaction', @LockTimeout = 0");
+			releaseLockForSelectForRunTasksSQLs.put(stripe, "IF APPLOCK_MODE('public', '" + lockResource + "', 'Transaction') <> 'NoLock' EXEC sp_releaseapplock @Resource = '" + lockResource + "', @LockOwner = 'Transaction'");
+		}
+		String selectFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, ORDERING_FACTOR, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, STATUS);
 		for (int maxProcessorTypes : new Integer[]{20, 50, 100, 500}) {
-			String processorTypesInParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "?"));
-			selectForUpdateTasksSQLs.put(maxProcessorTypes,
-					"SELECT * FROM" +
-							"   (SELECT " + selectFields + "," +
-							"       ROW_NUMBER() OVER (PARTITION BY " + CONCURRENCY_KEY + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS row_index," +
-							"       COUNT(CASE WHEN " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + " THEN 1 ELSE NULL END) OVER (PARTITION BY " + CONCURRENCY_KEY + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS running_count" +
-							"   FROM " + META_TABLE_NAME +
-							"   WHERE " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
-							"       AND " + STATUS + " < " + ClusterTaskStatus.FINISHED.value +
-							"       AND " + CREATED + " < DATEADD(MILLISECOND, -" + DELAY_BY_MILLIS + ", GETDATE())) meta" +
-							" WHERE ((meta." + CONCURRENCY_KEY + " IS NOT NULL AND meta.row_index <= 1 AND meta.running_count = 0)" +
-							"       OR (meta." + CONCURRENCY_KEY + " IS NULL AND meta." + STATUS + " = " + ClusterTaskStatus.PENDING.value + "))"
+			selectForUpdateTasksSQLs.put(maxProcessorTypes, buildSelectForUpdateTasksSQL(selectFields, maxProcessorTypes, false));
+			selectForUpdateChanneledTasksSQLs.put(maxProcessorTypes, buildSelectForUpdateTasksSQL(selectFields, maxProcessorTypes, true));
+
+			//  concurrent dispatch: non-channeled tasks are claimed with row locks, skipping (READPAST) the rows already claimed by the other nodes
+			//  tasks of each processor are locked up to its limit (paired with the processor type), padding pairs (null, 0) match no tasks
+			String processorCapacitiesParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "(?, ?)"));
+			selectClaimableTasksSQLs.put(maxProcessorTypes,
+					"SELECT c.* FROM (VALUES " + processorCapacitiesParameter + ") AS capacities (processor_type, capacity)" +
+							" CROSS APPLY (SELECT TOP (capacities.capacity) " + selectFields + " FROM " + META_TABLE_NAME + " WITH (UPDLOCK, READPAST, ROWLOCK)" +
+							"   WHERE " + PROCESSOR_TYPE + " = capacities.processor_type" +
+							"       AND " + CONCURRENCY_KEY + " IS NULL" +
+							"       AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+							"       AND " + CREATED + " < DATEADD(MILLISECOND, -" + DELAY_BY_MILLIS + ", GETDATE())" +
+							"   ORDER BY " + ORDERING_FACTOR + "," + META_ID + ") c" +
+							" ORDER BY c." + ORDERING_FACTOR + ",c." + META_ID
 			);
 		}
 		for (long partition = 0; partition < PARTITIONS_NUMBER; partition++) {
-			selectTaskBodyByPartitionSQLs.put(partition, "SELECT " + BODY + " FROM " + BODY_TABLE_NAME + partition +
+			selectTaskBodyByPartitionSQLs.put(partition, "SELECT " + String.join(",", BODY_FORMAT, BODY, BODY_BINARY) + " FROM " + BODY_TABLE_NAME + partition +
 					" WHERE " + BODY_ID + " = ?");
-			insertTaskWithBodySQLs.put(partition, "DECLARE @taskId BIGINT = NEXT VALUE FOR " + CLUSTER_TASK_ID_SEQUENCE + ";" +
-					" INSERT INTO " + BODY_TABLE_NAME + partition + " (" + BODY_ID + "," + BODY + ") VALUES (@taskId, ?);" +
-					" INSERT INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
-					" VALUES (@taskId, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, CAST(FORMAT(SYSDATETIME(),'yyMMddHHmmssfffffff') AS BIGINT) + ?), GETDATE(), " + ClusterTaskStatus.PENDING.value + ");"
-			);
+			insertTaskBodySQLs.put(partition, "INSERT INTO " + BODY_TABLE_NAME + partition + " (" + String.join(",", BODY_ID, BODY, BODY_BINARY, BODY_FORMAT) + ") VALUES (?, ?, ?, ?)");
 		}
 		updateTasksStartedSQL = "UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + ", " + STARTED + " = GETDATE(), " + RUNTIME_INSTANCE + " = ?" +
 				" WHERE " + META_ID + " = ?";
-		releaseLockForSelectForRunTasksSQL = "EXEC sp_releaseapplock @Resource = 'LOCK_FOR_TASKS_DISPATCH', @LockOwner = 'Transaction'; COMMIT TRAN";
+		claimTaskSQL = "UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + ", " + STARTED + " = GETDATE(), " + RUNTIME_INSTANCE + " = ?" +
+				" WHERE " + META_ID + " = ? AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"   AND (" + CONCURRENCY_KEY + " IS NULL OR NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " r" +
+				"       WHERE r." + CONCURRENCY_KEY + " = " + META_TABLE_NAME + "." + CONCURRENCY_KEY + " AND r." + STATUS + " = " + ClusterTaskStatus.RUNNING.value + "))";
 
 		//  clean up tasks flow
-		takeLockForSelectForCleanTasksSQL = "BEGIN TRAN; EXEC sp_getapplock @Resource = 'LOCK_FOR_TASKS_GC', @LockMode = 'Exclusive', @LockOwner = 'Transaction'";
+		takeLockForSelectForCleanTasksSQL = "SET NOCOUNT ON; BEGIN TRAN; DECLARE @lockResult INT;" +
+				" EXEC @lockResult = sp_getapplock @Resource = 'LOCK_FOR_TASKS_GC', @LockMode = 'Exclusive', @LockOwner = 'Transaction', @LockTimeout = 0;" +
+				" SELECT CASE WHEN @lockResult >= 0 THEN 1 ELSE 0 END AS lock_acquired";
 		String selectedForGCFields = String.join(",", META_ID, BODY_PARTITION, TASK_TYPE, PROCESSOR_TYPE, DELAY_BY_MILLIS, STATUS);
 		selectReRunnableStaledTasksSQL = "SELECT " + selectedForGCFields + " FROM " + META_TABLE_NAME +
 				" WHERE " + TASK_TYPE + " = " + ClusterTaskType.SCHEDULED.value +
 				"   AND " + RUNTIME_INSTANCE + " IS NOT NULL" +
 				"   AND NOT EXISTS (SELECT 1 FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_ID + " = " + RUNTIME_INSTANCE + ")";
-		releaseLockForSelectForCleanTasksSQL = "EXEC sp_releaseapplock @Resource = 'LOCK_FOR_TASKS_GC', @LockOwner = 'Transaction'; COMMIT TRAN";
+		releaseLockForSelectForCleanTasksSQL = "IF APPLOCK_MODE('public', 'LOCK_FOR_TASKS_GC', 'Transaction') <> 'NoLock' EXEC sp_releaseapplock @Resource = 'LOCK_FOR_TASKS_GC', @LockOwner = 'Transaction'; COMMIT TRAN";
+	}
+
+	private String buildSelectForUpdateTasksSQL(String selectFields, int maxProcessorTypes, boolean channeledOnly) {
+		//  channeled tasks: head (first non-finished task ready to run) of each channel, given it is PENDING and the channel is not running a task
+		//  the cost scales with the number of the channels rather than with the backlog size
+		//  non-channeled PENDING tasks are capped per processor type by the parameter paired with it, so that the rows transferred scale with the free workers, not with the backlog
+		String processorTypesInParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "?"));
+		String processorCapsParameter = String.join(" ", Collections.nCopies(maxProcessorTypes, "WHEN ? THEN ?"));
+		String readyToRunCondition = CREATED + " < DATEADD(MILLISECOND, -" + DELAY_BY_MILLIS + ", GETDATE())";
+		String channelNotRunningCondition = "(c." + CHANNEL_RUNNING_TASK_ID + " IS NULL" +
+				" OR NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " r WHERE r." + META_ID + " = c." + CHANNEL_RUNNING_TASK_ID + " AND r." + STATUS + " = " + ClusterTaskStatus.RUNNING.value + "))";
+		String channelHeadsSQL = "SELECT h.* FROM " + CHANNEL_TABLE_NAME + " c" +
+				" CROSS APPLY (SELECT TOP 1 " + selectFields + " FROM " + META_TABLE_NAME +
+				"   WHERE " + CONCURRENCY_KEY + " = c." + CHANNEL_KEY +
+				"       AND " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
+				"       AND " + STATUS + " < " + ClusterTaskStatus.FINISHED.value +
+				"       AND " + readyToRunCondition +
+				"   ORDER BY " + ORDERING_FACTOR + "," + META_ID + ") h" +
+				" WHERE h." + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"   AND " + channelNotRunningCondition;
+		if (channeledOnly) {
+			return channelHeadsSQL;
+		}
+		return channelHeadsSQL +
+				" UNION ALL " +
+				"SELECT " + selectFields + " FROM" +
+				"   (SELECT " + selectFields + "," +
+				"       ROW_NUMBER() OVER (PARTITION BY " + PROCESSOR_TYPE + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS processor_row_index" +
+				"   FROM " + META_TABLE_NAME +
+				"   WHERE " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
+				"       AND " + CONCURRENCY_KEY + " IS NULL" +
+				"       AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"       AND " + readyToRunCondition + ") meta" +
+				" WHERE meta.processor_row_index <= CASE meta." + PROCESSOR_TYPE + " " + processorCapsParameter + " ELSE 0 END";
 	}
 
 	@Override
@@ -137,6 +225,29 @@ final class MsSqlDbDataProvider extends ClusterTasksDbDataProvider {
 		return updateScheduledTaskIntervalSQL;
 	}
 
+	@Override
+	String getClaimTaskSQL() {
+		return claimTaskSQL;
+	}
+
+	@Override
+	String getInsertMissingChannelsSQL() {
+		return insertMissingChannelsSQL;
+	}
+
+	@Override
+	void insertChannels(JdbcTemplate jdbcTemplate, List<String> concurrencyKeys) {
+		List<Object[]> insertParams = concurrencyKeys.stream()
+				.map(key -> new Object[]{key, key})
+				.collect(Collectors.toList());
+		jdbcTemplate.batchUpdate(insertChannelSQL, insertParams, new int[]{Types.NVARCHAR, Types.NVARCHAR});
+	}
+
+	@Override
+	String getSelectTaskBodySQL(Long partitionIndex) {
+		return selectTaskBodyByPartitionSQLs.get(partitionIndex);
+	}
+
 	@Override
 	public boolean isReady() {
 		if (isReady == null || !isReady) {
@@ -179,175 +290,224 @@ final class MsSqlDbDataProvider extends ClusterTasksDbDataProvider {
 	}
 
 	@Override
-	public ClusterTaskPersistenceResult[] storeTasks(ClusterTaskImpl... tasks) {
-		List<ClusterTaskPersistenceResult> result = new ArrayList<>(tasks.length);
+	boolean insertTask(JdbcTemplate jdbcTemplate, ClusterTaskImpl task) {
+		task.id = taskIdsAllocator.nextId();
+		if (task.hasOwnBody()) {
+			task.partitionIndex = resolveBodyTablePartitionIndex();
+		}
+		int inserted = jdbcTemplate.update(insertTaskMetaSQL, buildInsertTaskMetaParams(task), insertTaskMetaParamTypes);
+		if (inserted == 0) {
+			return false;
+		} else if (inserted != 1) {
+			throw new IllegalStateException("insert of " + task + " resulted in " + inserted);
+		}
+		if (task.hasOwnBody()) {
+			insertTaskBody(jdbcTemplate, task);
+		}
+		return true;
+	}
 
+	@Override
+	boolean[] insertTasks(JdbcTemplate jdbcTemplate, List<ClusterTaskImpl> tasks) {
+		long partitionIndex = resolveBodyTablePartitionIndex();
+		List<Object[]> metaParams = new ArrayList<>(tasks.size());
 		for (ClusterTaskImpl task : tasks) {
-			getTransactionTemplate().execute(transactionStatus -> {
-				try {
-					JdbcTemplate jdbcTemplate = getJdbcTemplate();
-
-					//  prepare contents
-					String insertTaskSql;
-					Object[] paramValues;
-					int[] paramTypes;
-					boolean hasBody = task.body != null;
-					if (hasBody) {
-						task.partitionIndex = resolveBodyTablePartitionIndex();
-						insertTaskSql = insertTaskWithBodySQLs.get(task.partitionIndex);
-						paramValues = new Object[]{
-								task.body,
-								task.taskType.value,
-								task.processorType,
-								task.uniquenessKey,
-								task.concurrencyKey,
-								task.applicationKey,
-								task.delayByMillis,
-								task.partitionIndex,
-								task.orderingFactor,
-								task.delayByMillis
-						};
-						paramTypes = new int[]{
-								Types.CLOB,                 //  task body -  will be used only if actually has body
-								Types.BIGINT,               //  task type
-								Types.NVARCHAR,             //  processor type
-								Types.NVARCHAR,             //  uniqueness key
-								Types.NVARCHAR,             //  concurrency key
-								Types.NVARCHAR,             //  application key
-								Types.BIGINT,               //  delay by millis
-								Types.BIGINT,               //  partition index
-								Types.BIGINT,               //  ordering factor
-								Types.BIGINT                //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
-						};
-					} else {
-						insertTaskSql = insertTaskWithoutBodySQL;
-						paramValues = new Object[]{
-								task.taskType.value,
-								task.processorType,
-								task.uniquenessKey,
-								task.concurrencyKey,
-								task.applicationKey,
-								task.delayByMillis,
-								task.partitionIndex,
-								task.orderingFactor,
-								task.delayByMillis
-						};
-						paramTypes = new int[]{
-								Types.BIGINT,               //  task type
-								Types.NVARCHAR,             //  processor type
-								Types.NVARCHAR,             //  uniqueness key
-								Types.NVARCHAR,             //  concurrency key
-								Types.NVARCHAR,             //  application key
-								Types.BIGINT,               //  delay by millis
-								Types.BIGINT,               //  partition index
-								Types.BIGINT,               //  ordering factor
-								Types.BIGINT                //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
-						};
-					}
-
-					//  insert task
-					jdbcTemplate.update(insertTaskSql, paramValues, paramTypes);
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.SUCCESS));
-					if (logger.isDebugEnabled()) {
-						logger.debug("successfully created " + task);
-					}
-				} catch (DuplicateKeyException dke) {
-					transactionStatus.setRollbackOnly();
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE));
-					logger.info(clusterTasksService.getInstanceID() + " rejected " + task + " due to uniqueness violation; specifically: " + dke.getMostSpecificCause().getMessage());
-				} catch (Exception e) {
-					transactionStatus.setRollbackOnly();
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNEXPECTED_FAILURE));
-					logger.error(clusterTasksService.getInstanceID() + " failed to persist " + task, e);
-				}
-				return null;
-			});
+			task.id = taskIdsAllocator.nextId();
+			if (task.hasOwnBody()) {
+				task.partitionIndex = partitionIndex;
+			}
+			metaParams.add(buildInsertTaskMetaParams(task));
+		}
+		int[] updateCounts = jdbcTemplate.batchUpdate(insertTaskMetaSQL, metaParams, insertTaskMetaParamTypes);
+
+		//  bodies are inserted only for the tasks, that were not rejected due to uniqueness violation
+		boolean[] result = resolveInsertedTasks(jdbcTemplate, tasks, updateCounts);
+		List<Object[]> bodyParams = new ArrayList<>();
+		for (int i = 0; i < tasks.size(); i++) {
+			if (result[i] && tasks.get(i).hasOwnBody()) {
+				bodyParams.add(buildInsertTaskBodyParams(tasks.get(i)));
+			}
+		}
+		if (!bodyParams.isEmpty()) {
+			jdbcTemplate.batchUpdate(insertTaskBodySQLs.get(partitionIndex), bodyParams, insertTaskBodyParamTypes);
 		}
+		return result;
+	}
 
-		return result.toArray(new ClusterTaskPersistenceResult[0]);
+	@Override
+	long reserveTaskId(JdbcTemplate jdbcTemplate) {
+		return taskIdsAllocator.nextId();
+	}
+
+	@Override
+	void insertTaskBody(JdbcTemplate jdbcTemplate, ClusterTaskImpl task) {
+		jdbcTemplate.update(insertTaskBodySQLs.get(task.partitionIndex), buildInsertTaskBodyParams(task), insertTaskBodyParamTypes);
 	}
 
 	@Override
-	public void retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
+	public int retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		//  optimistic dispatch claims the tasks with no cluster wide lock at all
+		if (isOptimisticDispatchEnabled()) {
+			return optimisticallyDispatchTasks(availableProcessors);
+		}
+
 		Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun = new HashMap<>();
+		boolean concurrentDispatch = isConcurrentDispatchEnabled();
+		List<Integer> lockStripes = resolveDispatchLockStripes(availableProcessors.keySet());
+		Map<Integer, String> selectForUpdateSQLs = concurrentDispatch ? selectForUpdateChanneledTasksSQLs : selectForUpdateTasksSQLs;
 		JdbcTemplate jdbcTemplate = getJdbcTemplate();
 
 		//  within the same transaction do:
 		//  - SELECT candidate tasks to be run
 		//  - LET processors to pick up the tasks that will actually run
 		//  - UPDATE those tasks as RUNNING
-		getTransactionTemplate().execute(transactionStatus -> {
-			try {
-				String[] availableProcessorTypes = availableProcessors.keySet().toArray(new String[0]);
-				Integer paramsTotal = null;
-				String sql = null;
-				for (Map.Entry<Integer, String> testedParam : selectForUpdateTasksSQLs.entrySet()) {
-					if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
-						sql = testedParam.getValue();
-						break;
+		//  contention of the lock fails the channeled part of the round only, the rest of the round is completed regardless
+		ClusterTasksLockContendedException contention = null;
+		try {
+			getTransactionTemplate().execute(transactionStatus -> {
+				try {
+					Integer paramsTotal = null;
+					String sql = null;
+					for (Map.Entry<Integer, String> testedParam : selectForUpdateSQLs.entrySet()) {
+						if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
+							sql = testedParam.getValue();
+							break;
+						}
+					}
+					if (paramsTotal == null || sql == null) {
+						throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
 					}
-				}
-				if (paramsTotal == null || sql == null) {
-					throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
-				}
 
-				//  prepare params
-				Object[] params = new Object[paramsTotal];
-				System.arraycopy(availableProcessorTypes, 0, params, 0, availableProcessorTypes.length);
-				for (int i = availableProcessorTypes.length; i < paramsTotal; i++) params[i] = null;
-
-				//  prepare param types
-				int[] paramTypes = new int[paramsTotal];
-				for (int i = 0; i < paramsTotal; i++) paramTypes[i] = Types.NVARCHAR;
-
-				List<ClusterTaskImpl> tasks;
-				jdbcTemplate.execute(takeLockForSelectForRunTasksSQL);
-				tasks = jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
-				if (tasks != null && !tasks.isEmpty()) {
-					Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType));
-					Set<Long> tasksToRunIDs = new HashSet<>();
-
-					//  let processors decide which tasks will be processed from all available
-					tasksByProcessor.forEach((processorType, processorTasks) -> {
-						ClusterTasksProcessorBase processor = availableProcessors.get(processorType);
-						Collection<ClusterTaskImpl> tmpTasks = processor.selectTasksToRun(processorTasks);
-						tasksToRun.put(processor, tmpTasks);
-						tasksToRunIDs.addAll(tmpTasks.stream().map(task -> task.id).collect(Collectors.toList()));
-					});
-
-					//  update selected tasks to RUNNING
-					if (!tasksToRunIDs.isEmpty()) {
-						String runtimeInstanceID = clusterTasksService.getInstanceID();
-						List<Object[]> updateParams = tasksToRunIDs.stream()
-								.sorted()
-								.map(id -> new Object[]{runtimeInstanceID, id})
-								.collect(Collectors.toList());
-						int[] updateResults = jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.NVARCHAR, Types.BIGINT});
-						if (logger.isDebugEnabled()) {
-							logger.debug("update tasks to RUNNING results: " + Stream.of(updateResults).map(String::valueOf).collect(Collectors.joining(", ")));
-							logger.debug("from a total of " + tasks.size() + " available tasks " + tasksToRunIDs.size() + " has been started");
+					//  prepare params and param types
+					Object[] params = buildSelectForUpdateTasksParams(availableProcessors, paramsTotal, !concurrentDispatch);
+					int[] paramTypes = buildSelectForUpdateTasksParamTypes(paramsTotal, !concurrentDispatch, Types.NVARCHAR);
+
+					List<ClusterTaskImpl> tasks;
+					Integer lockAcquired = jdbcTemplate.queryForObject(lockStripes.stream()
+							.map(takeLockForSelectForRunTasksSQLs::get)
+							.collect(Collectors.joining("; ", "SET NOCOUNT ON; BEGIN TRAN; DECLARE @lockResult INT = 0; ", "; SELECT CASE WHEN @lockResult >= 0 THEN 1 ELSE 0 END AS lock_acquired")), Integer.class);
+					if (lockAcquired == null || lockAcquired != 1) {
+						throw lockContended(DISPATCH_LOCK);
+					}
+					tasks = jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+					if (tasks != null && !tasks.isEmpty()) {
+						Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType));
+						Set<Long> tasksToRunIDs = new HashSet<>();
+
+						//  let processors decide which tasks will be processed from all available
+						tasksByProcessor.forEach((processorType, processorTasks) -> {
+							ClusterTasksProcessorBase processor = availableProcessors.get(processorType);
+							Collection<ClusterTaskImpl> tmpTasks = processor.selectTasksToRun(processorTasks);
+							tasksToRun.put(processor, tmpTasks);
+							tasksToRunIDs.addAll(tmpTasks.stream().map(task -> task.id).collect(Collectors.toList()));
+						});
+
+						//  update selected tasks to RUNNING
+						if (!tasksToRunIDs.isEmpty()) {
+							String runtimeInstanceID = clusterTasksService.getInstanceID();
+							List<Object[]> updateParams = tasksToRunIDs.stream()
+									.sorted()
+									.map(id -> new Object[]{runtimeInstanceID, id})
+									.collect(Collectors.toList());
+							int[] updateResults = jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.NVARCHAR, Types.BIGINT});
+							updateChannelsStarted(jdbcTemplate, tasksToRun);
+							if (logger.isDebugEnabled()) {
+								logger.debug("update tasks to RUNNING results: " + Stream.of(updateResults).map(String::valueOf).collect(Collectors.joining(", ")));
+								logger.debug("from a total of " + tasks.size() + " available tasks " + tasksToRunIDs.size() + " has been started");
+							}
+						} else {
+							logger.warn("from a total of " + tasks.size() + " available tasks none has been started");
 						}
-					} else {
-						logger.warn("from a total of " + tasks.size() + " available tasks none has been started");
 					}
+				} catch (ClusterTasksLockContendedException lce) {
+					transactionStatus.setRollbackOnly();
+					tasksToRun.clear();
+					throw lce;
+				} catch (Throwable t) {
+					transactionStatus.setRollbackOnly();
+					tasksToRun.clear();
+					throw new CtsGeneralFailure("failed to retrieve and execute tasks", t);
+				} finally {
+					jdbcTemplate.execute(lockStripes.stream()
+							.sorted(Collections.reverseOrder())
+							.map(releaseLockForSelectForRunTasksSQLs::get)
+							.collect(Collectors.joining("; ", "", "; COMMIT TRAN")));
 				}
-			} catch (Throwable t) {
-				transactionStatus.setRollbackOnly();
-				tasksToRun.clear();
-				throw new CtsGeneralFailure("failed to retrieve and execute tasks", t);
-			} finally {
-				jdbcTemplate.execute(releaseLockForSelectForRunTasksSQL);
-			}
 
-			return null;
-		});
+				return null;
+			});
+		} catch (ClusterTasksLockContendedException lce) {
+			contention = lce;
+		}
 
 		//  actually deliver tasks to processors
-		tasksToRun.forEach((processor, tasks) -> processor.handleTasks(tasks, this));
+		return completeDispatchRound(tasksToRun, availableProcessors, concurrentDispatch, contention);
+	}
+
+	@Override
+	List<ClusterTaskImpl> selectDispatchCandidates(JdbcTemplate jdbcTemplate, Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		Integer paramsTotal = null;
+		String sql = null;
+		for (Map.Entry<Integer, String> testedParam : selectForUpdateTasksSQLs.entrySet()) {
+			if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
+				sql = testedParam.getValue();
+				break;
+			}
+		}
+		if (paramsTotal == null || sql == null) {
+			throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
+		}
+
+		Object[] params = buildSelectForUpdateTasksParams(availableProcessors, paramsTotal, true);
+		int[] paramTypes = buildSelectForUpdateTasksParamTypes(paramsTotal, true, Types.NVARCHAR);
+		return jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+	}
+
+	@Override
+	List<ClusterTaskImpl> selectClaimableTasks(JdbcTemplate jdbcTemplate, Map<String, Integer> claimLimits) {
+		Integer paramsTotal = null;
+		String sql = null;
+		for (Map.Entry<Integer, String> testedParam : selectClaimableTasksSQLs.entrySet()) {
+			if ((paramsTotal = testedParam.getKey()) >= claimLimits.size()) {
+				sql = testedParam.getValue();
+				break;
+			}
+		}
+		if (paramsTotal == null || sql == null) {
+			throw new IllegalStateException("failed to match 'selectClaimableTasks' SQL for the amount of " + claimLimits.size() + " processors");
+		}
+
+		//  TOP does not accept NULL, hence the padding pairs are given 0 capacity
+		Object[] params = new Object[paramsTotal * 2];
+		int[] paramTypes = new int[paramsTotal * 2];
+		int index = 0;
+		for (Map.Entry<String, Integer> claimLimit : claimLimits.entrySet()) {
+			params[index * 2] = claimLimit.getKey();
+			params[index * 2 + 1] = claimLimit.getValue();
+			index++;
+		}
+		for (int i = 0; i < paramsTotal; i++) {
+			if (i >= claimLimits.size()) {
+				params[i * 2 + 1] = 0;
+			}
+			paramTypes[i * 2] = Types.NVARCHAR;
+			paramTypes[i * 2 + 1] = Types.INTEGER;
+		}
+
+		return jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+	}
+
+	@Override
+	void updateTasksStarted(JdbcTemplate jdbcTemplate, Collection<Long> taskIds) {
+		String runtimeInstanceID = clusterTasksService.getInstanceID();
+		List<Object[]> updateParams = taskIds.stream()
+				.map(id -> new Object[]{runtimeInstanceID, id})
+				.collect(Collectors.toList());
+		jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.NVARCHAR, Types.BIGINT});
 	}
 
 	@Override
-	public String retrieveTaskBody(Long taskId, Long partitionIndex) {
+	public ClusterTaskBodyCodec.DecodedBody retrieveTaskBody(Long taskId, Long partitionIndex) {
 		try {
 			JdbcTemplate jdbcTemplate = getJdbcTemplate();
 			String sql = selectTaskBodyByPartitionSQLs.get(partitionIndex);
@@ -380,12 +540,39 @@ final class MsSqlDbDataProvider extends ClusterTasksDbDataProvider {
 		return getJdbcTemplate().update(removeLongTimeNoSeeSQL, new Object[]{maxTimeNoSeeMillis}, new int[]{Types.BIGINT});
 	}
 
+	private ClusterTaskIdsAllocator.IdsBlock reserveTaskIdsBlock() {
+		Long rangeFirstValue = getJdbcTemplate().queryForObject(reserveTaskIdsBlockSQL, new Object[]{taskIdsBlockSize}, new int[]{Types.INTEGER}, Long.class);
+		if (rangeFirstValue == null) {
+			throw new IllegalStateException("failed to reserve range of " + taskIdsBlockSize + " values from " + CLUSTER_TASK_ID_SEQUENCE);
+		}
+		return new ClusterTaskIdsAllocator.IdsBlock(rangeFirstValue, taskIdsBlockSize);
+	}
+
+	private Object[] buildInsertTaskMetaParams(ClusterTaskImpl task) {
+		return new Object[]{
+				task.id,
+				task.taskType.value,
+				task.processorType,
+				task.uniquenessKey,
+				task.concurrencyKey,
+				task.applicationKey,
+				task.delayByMillis,
+				task.partitionIndex,
+				task.bodyId,
+				task.bodyInline ? task.body : null,
+				task.orderingFactor,
+				task.delayByMillis,
+				task.processorType,
+				task.uniquenessKey
+		};
+	}
+
 	private Set<String> getCTSTableNames() {
-		return Stream.of(ACTIVE_NODES_TABLE_NAME, META_TABLE_NAME, BODY_TABLE_NAME + "0", BODY_TABLE_NAME + "1", BODY_TABLE_NAME + "2", BODY_TABLE_NAME + "3").collect(Collectors.toSet());
+		return Stream.of(ACTIVE_NODES_TABLE_NAME, META_TABLE_NAME, BODY_TABLE_NAME + "0", BODY_TABLE_NAME + "1", BODY_TABLE_NAME + "2", BODY_TABLE_NAME + "3", CHANNEL_TABLE_NAME, SIGNAL_TABLE_NAME).collect(Collectors.toSet());
 	}
 
 	private Set<String> getCTSIndexNames() {
-		return Stream.of("CTSAN_PK", "CTSKM_PK", "CTSKM_IDX_2", "CTSKM_IDX_5", "CTSKM_IDX_6", "CTSKB_PK_P0", "CTSKB_PK_P1", "CTSKB_PK_P2", "CTSKB_PK_P3").collect(Collectors.toSet());
+		return Stream.of("CTSAN_PK", "CTSKM_PK", "CTSKM_IDX_2", "CTSKM_IDX_5", "CTSKM_IDX_6", "CTSKM_IDX_7", "CTSKM_IDX_8", "CTSKC_PK", "CTSKS_PK", "CTSKB_PK_P0", "CTSKB_PK_P1", "CTSKB_PK_P2", "CTSKB_PK_P3").collect(Collectors.toSet());
 	}
 
 	private Set<String> getCTSSequenceNames() {
@@ -10,17 +10,16 @@ package com.microfocus.cluster.tasks.impl;
 
 import com.microfocus.cluster.tasks.api.ClusterTasksService;
 import com.microfocus.cluster.tasks.api.ClusterTasksServiceConfigurerSPI;
-import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
-import com.microfocus.cluster.tasks.api.enums.ClusterTaskInsertStatus;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskStatus;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskType;
 import com.microfocus.cluster.tasks.api.errors.CtsGeneralFailure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 
+import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -50,16 +49,49 @@ final class OracleDbDataProvider extends ClusterTasksDbDataProvider {
 	private final String updateSelfLastSeenSQL;
 	private final String removeLongTimeNoSeeSQL;
 
-	private final String insertTaskWithoutBodySQL;
-	private final Map<Long, String> insertTaskWithBodySQL = new LinkedHashMap<>();
+	private final String reserveTaskIdsBlockSQL;
+	private final ClusterTaskIdsAllocator taskIdsAllocator;
+	private final String insertTaskMetaSQL;
+	private final Map<Long, String> insertTaskBodySQLs = new LinkedHashMap<>();
 	private final String updateScheduledTaskIntervalSQL;
-
-	private final String lockMetadataTable;
+	private final String insertChannelSQL;
+	private final String insertMissingChannelsSQL;
+	private final int[] insertTaskMetaParamTypes = new int[]{
+			Types.BIGINT,               //  task ID
+			Types.BIGINT,               //  task type
+			Types.NVARCHAR,             //  processor type
+			Types.NVARCHAR,             //  uniqueness key
+			Types.NVARCHAR,             //  concurrency key
+			Types.NVARCHAR,             //  application key
+			Types.BIGINT,               //  delay by millis
+			Types.BIGINT,               //  partition index
+			Types.BIGINT,               //  shared body ID
+			Types.VARCHAR,              //  inline body
+			Types.BIGINT,               //  ordering factor
+			Types.BIGINT                //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
+	};
+	private final int[] insertTaskBodyParamTypes = new int[]{
+			Types.BIGINT,               //  task ID
+			Types.CLOB,                 //  task body - text
+			Types.BLOB,                 //  task body - binary
+			Types.INTEGER               //  task body format
+	};
+
+	private static final String LOCK_TABLE_NAME = "CLUSTER_TASK_LOCK";
+	private static final String LOCK_ID = "CTSKL_ID";
+	//  rows 0 to 63 are the dispatch lock stripes
+	private static final int GC_LOCK_ROW_ID = 100;
+
+	private final Map<Integer, String> lockDispatchStripeSQLs = new LinkedHashMap<>();
 	private final Map<Integer, String> selectForUpdateTasksSQLs = new LinkedHashMap<>();
+	private final Map<Integer, String> selectForUpdateChanneledTasksSQLs = new LinkedHashMap<>();
+	private final String selectClaimableTasksSQL;
 	private final Map<Long, String> selectTaskBodyByPartitionSQLs = new LinkedHashMap<>();
 
 	private final String updateTasksStartedSQL;
+	private final String claimTaskSQL;
 
+	private final String lockForSelectForCleanTasksSQL;
 	private final String selectStaledTasksSQL;
 
 	OracleDbDataProvider(ClusterTasksService clusterTasksService, ClusterTasksServiceConfigurerSPI serviceConfigurer) {
@@ -78,56 +110,114 @@ final class OracleDbDataProvider extends ClusterTasksDbDataProvider {
 		removeLongTimeNoSeeSQL = "DELETE FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_LAST_SEEN + " < (SYSDATE - NUMTODSINTERVAL(? / 1000, 'SECOND'))";
 
 		//  insert / update tasks
-		String insertFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, DELAY_BY_MILLIS, BODY_PARTITION, ORDERING_FACTOR, CREATED, STATUS);
-		insertTaskWithoutBodySQL = "INSERT INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
-				" VALUES (" + CLUSTER_TASK_ID_SEQUENCE + ".NEXTVAL, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, TO_NUMBER(TO_CHAR(SYSTIMESTAMP,'yymmddhh24missff6')) + ?), SYSDATE, " + ClusterTaskStatus.PENDING.value + ")";
+		//  task IDs are reserved in blocks (hi-lo): each NEXTVAL reserves the block of the sequence's INCREMENT BY size, starting with the returned value
+		reserveTaskIdsBlockSQL = "SELECT " + CLUSTER_TASK_ID_SEQUENCE + ".NEXTVAL AS block_first," +
+				" (SELECT INCREMENT_BY FROM user_sequences WHERE sequence_name = '" + CLUSTER_TASK_ID_SEQUENCE + "') AS block_size" +
+				" FROM DUAL";
+		taskIdsAllocator = new ClusterTaskIdsAllocator(this::reserveTaskIdsBlock);
+		String insertFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, ORDERING_FACTOR, CREATED, STATUS);
+		//  uniqueness conflicts are skipped by the unique index hint and reported by zero update count, with no exception nor rollback
+		insertTaskMetaSQL = "INSERT /*+ IGNORE_ROW_ON_DUPKEY_INDEX(" + META_TABLE_NAME + ", CTSKM_IDX_2) */ INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
+				" VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, TO_NUMBER(TO_CHAR(SYSTIMESTAMP,'yymmddhh24missff6')) + ?), SYSDATE, " + ClusterTaskStatus.PENDING.value + ")";
 		updateScheduledTaskIntervalSQL = "UPDATE " + META_TABLE_NAME +
 				" SET " + CREATED + " = SYSDATE, " + DELAY_BY_MILLIS + " = ?" +
 				" WHERE " + PROCESSOR_TYPE + " = ? AND " + TASK_TYPE + " = " + ClusterTaskType.SCHEDULED.value + " AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value;
 
+		//  channels are registered idempotently, existing ones are skipped by the primary key hint
+		insertChannelSQL = "INSERT /*+ IGNORE_ROW_ON_DUPKEY_INDEX(" + CHANNEL_TABLE_NAME + ", CTSKC_PK) */ INTO " + CHANNEL_TABLE_NAME + " (" + CHANNEL_KEY + ") VALUES (?)";
+		insertMissingChannelsSQL = "INSERT /*+ IGNORE_ROW_ON_DUPKEY_INDEX(" + CHANNEL_TABLE_NAME + ", CTSKC_PK) */ INTO " + CHANNEL_TABLE_NAME + " (" + CHANNEL_KEY + ")" +
+				" SELECT DISTINCT " + CONCURRENCY_KEY + " FROM " + META_TABLE_NAME + " m" +
+				" WHERE " + CONCURRENCY_KEY + " IS NOT NULL" +
+				"   AND NOT EXISTS (SELECT 1 FROM " + CHANNEL_TABLE_NAME + " c WHERE c." + CHANNEL_KEY + " = m." + CONCURRENCY_KEY + ")";
+
 		//  select and run tasks flow
-		lockMetadataTable = "LOCK TABLE " + META_TABLE_NAME + " IN EXCLUSIVE MODE";
-		String selectForRunFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, ORDERING_FACTOR, DELAY_BY_MILLIS, BODY_PARTITION, STATUS);
+		//  dispatch lock is a row per stripe in a table touched by the dispatchers only (DBMS_LOCK would require extra grants)
+		//  NOWAIT fails right away (ORA-00054) if another node holds the lock, and only then: enqueue and removal of tasks never lock these rows
+		for (int stripe = 0; stripe < dispatchLockStripes; stripe++) {
+			lockDispatchStripeSQLs.put(stripe, "SELECT " + LOCK_ID + " FROM " + LOCK_TABLE_NAME + " WHERE " + LOCK_ID + " = " + stripe + " FOR UPDATE NOWAIT");
+		}
+		String selectForRunFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, ORDERING_FACTOR, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, STATUS);
 		for (int maxProcessorTypes : new Integer[]{20, 50, 100, 500}) {
-			String processorTypesInParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "?"));
-			selectForUpdateTasksSQLs.put(maxProcessorTypes,
-					"SELECT * FROM" +
-							"   (SELECT " + selectForRunFields + "," +
-							"       ROW_NUMBER() OVER (PARTITION BY " + CONCURRENCY_KEY + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS row_index," +
-							"       COUNT(CASE WHEN " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + " THEN 1 ELSE NULL END) OVER (PARTITION BY " + CONCURRENCY_KEY + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS running_count" +
-							"   FROM /*+ INDEX(CTSKM_IDX_5) */ " + META_TABLE_NAME +
-							"   WHERE " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
-							"       AND " + STATUS + " < " + ClusterTaskStatus.FINISHED.value +
-							"       AND " + CREATED + " < SYSDATE - NUMTODSINTERVAL(" + DELAY_BY_MILLIS + " / 1000, 'SECOND')) meta" +
-							" WHERE ((meta." + CONCURRENCY_KEY + " IS NOT NULL AND meta.row_index <= 1 AND meta.running_count = 0)" +
-							"       OR (meta." + CONCURRENCY_KEY + " IS NULL AND meta." + STATUS + " = " + ClusterTaskStatus.PENDING.value + "))"
-			);
+			selectForUpdateTasksSQLs.put(maxProcessorTypes, buildSelectForUpdateTasksSQL(selectForRunFields, maxProcessorTypes, false));
+			selectForUpdateChanneledTasksSQLs.put(maxProcessorTypes, buildSelectForUpdateTasksSQL(selectForRunFields, maxProcessorTypes, true));
 		}
+
+		//  concurrent dispatch: non-channeled tasks are claimed with row locks, skipping the rows already claimed by the other nodes
+		//  claimed per processor type, each up to its own limit; the limit is applied while fetching, since the rows are locked as they are fetched
+		//  (row limiting clauses are not allowed with FOR UPDATE, nor is FOR UPDATE within a lateral join)
+		selectClaimableTasksSQL = "SELECT " + selectForRunFields + " FROM " + META_TABLE_NAME +
+				" WHERE " + PROCESSOR_TYPE + " = ?" +
+				"   AND " + CONCURRENCY_KEY + " IS NULL" +
+				"   AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"   AND " + CREATED + " < SYSDATE - NUMTODSINTERVAL(" + DELAY_BY_MILLIS + " / 1000, 'SECOND')" +
+				" ORDER BY " + ORDERING_FACTOR + "," + META_ID +
+				" FOR UPDATE SKIP LOCKED";
 		for (long partition = 0; partition < PARTITIONS_NUMBER; partition++) {
-			selectTaskBodyByPartitionSQLs.put(partition, "SELECT " + BODY + " FROM " + BODY_TABLE_NAME + partition +
+			selectTaskBodyByPartitionSQLs.put(partition, "SELECT " + String.join(",", BODY_FORMAT, BODY, BODY_BINARY) + " FROM " + BODY_TABLE_NAME + partition +
 					" WHERE " + BODY_ID + " = ?");
-			insertTaskWithBodySQL.put(partition, "DECLARE taskId NUMBER(19) := " + CLUSTER_TASK_ID_SEQUENCE + ".NEXTVAL;" +
-					" BEGIN" +
-					"   INSERT INTO " + BODY_TABLE_NAME + partition + " (" + String.join(",", BODY_ID, BODY) + ") VALUES (taskId, ?);" +
-					"   INSERT INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
-					"       VALUES (taskId, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, TO_NUMBER(TO_CHAR(SYSTIMESTAMP,'yymmddhh24missff6')) + ?), SYSDATE, " + ClusterTaskStatus.PENDING.value + ");" +
-					" END;");
+			insertTaskBodySQLs.put(partition, "INSERT INTO " + BODY_TABLE_NAME + partition + " (" + String.join(",", BODY_ID, BODY, BODY_BINARY, BODY_FORMAT) + ") VALUES (?, ?, ?, ?)");
 		}
 		updateTasksStartedSQL = "UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + ", " + STARTED + " = SYSDATE, " + RUNTIME_INSTANCE + " = ?" +
 				" WHERE " + META_ID + " = ?";
+		claimTaskSQL = "UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + ", " + STARTED + " = SYSDATE, " + RUNTIME_INSTANCE + " = ?" +
+				" WHERE " + META_ID + " = ? AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"   AND (" + CONCURRENCY_KEY + " IS NULL OR NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " r" +
+				"       WHERE r." + CONCURRENCY_KEY + " = " + META_TABLE_NAME + "." + CONCURRENCY_KEY + " AND r." + STATUS + " = " + ClusterTaskStatus.RUNNING.value + "))";
 
 		//  clean up tasks flow
+		//  GC lock is a dedicated row of the locks table, tried with no wait as the dispatch stripes are
+		lockForSelectForCleanTasksSQL = "SELECT 1 FROM " + LOCK_TABLE_NAME + " WHERE " + LOCK_ID + " = " + GC_LOCK_ROW_ID + " FOR UPDATE NOWAIT";
 		String selectedForGCFields = String.join(",", META_ID, BODY_PARTITION, TASK_TYPE, PROCESSOR_TYPE, DELAY_BY_MILLIS, STATUS);
 		selectStaledTasksSQL = "SELECT " + selectedForGCFields + " FROM " + META_TABLE_NAME +
 				" WHERE " + TASK_TYPE + " = " + ClusterTaskType.SCHEDULED.value +
 				"   AND " + RUNTIME_INSTANCE + " IS NOT NULL" +
-				"   AND NOT EXISTS (SELECT 1 FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_ID + " = " + RUNTIME_INSTANCE + ")" +
-				" FOR UPDATE";
+				"   AND NOT EXISTS (SELECT 1 FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_ID + " = " + RUNTIME_INSTANCE + ")";
+	}
+
+	private String buildSelectForUpdateTasksSQL(String selectForRunFields, int maxProcessorTypes, boolean channeledOnly) {
+		//  channeled tasks: head (first non-finished task ready to run) of each channel, given it is PENDING and the channel is not running a task
+		//  the cost scales with the number of the channels rather than with the backlog size
+		//  non-channeled PENDING tasks are capped per processor type by the parameter paired with it, so that the rows transferred scale with the free workers, not with the backlog
+		String processorTypesInParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "?"));
+		String processorCapsParameter = String.join(" ", Collections.nCopies(maxProcessorTypes, "WHEN ? THEN ?"));
+		String readyToRunCondition = CREATED + " < SYSDATE - NUMTODSINTERVAL(" + DELAY_BY_MILLIS + " / 1000, 'SECOND')";
+		String channelNotRunningCondition = "(c." + CHANNEL_RUNNING_TASK_ID + " IS NULL" +
+				" OR NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " r WHERE r." + META_ID + " = c." + CHANNEL_RUNNING_TASK_ID + " AND r." + STATUS + " = " + ClusterTaskStatus.RUNNING.value + "))";
+		String channelHeadsSQL = "SELECT " + selectForRunFields + " FROM " + META_TABLE_NAME +
+				" WHERE " + META_ID + " IN (" +
+				"   SELECT (SELECT MIN(" + META_ID + ") KEEP (DENSE_RANK FIRST ORDER BY " + ORDERING_FACTOR + "," + META_ID + ") FROM " + META_TABLE_NAME +
+				"       WHERE " + CONCURRENCY_KEY + " = c." + CHANNEL_KEY +
+				"           AND " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
+				"           AND " + STATUS + " < " + ClusterTaskStatus.FINISHED.value +
+				"           AND " + readyToRunCondition + ")" +
+				"   FROM " + CHANNEL_TABLE_NAME + " c" +
+				"   WHERE " + channelNotRunningCondition + ")" +
+				"   AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value;
+		if (channeledOnly) {
+			return channelHeadsSQL;
+		}
+		return channelHeadsSQL +
+				" UNION ALL " +
+				"SELECT " + selectForRunFields + " FROM" +
+				"   (SELECT " + selectForRunFields + "," +
+				"       ROW_NUMBER() OVER (PARTITION BY " + PROCESSOR_TYPE + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS processor_row_index" +
+				"   FROM /*+ INDEX(CTSKM_IDX_5) */ " + META_TABLE_NAME +
+				"   WHERE " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
+				"       AND " + CONCURRENCY_KEY + " IS NULL" +
+				"       AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"       AND " + readyToRunCondition + ") meta" +
+				" WHERE meta.processor_row_index <= CASE meta." + PROCESSOR_TYPE + " " + processorCapsParameter + " ELSE 0 END";
+	}
+
+	@Override
+	boolean isResourceBusy(DataAccessException dae) {
+		Throwable cause = dae.getMostSpecificCause();
+		return cause instanceof SQLException && ((SQLException) cause).getErrorCode() == 54;
 	}
 
 	@Override
 	String[] getSelectReRunnableStaledTasksSQL() {
-		return new String[]{selectStaledTasksSQL};
+		return new String[]{lockForSelectForCleanTasksSQL, selectStaledTasksSQL};
 	}
 
 	@Override
@@ -135,6 +225,29 @@ final class OracleDbDataProvider extends ClusterTasksDbDataProvider {
 		return updateScheduledTaskIntervalSQL;
 	}
 
+	@Override
+	String getClaimTaskSQL() {
+		return claimTaskSQL;
+	}
+
+	@Override
+	String getInsertMissingChannelsSQL() {
+		return insertMissingChannelsSQL;
+	}
+
+	@Override
+	void insertChannels(JdbcTemplate jdbcTemplate, List<String> concurrencyKeys) {
+		List<Object[]> insertParams = concurrencyKeys.stream()
+				.map(key -> new Object[]{key})
+				.collect(Collectors.toList());
+		jdbcTemplate.batchUpdate(insertChannelSQL, insertParams, new int[]{Types.NVARCHAR});
+	}
+
+	@Override
+	String getSelectTaskBodySQL(Long partitionIndex) {
+		return selectTaskBodyByPartitionSQLs.get(partitionIndex);
+	}
+
 	@Override
 	public boolean isReady() {
 		if (isReady == null || !isReady) {
@@ -177,174 +290,205 @@ final class OracleDbDataProvider extends ClusterTasksDbDataProvider {
 	}
 
 	@Override
-	public ClusterTaskPersistenceResult[] storeTasks(ClusterTaskImpl... tasks) {
-		List<ClusterTaskPersistenceResult> result = new ArrayList<>(tasks.length);
+	boolean insertTask(JdbcTemplate jdbcTemplate, ClusterTaskImpl task) {
+		task.id = taskIdsAllocator.nextId();
+		if (task.hasOwnBody()) {
+			task.partitionIndex = resolveBodyTablePartitionIndex();
+		}
+		int inserted = jdbcTemplate.update(insertTaskMetaSQL, buildInsertTaskMetaParams(task), insertTaskMetaParamTypes);
+		if (inserted == 0) {
+			return false;
+		} else if (inserted != 1) {
+			throw new IllegalStateException("insert of " + task + " resulted in " + inserted);
+		}
+		if (task.hasOwnBody()) {
+			insertTaskBody(jdbcTemplate, task);
+		}
+		return true;
+	}
 
+	@Override
+	boolean[] insertTasks(JdbcTemplate jdbcTemplate, List<ClusterTaskImpl> tasks) {
+		long partitionIndex = resolveBodyTablePartitionIndex();
+		List<Object[]> metaParams = new ArrayList<>(tasks.size());
 		for (ClusterTaskImpl task : tasks) {
+			task.id = taskIdsAllocator.nextId();
+			if (task.hasOwnBody()) {
+				task.partitionIndex = partitionIndex;
+			}
+			metaParams.add(buildInsertTaskMetaParams(task));
+		}
+		int[] updateCounts = jdbcTemplate.batchUpdate(insertTaskMetaSQL, metaParams, insertTaskMetaParamTypes);
+
+		//  bodies are inserted only for the tasks, that were not rejected due to uniqueness violation
+		boolean[] result = resolveInsertedTasks(jdbcTemplate, tasks, updateCounts);
+		List<Object[]> bodyParams = new ArrayList<>();
+		for (int i = 0; i < tasks.size(); i++) {
+			if (result[i] && tasks.get(i).hasOwnBody()) {
+				bodyParams.add(buildInsertTaskBodyParams(tasks.get(i)));
+			}
+		}
+		if (!bodyParams.isEmpty()) {
+			jdbcTemplate.batchUpdate(insertTaskBodySQLs.get(partitionIndex), bodyParams, insertTaskBodyParamTypes);
+		}
+		return result;
+	}
+
+	@Override
+	long reserveTaskId(JdbcTemplate jdbcTemplate) {
+		return taskIdsAllocator.nextId();
+	}
+
+	@Override
+	void insertTaskBody(JdbcTemplate jdbcTemplate, ClusterTaskImpl task) {
+		jdbcTemplate.update(insertTaskBodySQLs.get(task.partitionIndex), buildInsertTaskBodyParams(task), insertTaskBodyParamTypes);
+	}
+
+	@Override
+	public int retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		//  optimistic dispatch claims the tasks with no cluster wide lock at all
+		if (isOptimisticDispatchEnabled()) {
+			return optimisticallyDispatchTasks(availableProcessors);
+		}
+
+		Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun = new LinkedHashMap<>();
+		boolean concurrentDispatch = isConcurrentDispatchEnabled();
+		Map<Integer, String> selectForUpdateSQLs = concurrentDispatch ? selectForUpdateChanneledTasksSQLs : selectForUpdateTasksSQLs;
+
+		//  within the same transaction do:
+		//  - SELECT candidate tasks to be run
+		//  - LET processors to pick up the tasks that will actually run
+		//  - UPDATE those tasks as RUNNING
+		//  contention of the lock fails the channeled part of the round only, the rest of the round is completed regardless
+		ClusterTasksLockContendedException contention = null;
+		try {
 			getTransactionTemplate().execute(transactionStatus -> {
 				try {
 					JdbcTemplate jdbcTemplate = getJdbcTemplate();
-					String insertTaskSql;
-					Object[] paramValues;
-					int[] paramTypes;
-					boolean hasBody = task.body != null;
-					if (hasBody) {
-						task.partitionIndex = resolveBodyTablePartitionIndex();
-						insertTaskSql = insertTaskWithBodySQL.get(task.partitionIndex);
-						paramValues = new Object[]{
-								task.body,
-								task.taskType.value,
-								task.processorType,
-								task.uniquenessKey,
-								task.concurrencyKey,
-								task.applicationKey,
-								task.delayByMillis,
-								task.partitionIndex,
-								task.orderingFactor,
-								task.delayByMillis,
-						};
-						paramTypes = new int[]{
-								Types.CLOB,                 //  task body -  will be used only if actually has body
-								Types.BIGINT,               //  task type
-								Types.NVARCHAR,             //  processor type
-								Types.NVARCHAR,             //  uniqueness key
-								Types.NVARCHAR,             //  concurrency key
-								Types.NVARCHAR,             //  application key
-								Types.BIGINT,               //  delay by millis
-								Types.BIGINT,               //  partition index
-								Types.BIGINT,               //  ordering factor
-								Types.BIGINT                //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
-						};
-					} else {
-						insertTaskSql = insertTaskWithoutBodySQL;
-						paramValues = new Object[]{
-								task.taskType.value,
-								task.processorType,
-								task.uniquenessKey,
-								task.concurrencyKey,
-								task.applicationKey,
-								task.delayByMillis,
-								task.partitionIndex,
-								task.orderingFactor,
-								task.delayByMillis,
-						};
-						paramTypes = new int[]{
-								Types.BIGINT,               //  task type
-								Types.NVARCHAR,             //  processor type
-								Types.NVARCHAR,             //  uniqueness key
-								Types.NVARCHAR,             //  concurrency key
-								Types.NVARCHAR,             //  application key
-								Types.BIGINT,               //  delay by millis
-								Types.BIGINT,               //  partition index
-								Types.BIGINT,               //  ordering factor
-								Types.BIGINT                //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
-						};
+					Integer paramsTotal = null;
+					String sql = null;
+					for (Map.Entry<Integer, String> testedParam : selectForUpdateSQLs.entrySet()) {
+						if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
+							sql = testedParam.getValue();
+							break;
+						}
+					}
+					if (paramsTotal == null || sql == null) {
+						throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
 					}
 
-					//  insert task
-					int inserted = jdbcTemplate.update(insertTaskSql, paramValues, paramTypes);
-					if (inserted == 1) {
-						result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.SUCCESS));
-						logger.debug("successfully created " + task);
-					} else {
-						result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNEXPECTED_FAILURE));
-						logger.error(clusterTasksService.getInstanceID() + " failed to persist " + task + " (insert resulted in " + inserted + ")");
+					//  prepare params and param types
+					Object[] params = buildSelectForUpdateTasksParams(availableProcessors, paramsTotal, !concurrentDispatch);
+					int[] paramTypes = buildSelectForUpdateTasksParamTypes(paramsTotal, !concurrentDispatch, Types.NVARCHAR);
+
+					List<ClusterTaskImpl> tasks;
+					//  try-lock: should another node hold any of the stripes, the locked part of this round is skipped (row locks taken so far are released on rollback)
+					for (Integer stripe : resolveDispatchLockStripes(availableProcessors.keySet())) {
+						try {
+							jdbcTemplate.queryForObject(lockDispatchStripeSQLs.get(stripe), Long.class);
+						} catch (DataAccessException dae) {
+							if (isResourceBusy(dae)) {
+								throw lockContended(DISPATCH_LOCK);
+							}
+							throw dae;
+						}
+					}
+					tasks = jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+					if (tasks != null && !tasks.isEmpty()) {
+						Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType));
+						Set<Long> tasksToRunIDs = new LinkedHashSet<>();
+
+						//  let processors decide which tasks will be processed from all available
+						tasksByProcessor.forEach((processorType, processorTasks) -> {
+							ClusterTasksProcessorBase processor = availableProcessors.get(processorType);
+							Collection<ClusterTaskImpl> tmpTasks = processor.selectTasksToRun(processorTasks);
+							tasksToRun.put(processor, tmpTasks);
+							tasksToRunIDs.addAll(tmpTasks.stream().map(task -> task.id).collect(Collectors.toList()));
+						});
+
+						//  update selected tasks to RUNNING
+						if (!tasksToRunIDs.isEmpty()) {
+							String runtimeInstanceID = clusterTasksService.getInstanceID();
+							List<Object[]> updateParams = tasksToRunIDs.stream()
+									.sorted()
+									.map(id -> new Object[]{runtimeInstanceID, id})
+									.collect(Collectors.toList());
+							int[] updateResults = jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.NVARCHAR, Types.BIGINT});
+							updateChannelsStarted(jdbcTemplate, tasksToRun);
+							if (logger.isDebugEnabled()) {
+								logger.debug("update tasks to RUNNING result: " + Stream.of(updateResults).map(String::valueOf).collect(Collectors.joining(", ")));
+								logger.debug("from a total of " + tasks.size() + " available tasks " + tasksToRunIDs.size() + " has been started");
+							}
+						} else {
+							logger.warn("from a total of " + tasks.size() + " available tasks none has been started");
+						}
 					}
-				} catch (DuplicateKeyException dke) {
+				} catch (ClusterTasksLockContendedException lce) {
 					transactionStatus.setRollbackOnly();
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE));
-					logger.info(clusterTasksService.getInstanceID() + " rejected " + task + " due to uniqueness violation; specifically: " + dke.getMostSpecificCause().getMessage());
-				} catch (Exception e) {
+					tasksToRun.clear();
+					throw lce;
+				} catch (Throwable t) {
 					transactionStatus.setRollbackOnly();
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNEXPECTED_FAILURE));
-					logger.error(clusterTasksService.getInstanceID() + " failed to persist " + task, e);
+					tasksToRun.clear();
+					throw new CtsGeneralFailure("failed to retrieve and execute tasks", t);
 				}
+
 				return null;
 			});
+		} catch (ClusterTasksLockContendedException lce) {
+			contention = lce;
 		}
 
-		return result.toArray(new ClusterTaskPersistenceResult[0]);
+		//  actually deliver tasks to processors
+		return completeDispatchRound(tasksToRun, availableProcessors, concurrentDispatch, contention);
 	}
 
 	@Override
-	public void retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
-		Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun = new LinkedHashMap<>();
+	List<ClusterTaskImpl> selectDispatchCandidates(JdbcTemplate jdbcTemplate, Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		Integer paramsTotal = null;
+		String sql = null;
+		for (Map.Entry<Integer, String> testedParam : selectForUpdateTasksSQLs.entrySet()) {
+			if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
+				sql = testedParam.getValue();
+				break;
+			}
+		}
+		if (paramsTotal == null || sql == null) {
+			throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
+		}
 
-		//  within the same transaction do:
-		//  - SELECT candidate tasks to be run
-		//  - LET processors to pick up the tasks that will actually run
-		//  - UPDATE those tasks as RUNNING
-		getTransactionTemplate().execute(transactionStatus -> {
-			try {
-				JdbcTemplate jdbcTemplate = getJdbcTemplate();
-				String[] availableProcessorTypes = availableProcessors.keySet().toArray(new String[0]);
-				Integer paramsTotal = null;
-				String sql = null;
-				for (Map.Entry<Integer, String> testedParam : selectForUpdateTasksSQLs.entrySet()) {
-					if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
-						sql = testedParam.getValue();
-						break;
-					}
-				}
-				if (paramsTotal == null || sql == null) {
-					throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
-				}
+		Object[] params = buildSelectForUpdateTasksParams(availableProcessors, paramsTotal, true);
+		int[] paramTypes = buildSelectForUpdateTasksParamTypes(paramsTotal, true, Types.NVARCHAR);
+		return jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+	}
 
-				//  prepare params
-				Object[] params = new Object[paramsTotal];
-				System.arraycopy(availableProcessorTypes, 0, params, 0, availableProcessorTypes.length);
-				for (int i = availableProcessorTypes.length; i < paramsTotal; i++) params[i] = null;
-
-				//  prepare param types
-				int[] paramTypes = new int[paramsTotal];
-				for (int i = 0; i < paramsTotal; i++) paramTypes[i] = Types.NVARCHAR;
-
-				List<ClusterTaskImpl> tasks;
-				jdbcTemplate.execute(lockMetadataTable);
-				tasks = jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
-				if (tasks != null && !tasks.isEmpty()) {
-					Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType));
-					Set<Long> tasksToRunIDs = new LinkedHashSet<>();
-
-					//  let processors decide which tasks will be processed from all available
-					tasksByProcessor.forEach((processorType, processorTasks) -> {
-						ClusterTasksProcessorBase processor = availableProcessors.get(processorType);
-						Collection<ClusterTaskImpl> tmpTasks = processor.selectTasksToRun(processorTasks);
-						tasksToRun.put(processor, tmpTasks);
-						tasksToRunIDs.addAll(tmpTasks.stream().map(task -> task.id).collect(Collectors.toList()));
-					});
-
-					//  update selected tasks to RUNNING
-					if (!tasksToRunIDs.isEmpty()) {
-						String runtimeInstanceID = clusterTasksService.getInstanceID();
-						List<Object[]> updateParams = tasksToRunIDs.stream()
-								.sorted()
-								.map(id -> new Object[]{runtimeInstanceID, id})
-								.collect(Collectors.toList());
-						int[] updateResults = jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.NVARCHAR, Types.BIGINT});
-						if (logger.isDebugEnabled()) {
-							logger.debug("update tasks to RUNNING result: " + Stream.of(updateResults).map(String::valueOf).collect(Collectors.joining(", ")));
-							logger.debug("from a total of " + tasks.size() + " available tasks " + tasksToRunIDs.size() + " has been started");
-						}
-					} else {
-						logger.warn("from a total of " + tasks.size() + " available tasks none has been started");
-					}
-				}
-			} catch (Throwable t) {
-				transactionStatus.setRollbackOnly();
-				tasksToRun.clear();
-				throw new CtsGeneralFailure("failed to retrieve and execute tasks", t);
+	@Override
+	List<ClusterTaskImpl> selectClaimableTasks(JdbcTemplate jdbcTemplate, Map<String, Integer> claimLimits) {
+		List<ClusterTaskImpl> result = new ArrayList<>();
+		for (Map.Entry<String, Integer> claimLimit : claimLimits.entrySet()) {
+			List<ClusterTaskImpl> processorTasks = jdbcTemplate.query(
+					selectClaimableTasksSQL,
+					new Object[]{claimLimit.getKey()},
+					new int[]{Types.NVARCHAR},
+					(ResultSetExtractor<List<ClusterTaskImpl>>) resultSet -> limitedTasksMetadataReader(resultSet, claimLimit.getValue()));
+			if (processorTasks != null) {
+				result.addAll(processorTasks);
 			}
+		}
+		return result;
+	}
 
-			return null;
-		});
-
-		//  actually deliver tasks to processors
-		tasksToRun.forEach((processor, tasks) -> processor.handleTasks(tasks, this));
+	@Override
+	void updateTasksStarted(JdbcTemplate jdbcTemplate, Collection<Long> taskIds) {
+		String runtimeInstanceID = clusterTasksService.getInstanceID();
+		List<Object[]> updateParams = taskIds.stream()
+				.map(id -> new Object[]{runtimeInstanceID, id})
+				.collect(Collectors.toList());
+		jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.NVARCHAR, Types.BIGINT});
 	}
 
 	@Override
-	public String retrieveTaskBody(Long taskId, Long partitionIndex) {
+	public ClusterTaskBodyCodec.DecodedBody retrieveTaskBody(Long taskId, Long partitionIndex) {
 		try {
 			JdbcTemplate jdbcTemplate = getJdbcTemplate();
 			String sql = selectTaskBodyByPartitionSQLs.get(partitionIndex);
@@ -385,12 +529,38 @@ final class OracleDbDataProvider extends ClusterTasksDbDataProvider {
 		}
 	}
 
+	private ClusterTaskIdsAllocator.IdsBlock reserveTaskIdsBlock() {
+		ClusterTaskIdsAllocator.IdsBlock result = getJdbcTemplate().queryForObject(reserveTaskIdsBlockSQL, (resultSet, index) ->
+				new ClusterTaskIdsAllocator.IdsBlock(resultSet.getLong("block_first"), resultSet.getLong("block_size")));
+		if (result == null) {
+			throw new IllegalStateException("failed to reserve block of values from " + CLUSTER_TASK_ID_SEQUENCE);
+		}
+		return result;
+	}
+
+	private Object[] buildInsertTaskMetaParams(ClusterTaskImpl task) {
+		return new Object[]{
+				task.id,
+				task.taskType.value,
+				task.processorType,
+				task.uniquenessKey,
+				task.concurrencyKey,
+				task.applicationKey,
+				task.delayByMillis,
+				task.partitionIndex,
+				task.bodyId,
+				task.bodyInline ? task.body : null,
+				task.orderingFactor,
+				task.delayByMillis
+		};
+	}
+
 	private Set<String> getCTSTableNames() {
-		return Stream.of(META_TABLE_NAME, BODY_TABLE_NAME + "0", BODY_TABLE_NAME + "1", BODY_TABLE_NAME + "2", BODY_TABLE_NAME + "3").collect(Collectors.toSet());
+		return Stream.of(META_TABLE_NAME, BODY_TABLE_NAME + "0", BODY_TABLE_NAME + "1", BODY_TABLE_NAME + "2", BODY_TABLE_NAME + "3", CHANNEL_TABLE_NAME, LOCK_TABLE_NAME, SIGNAL_TABLE_NAME).collect(Collectors.toSet());
 	}
 
 	private Set<String> getCTSIndexNames() {
-		return Stream.of("CTSKM_PK", "CTSKM_IDX_2", "CTSKM_IDX_5", "CTSKM_IDX_6", "CTSKB_PK_P0", "CTSKB_PK_P1", "CTSKB_PK_P2", "CTSKB_PK_P3").collect(Collectors.toSet());
+		return Stream.of("CTSKM_PK", "CTSKM_IDX_2", "CTSKM_IDX_5", "CTSKM_IDX_6", "CTSKM_IDX_7", "CTSKM_IDX_8", "CTSKC_PK", "CTSKS_PK", "CTSKL_PK", "CTSKB_PK_P0", "CTSKB_PK_P1", "CTSKB_PK_P2", "CTSKB_PK_P3").collect(Collectors.toSet());
 	}
 
 	private Set<String> getCTSSequenceNames() {
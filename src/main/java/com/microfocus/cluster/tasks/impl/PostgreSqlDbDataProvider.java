@@ -16,15 +16,27 @@ import com.microfocus.cluster.tasks.api.enums.ClusterTaskStatus;
 import com.microfocus.cluster.tasks.api.enums.ClusterTaskType;
 import com.microfocus.cluster.tasks.api.errors.CtsGeneralFailure;
 import com.microfocus.cluster.tasks.api.errors.CtsSqlFailure;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -51,13 +63,36 @@ final class PostgreSqlDbDataProvider extends ClusterTasksDbDataProvider {
 	private final String updateSelfLastSeenSQL;
 	private final String removeLongTimeNoSeeSQL;
 
-	private final String insertTaskSQL;
+	private final String insertTaskWithoutBodySQL;
+	private final Map<Long, String> insertTaskWithBodySQLs = new HashMap<>();
+	private final String selectTaskIDsSQL;
+	private final String insertTaskMetaSQL;
+	private final Map<Long, String> insertTaskBodySQLs = new HashMap<>();
+	private final int[] insertTaskBodyParamTypes = new int[]{
+			Types.BIGINT,               //  task ID
+			Types.VARCHAR,              //  task body - text
+			Types.VARBINARY,            //  task body - binary
+			Types.INTEGER               //  task body format
+	};
+	private final int bulkStoreThreshold = 5000;
+	private final String createBulkStagingTableSQL;
+	private final String copyToBulkStagingTableSQL;
+	private final Map<Long, String> moveBulkStagedTasksSQLs = new HashMap<>();
 	private final String updateScheduledTaskIntervalSQL;
+	private final String insertChannelSQL;
+	private final String insertMissingChannelsSQL;
 
-	private final String lockForSelectForRunTasksSQL;
+	private final String tasksEnqueuedChannel = "cts_tasks_enqueued";
+	private Connection tasksEnqueuedListenerConnection;
+
+	private final Map<Integer, String> lockForSelectForRunTasksSQLs = new HashMap<>();
 	private final Map<Integer, String> selectForUpdateTasksSQLs = new HashMap<>();
+	private final Map<Integer, String> selectForUpdateChanneledTasksSQLs = new HashMap<>();
+	private final Map<Integer, String> selectClaimableTasksSQLs = new HashMap<>();
+	private final Map<Integer, String> claimTasksStartedSQLs = new HashMap<>();
 	private final Map<Long, String> selectTaskBodyByPartitionSQLs = new HashMap<>();
 	private final String updateTasksStartedSQL;
+	private final String claimTaskSQL;
 
 	private final String lockForSelectForCleanTasksSQL;
 	private final String selectReRunnableStaledTasksSQL;
@@ -76,38 +111,138 @@ final class PostgreSqlDbDataProvider extends ClusterTasksDbDataProvider {
 		removeLongTimeNoSeeSQL = "DELETE FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_LAST_SEEN + " < LOCALTIMESTAMP - MAKE_INTERVAL(SECS := ? / 1000)";
 
 		//  insert / update tasks
-		insertTaskSQL = "SELECT insert_task(" + String.join(",", Collections.nCopies(9, "?")) + ")";
+		//  uniqueness conflicts are skipped (ON CONFLICT DO NOTHING) and reported by the absence of the returned ID / zero update count, with no exception nor rollback
+		String insertFieldsWithoutID = String.join(",", TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, ORDERING_FACTOR, CREATED, STATUS);
+		insertTaskWithoutBodySQL = "INSERT INTO " + META_TABLE_NAME + " (" + insertFieldsWithoutID + ")" +
+				" VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, (EXTRACT(EPOCH FROM LOCALTIMESTAMP) * 10E+8)::BIGINT + ?), LOCALTIMESTAMP, " + ClusterTaskStatus.PENDING.value + ")" +
+				" ON CONFLICT DO NOTHING" +
+				" RETURNING " + META_ID;
+		selectTaskIDsSQL = "SELECT NEXTVAL(PG_GET_SERIAL_SEQUENCE('" + META_TABLE_NAME.toLowerCase() + "', '" + META_ID.toLowerCase() + "')) FROM GENERATE_SERIES(1, ?)";
+		String insertFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, ORDERING_FACTOR, CREATED, STATUS);
+		insertTaskMetaSQL = "INSERT INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
+				" VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, (EXTRACT(EPOCH FROM LOCALTIMESTAMP) * 10E+8)::BIGINT + ?), LOCALTIMESTAMP, " + ClusterTaskStatus.PENDING.value + ")" +
+				" ON CONFLICT DO NOTHING";
+		for (long partition = 0; partition < PARTITIONS_NUMBER; partition++) {
+			insertTaskWithBodySQLs.put(partition, "WITH inserted AS (" + insertTaskWithoutBodySQL + ")," +
+					" inserted_body AS (INSERT INTO " + BODY_TABLE_NAME + partition + " (" + String.join(",", BODY_ID, BODY, BODY_BINARY, BODY_FORMAT) + ") SELECT " + META_ID + ", ?, ?, ? FROM inserted)" +
+					" SELECT " + META_ID + " FROM inserted");
+			insertTaskBodySQLs.put(partition, "INSERT INTO " + BODY_TABLE_NAME + partition + " (" + String.join(",", BODY_ID, BODY, BODY_BINARY, BODY_FORMAT) + ") VALUES (?, ?, ?, ?)");
+		}
+
+		//  bulk insert tasks: COPY into the transaction scoped staging table, then move to the tasks tables in a single statement
+		//  IDs are assigned while copying into the staging table, uniqueness conflicts are skipped, stored tasks are reported back by their sequence number
+		String bulkStagingTable = "cts_bulk_tasks_staging";
+		String bulkStagingFields = String.join(",", "seq", "task_type", "processor_type", "uniqueness_key", "concurrency_key", "application_key", "delay_by_millis", "ordering_factor", "body", "body_binary", "body_format", "body_inline");
+		createBulkStagingTableSQL = "CREATE TEMP TABLE " + bulkStagingTable + " (" +
+				"   seq INTEGER NOT NULL," +
+				"   task_id BIGINT NOT NULL DEFAULT NEXTVAL(PG_GET_SERIAL_SEQUENCE('" + META_TABLE_NAME.toLowerCase() + "', '" + META_ID.toLowerCase() + "'))," +
+				"   task_type INTEGER NOT NULL," +
+				"   processor_type CHARACTER VARYING(40) NOT NULL," +
+				"   uniqueness_key CHARACTER VARYING(40) NOT NULL," +
+				"   concurrency_key CHARACTER VARYING(40)," +
+				"   application_key CHARACTER VARYING(64)," +
+				"   delay_by_millis BIGINT NOT NULL," +
+				"   ordering_factor BIGINT," +
+				"   body TEXT," +
+				"   body_binary BYTEA," +
+				"   body_format SMALLINT," +
+				"   body_inline CHARACTER VARYING(4000))" +
+				" ON COMMIT DROP";
+		copyToBulkStagingTableSQL = "COPY " + bulkStagingTable + " (" + bulkStagingFields + ") FROM STDIN";
+		for (long partition = 0; partition < PARTITIONS_NUMBER; partition++) {
+			moveBulkStagedTasksSQLs.put(partition,
+					"WITH inserted AS (" +
+							"   INSERT INTO " + META_TABLE_NAME + " (" + insertFields + ")" +
+							"   SELECT task_id, task_type, processor_type, uniqueness_key, concurrency_key, application_key, delay_by_millis," +
+							"       CASE WHEN body_format IS NULL THEN NULL ELSE " + partition + " END, NULL, body_inline," +
+							"       COALESCE(ordering_factor, (EXTRACT(EPOCH FROM LOCALTIMESTAMP) * 10E+8)::BIGINT + delay_by_millis)," +
+							"       LOCALTIMESTAMP, " + ClusterTaskStatus.PENDING.value +
+							"   FROM " + bulkStagingTable + " ORDER BY seq" +
+							"   ON CONFLICT DO NOTHING" +
+							"   RETURNING " + META_ID + ")," +
+							" inserted_bodies AS (" +
+							"   INSERT INTO " + BODY_TABLE_NAME + partition + " (" + String.join(",", BODY_ID, BODY, BODY_BINARY, BODY_FORMAT) + ")" +
+							"   SELECT staged.task_id, staged.body, staged.body_binary, staged.body_format FROM " + bulkStagingTable + " staged" +
+							"   INNER JOIN inserted ON inserted." + META_ID + " = staged.task_id" +
+							"   WHERE staged.body_format IS NOT NULL)" +
+							" SELECT staged.seq, staged.task_id FROM " + bulkStagingTable + " staged" +
+							" INNER JOIN inserted ON inserted." + META_ID + " = staged.task_id"
+			);
+		}
+
 		updateScheduledTaskIntervalSQL = "UPDATE " + META_TABLE_NAME +
 				" SET " + CREATED + " = LOCALTIMESTAMP, " + DELAY_BY_MILLIS + " = ?" +
 				" WHERE " + PROCESSOR_TYPE + " = ? AND " + TASK_TYPE + " = " + ClusterTaskType.SCHEDULED.value + " AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value;
 
+		//  channels are registered idempotently, so that concurrent enqueues of the same channel won't fail nor block each other
+		insertChannelSQL = "INSERT INTO " + CHANNEL_TABLE_NAME + " (" + CHANNEL_KEY + ") VALUES (?) ON CONFLICT DO NOTHING";
+		insertMissingChannelsSQL = "INSERT INTO " + CHANNEL_TABLE_NAME + " (" + CHANNEL_KEY + ")" +
+				" SELECT DISTINCT " + CONCURRENCY_KEY + " FROM " + META_TABLE_NAME + " m" +
+				" WHERE " + CONCURRENCY_KEY + " IS NOT NULL" +
+				"   AND NOT EXISTS (SELECT 1 FROM " + CHANNEL_TABLE_NAME + " c WHERE c." + CHANNEL_KEY + " = m." + CONCURRENCY_KEY + ")" +
+				" ON CONFLICT DO NOTHING";
+
 		//  select and run tasks flow
-		lockForSelectForRunTasksSQL = "SELECT pg_advisory_xact_lock(1, 1)";
-		String selectForRunFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, ORDERING_FACTOR, DELAY_BY_MILLIS, BODY_PARTITION, STATUS);
+		//  single lock keeps the original key, so that the nodes of the former versions are still mutually excluded
+		if (dispatchLockStripes == 1) {
+			lockForSelectForRunTasksSQLs.put(0, "SELECT pg_try_advisory_xact_lock(1, 1)");
+		} else {
+			for (int stripe = 0; stripe < dispatchLockStripes; stripe++) {
+				lockForSelectForRunTasksSQLs.put(stripe, "SELECT pg_try_advisory_xact_lock(3, " + stripe + ")");
+			}
+		}
+		String selectForRunFields = String.join(",", META_ID, TASK_TYPE, PROCESSOR_TYPE, UNIQUENESS_KEY, CONCURRENCY_KEY, APPLICATION_KEY, ORDERING_FACTOR, DELAY_BY_MILLIS, BODY_PARTITION, META_BODY_ID, META_BODY_INLINE, STATUS);
 		for (int maxProcessorTypes : new Integer[]{20, 50, 100, 500}) {
-			String processorTypesInParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "?"));
-			selectForUpdateTasksSQLs.put(maxProcessorTypes,
-					"SELECT * FROM" +
-							"   (SELECT " + selectForRunFields + "," +
-							"       ROW_NUMBER() OVER (PARTITION BY " + CONCURRENCY_KEY + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS row_index," +
-							"       COUNT(CASE WHEN " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + " THEN 1 ELSE NULL END) OVER (PARTITION BY " + CONCURRENCY_KEY + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS running_count" +
-							"   FROM " + META_TABLE_NAME +
-							"   WHERE " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
-							"       AND " + STATUS + " < " + ClusterTaskStatus.FINISHED.value +
-							"       AND " + CREATED + " < LOCALTIMESTAMP - MAKE_INTERVAL(SECS := " + DELAY_BY_MILLIS + " / 1000)) meta" +
-							" WHERE ((meta." + CONCURRENCY_KEY + " IS NOT NULL AND meta.row_index <= 1 AND meta.running_count = 0)" +
-							"       OR (meta." + CONCURRENCY_KEY + " IS NULL AND meta." + STATUS + " = " + ClusterTaskStatus.PENDING.value + "))"
+			selectForUpdateTasksSQLs.put(maxProcessorTypes, buildSelectForUpdateTasksSQL(selectForRunFields, maxProcessorTypes, false));
+			selectForUpdateChanneledTasksSQLs.put(maxProcessorTypes, buildSelectForUpdateTasksSQL(selectForRunFields, maxProcessorTypes, true));
+
+			//  concurrent dispatch: non-channeled tasks are claimed with row locks, skipping the rows already claimed by the other nodes
+			//  tasks of each processor are locked up to its limit (paired with the processor type), padding pairs (nulls) match no tasks
+			String processorCapacitiesParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "(CAST(? AS VARCHAR), CAST(? AS INTEGER))"));
+			selectClaimableTasksSQLs.put(maxProcessorTypes,
+					"SELECT c.* FROM (VALUES " + processorCapacitiesParameter + ") AS capacities (processor_type, capacity)" +
+							" CROSS JOIN LATERAL (SELECT " + selectForRunFields + " FROM " + META_TABLE_NAME +
+							"   WHERE " + PROCESSOR_TYPE + " = capacities.processor_type" +
+							"       AND " + CONCURRENCY_KEY + " IS NULL" +
+							"       AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+							"       AND " + CREATED + " < LOCALTIMESTAMP - MAKE_INTERVAL(SECS := " + DELAY_BY_MILLIS + " / 1000)" +
+							"   ORDER BY " + ORDERING_FACTOR + "," + META_ID +
+							"   LIMIT capacities.capacity" +
+							"   FOR UPDATE SKIP LOCKED) c" +
+							" ORDER BY c." + ORDERING_FACTOR + ",c." + META_ID
+			);
+
+			//  single statement claim: tasks of each processor are locked up to its capacity (paired with the processor type), then updated to RUNNING and returned
+			claimTasksStartedSQLs.put(maxProcessorTypes,
+					"WITH claimed AS (" +
+							"   SELECT c." + META_ID + " AS claimed_id" +
+							"   FROM (VALUES " + processorCapacitiesParameter + ") AS capacities (processor_type, capacity)" +
+							"   CROSS JOIN LATERAL (SELECT " + META_ID + " FROM " + META_TABLE_NAME +
+							"       WHERE " + PROCESSOR_TYPE + " = capacities.processor_type" +
+							"           AND " + CONCURRENCY_KEY + " IS NULL" +
+							"           AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+							"           AND " + CREATED + " < LOCALTIMESTAMP - MAKE_INTERVAL(SECS := " + DELAY_BY_MILLIS + " / 1000)" +
+							"       ORDER BY " + ORDERING_FACTOR + "," + META_ID +
+							"       LIMIT capacities.capacity" +
+							"       FOR UPDATE SKIP LOCKED) c)" +
+							" UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + ", " + STARTED + " = LOCALTIMESTAMP, " + RUNTIME_INSTANCE + " = ?" +
+							" FROM claimed WHERE " + META_ID + " = claimed.claimed_id" +
+							" RETURNING " + selectForRunFields
 			);
 		}
 		for (long partition = 0; partition < PARTITIONS_NUMBER; partition++) {
-			selectTaskBodyByPartitionSQLs.put(partition, "SELECT " + BODY + " FROM " + BODY_TABLE_NAME + partition +
+			selectTaskBodyByPartitionSQLs.put(partition, "SELECT " + String.join(",", BODY_FORMAT, BODY, BODY_BINARY) + " FROM " + BODY_TABLE_NAME + partition +
 					" WHERE " + BODY_ID + " = ?");
 		}
 		updateTasksStartedSQL = "UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + ", " + STARTED + " = LOCALTIMESTAMP, " + RUNTIME_INSTANCE + " = ?" +
 				" WHERE " + META_ID + " = ?";
+		claimTaskSQL = "UPDATE " + META_TABLE_NAME + " SET " + STATUS + " = " + ClusterTaskStatus.RUNNING.value + ", " + STARTED + " = LOCALTIMESTAMP, " + RUNTIME_INSTANCE + " = ?" +
+				" WHERE " + META_ID + " = ? AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"   AND (" + CONCURRENCY_KEY + " IS NULL OR NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " r" +
+				"       WHERE r." + CONCURRENCY_KEY + " = " + META_TABLE_NAME + "." + CONCURRENCY_KEY + " AND r." + STATUS + " = " + ClusterTaskStatus.RUNNING.value + "))";
 
 		//  clean up tasks flow
-		lockForSelectForCleanTasksSQL = "SELECT pg_advisory_xact_lock(1, 2)";
+		lockForSelectForCleanTasksSQL = "SELECT CASE WHEN pg_try_advisory_xact_lock(1, 2) THEN 1 ELSE 0 END";
 		String selectedForGCFields = String.join(",", META_ID, BODY_PARTITION, TASK_TYPE, PROCESSOR_TYPE, DELAY_BY_MILLIS, STATUS);
 		selectReRunnableStaledTasksSQL = "SELECT " + selectedForGCFields + " FROM " + META_TABLE_NAME +
 				" WHERE " + TASK_TYPE + " = " + ClusterTaskType.SCHEDULED.value +
@@ -115,6 +250,40 @@ final class PostgreSqlDbDataProvider extends ClusterTasksDbDataProvider {
 				"   AND NOT EXISTS (SELECT 1 FROM " + ACTIVE_NODES_TABLE_NAME + " WHERE " + ACTIVE_NODE_ID + " = " + RUNTIME_INSTANCE + ")";
 	}
 
+	private String buildSelectForUpdateTasksSQL(String selectForRunFields, int maxProcessorTypes, boolean channeledOnly) {
+		//  channeled tasks: head (first non-finished task ready to run) of each channel, given it is PENDING and the channel is not running a task
+		//  the cost scales with the number of the channels rather than with the backlog size
+		//  non-channeled PENDING tasks are capped per processor type by the parameter paired with it, so that the rows transferred scale with the free workers, not with the backlog
+		String processorTypesInParameter = String.join(",", Collections.nCopies(maxProcessorTypes, "?"));
+		String processorCapsParameter = String.join(" ", Collections.nCopies(maxProcessorTypes, "WHEN ? THEN ?"));
+		String readyToRunCondition = CREATED + " < LOCALTIMESTAMP - MAKE_INTERVAL(SECS := " + DELAY_BY_MILLIS + " / 1000)";
+		String channelNotRunningCondition = "(c." + CHANNEL_RUNNING_TASK_ID + " IS NULL" +
+				" OR NOT EXISTS (SELECT 1 FROM " + META_TABLE_NAME + " r WHERE r." + META_ID + " = c." + CHANNEL_RUNNING_TASK_ID + " AND r." + STATUS + " = " + ClusterTaskStatus.RUNNING.value + "))";
+		String channelHeadsSQL = "SELECT h.* FROM " + CHANNEL_TABLE_NAME + " c" +
+				" CROSS JOIN LATERAL (SELECT " + selectForRunFields + " FROM " + META_TABLE_NAME +
+				"   WHERE " + CONCURRENCY_KEY + " = c." + CHANNEL_KEY +
+				"       AND " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
+				"       AND " + STATUS + " < " + ClusterTaskStatus.FINISHED.value +
+				"       AND " + readyToRunCondition +
+				"   ORDER BY " + ORDERING_FACTOR + "," + META_ID + " LIMIT 1) h" +
+				" WHERE h." + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"   AND " + channelNotRunningCondition;
+		if (channeledOnly) {
+			return channelHeadsSQL;
+		}
+		return channelHeadsSQL +
+				" UNION ALL " +
+				"SELECT " + selectForRunFields + " FROM" +
+				"   (SELECT " + selectForRunFields + "," +
+				"       ROW_NUMBER() OVER (PARTITION BY " + PROCESSOR_TYPE + " ORDER BY " + ORDERING_FACTOR + "," + META_ID + " ASC) AS processor_row_index" +
+				"   FROM " + META_TABLE_NAME +
+				"   WHERE " + PROCESSOR_TYPE + " IN(" + processorTypesInParameter + ")" +
+				"       AND " + CONCURRENCY_KEY + " IS NULL" +
+				"       AND " + STATUS + " = " + ClusterTaskStatus.PENDING.value +
+				"       AND " + readyToRunCondition + ") meta" +
+				" WHERE meta.processor_row_index <= CASE meta." + PROCESSOR_TYPE + " " + processorCapsParameter + " ELSE 0 END";
+	}
+
 	@Override
 	String[] getSelectReRunnableStaledTasksSQL() {
 		return new String[]{lockForSelectForCleanTasksSQL, selectReRunnableStaledTasksSQL};
@@ -125,6 +294,29 @@ final class PostgreSqlDbDataProvider extends ClusterTasksDbDataProvider {
 		return updateScheduledTaskIntervalSQL;
 	}
 
+	@Override
+	String getClaimTaskSQL() {
+		return claimTaskSQL;
+	}
+
+	@Override
+	String getInsertMissingChannelsSQL() {
+		return insertMissingChannelsSQL;
+	}
+
+	@Override
+	void insertChannels(JdbcTemplate jdbcTemplate, List<String> concurrencyKeys) {
+		List<Object[]> insertParams = concurrencyKeys.stream()
+				.map(key -> new Object[]{key})
+				.collect(Collectors.toList());
+		jdbcTemplate.batchUpdate(insertChannelSQL, insertParams, new int[]{Types.VARCHAR});
+	}
+
+	@Override
+	String getSelectTaskBodySQL(Long partitionIndex) {
+		return selectTaskBodyByPartitionSQLs.get(partitionIndex);
+	}
+
 	@Override
 	public boolean isReady() {
 		if (isReady == null || !isReady) {
@@ -157,156 +349,518 @@ final class PostgreSqlDbDataProvider extends ClusterTasksDbDataProvider {
 		return isReady;
 	}
 
+	/**
+	 * Stores tasks; large amounts of tasks are streamed via COPY into a staging table and moved from there to the tasks tables with set-based statements
+	 * - should the bulk flow fail as a whole, tasks are stored via the regular (batched) flow
+	 */
 	@Override
 	public ClusterTaskPersistenceResult[] storeTasks(ClusterTaskImpl... tasks) {
-		List<ClusterTaskPersistenceResult> result = new ArrayList<>(tasks.length);
+		if (tasks.length >= bulkStoreThreshold) {
+			resolveInlineBodies(tasks);
+			try {
+				ClusterTaskPersistenceResult[] result = storeTasksBulk(tasks);
+				signalIfReadyTasksStored(tasks, result);
+				return result;
+			} catch (Exception e) {
+				logger.warn(clusterTasksService.getInstanceID() + " failed to bulk store " + tasks.length + " tasks, falling back to batched persistence", e);
+			}
+		}
+		return super.storeTasks(tasks);
+	}
 
-		for (ClusterTaskImpl task : tasks) {
-			getTransactionTemplate().execute(transactionStatus -> {
-				try {
-					JdbcTemplate jdbcTemplate = getJdbcTemplate();
-					if (task.body != null) {
-						task.partitionIndex = resolveBodyTablePartitionIndex();
-					}
+	/**
+	 * Awaits the enqueue signal via LISTEN on a dedicated connection, held till the awaiting is stopped
+	 * - should the connection fail, it is released and the rest of the wait is slept out (LISTEN is retried on the next round)
+	 */
+	@Override
+	public boolean awaitTasksEnqueued(long maxWaitMillis) {
+		try {
+			if (tasksEnqueuedListenerConnection == null) {
+				tasksEnqueuedListenerConnection = getJdbcTemplate().getDataSource().getConnection();
+				tasksEnqueuedListenerConnection.setAutoCommit(true);
+				try (Statement statement = tasksEnqueuedListenerConnection.createStatement()) {
+					statement.execute("LISTEN " + tasksEnqueuedChannel);
+				}
+				logger.info("listening on " + tasksEnqueuedChannel + " for the enqueued tasks");
+			}
+			PGNotification[] notifications = tasksEnqueuedListenerConnection.unwrap(PGConnection.class).getNotifications((int) Math.max(1, maxWaitMillis));
+			return notifications != null && notifications.length > 0;
+		} catch (Exception e) {
+			logger.warn("failed to listen on " + tasksEnqueuedChannel + ", will retry on the next round", e);
+			stopAwaitingTasksEnqueued();
+			sleepOut(maxWaitMillis);
+			return false;
+		}
+	}
 
-					//  insert task
-					Object[] paramValues = new Object[]{
-							task.taskType.value,
-							task.processorType,
-							task.uniquenessKey,
-							task.concurrencyKey,
-							task.applicationKey,
-							task.delayByMillis,
-							task.partitionIndex,
-							task.orderingFactor,
-							task.body
-					};
-					int[] paramTypes = new int[]{
-							Types.INTEGER,              //  task type
-							Types.VARCHAR,              //  processor type
-							Types.VARCHAR,              //  uniqueness key
-							Types.VARCHAR,              //  concurrency key
-							Types.VARCHAR,              //  application key
-							Types.BIGINT,               //  delay by millis
-							Types.INTEGER,              //  partition index
-							Types.BIGINT,               //  ordering factor
-							Types.VARCHAR               //  task body -  will be used only if actually has body
-					};
-
-					task.id = jdbcTemplate.query(insertTaskSQL, paramValues, paramTypes, rs -> {
-						if (rs.next()) {
-							return (rs.getLong(1));
-						} else {
-							return null;
-						}
-					});
+	@Override
+	public void stopAwaitingTasksEnqueued() {
+		if (tasksEnqueuedListenerConnection != null) {
+			//  connection is most likely a pooled one, so it is returned not listening
+			try (Connection connection = tasksEnqueuedListenerConnection; Statement statement = connection.createStatement()) {
+				statement.execute("UNLISTEN " + tasksEnqueuedChannel);
+			} catch (SQLException sqle) {
+				logger.warn("failed to close " + tasksEnqueuedChannel + " listener connection", sqle);
+			}
+			tasksEnqueuedListenerConnection = null;
+		}
+	}
 
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.SUCCESS));
-					logger.debug("successfully created " + task);
-				} catch (DuplicateKeyException dke) {
-					transactionStatus.setRollbackOnly();
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE));
-					logger.info(clusterTasksService.getInstanceID() + " rejected " + task + " due to uniqueness violation; specifically: " + dke.getMostSpecificCause().getMessage());
-				} catch (Exception e) {
-					transactionStatus.setRollbackOnly();
-					result.add(new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNEXPECTED_FAILURE));
-					logger.error(clusterTasksService.getInstanceID() + " failed to persist " + task, e);
-				}
+	@Override
+	void signalTasksEnqueued() {
+		getJdbcTemplate().execute("NOTIFY " + tasksEnqueuedChannel);
+	}
+
+	@Override
+	boolean insertTask(JdbcTemplate jdbcTemplate, ClusterTaskImpl task) {
+		if (task.hasOwnBody()) {
+			task.partitionIndex = resolveBodyTablePartitionIndex();
+		}
+
+		List<Object> paramValues = new ArrayList<>(Arrays.asList(
+				task.taskType.value,
+				task.processorType,
+				task.uniquenessKey,
+				task.concurrencyKey,
+				task.applicationKey,
+				task.delayByMillis,
+				task.partitionIndex,
+				task.bodyId,
+				task.bodyInline ? task.body : null,
+				task.orderingFactor,
+				task.delayByMillis
+		));
+		List<Integer> paramTypes = new ArrayList<>(Arrays.asList(
+				Types.INTEGER,              //  task type
+				Types.VARCHAR,              //  processor type
+				Types.VARCHAR,              //  uniqueness key
+				Types.VARCHAR,              //  concurrency key
+				Types.VARCHAR,              //  application key
+				Types.BIGINT,               //  delay by millis
+				Types.INTEGER,              //  partition index
+				Types.BIGINT,               //  shared body ID
+				Types.VARCHAR,              //  inline body
+				Types.BIGINT,               //  ordering factor
+				Types.BIGINT                //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
+		));
+		String sql = insertTaskWithoutBodySQL;
+		if (task.hasOwnBody()) {
+			sql = insertTaskWithBodySQLs.get(task.partitionIndex);
+			ClusterTaskBodyCodec.EncodedBody encodedBody = ClusterTaskBodyCodec.encode(task, getTaskBodyCompressionThreshold());
+			paramValues.addAll(Arrays.asList(encodedBody.text, encodedBody.binary, encodedBody.format));
+			paramTypes.addAll(Arrays.asList(Types.VARCHAR, Types.VARBINARY, Types.INTEGER));
+		}
+
+		task.id = jdbcTemplate.query(sql, paramValues.toArray(), paramTypes.stream().mapToInt(Integer::intValue).toArray(), rs -> {
+			if (rs.next()) {
+				return (rs.getLong(1));
+			} else {
 				return null;
+			}
+		});
+		return task.id != null;
+	}
+
+	@Override
+	boolean[] insertTasks(JdbcTemplate jdbcTemplate, List<ClusterTaskImpl> tasks) {
+		//  reserve IDs for the whole batch in a single round trip
+		List<Long> ids = jdbcTemplate.queryForList(selectTaskIDsSQL, new Object[]{tasks.size()}, new int[]{Types.INTEGER}, Long.class);
+		if (ids.size() != tasks.size()) {
+			throw new IllegalStateException("expected to get " + tasks.size() + " task IDs, yet got " + ids.size());
+		}
+
+		long partitionIndex = resolveBodyTablePartitionIndex();
+		List<Object[]> metaParams = new ArrayList<>(tasks.size());
+		for (int i = 0; i < tasks.size(); i++) {
+			ClusterTaskImpl task = tasks.get(i);
+			task.id = ids.get(i);
+			if (task.hasOwnBody()) {
+				task.partitionIndex = partitionIndex;
+			}
+			metaParams.add(new Object[]{
+					task.id,
+					task.taskType.value,
+					task.processorType,
+					task.uniquenessKey,
+					task.concurrencyKey,
+					task.applicationKey,
+					task.delayByMillis,
+					task.partitionIndex,
+					task.bodyId,
+					task.bodyInline ? task.body : null,
+					task.orderingFactor,
+					task.delayByMillis
 			});
 		}
 
-		return result.toArray(new ClusterTaskPersistenceResult[0]);
+		int[] updateCounts = jdbcTemplate.batchUpdate(insertTaskMetaSQL, metaParams, new int[]{
+				Types.BIGINT,               //  task ID
+				Types.INTEGER,              //  task type
+				Types.VARCHAR,              //  processor type
+				Types.VARCHAR,              //  uniqueness key
+				Types.VARCHAR,              //  concurrency key
+				Types.VARCHAR,              //  application key
+				Types.BIGINT,               //  delay by millis
+				Types.INTEGER,              //  partition index
+				Types.BIGINT,               //  shared body ID
+				Types.VARCHAR,              //  inline body
+				Types.BIGINT,               //  ordering factor
+				Types.BIGINT                //  delay by millis (second time for potential ordering calculation based on creation time when ordering is NULL)
+		});
+
+		//  bodies are inserted only for the tasks, that were not rejected due to uniqueness violation
+		boolean[] result = resolveInsertedTasks(jdbcTemplate, tasks, updateCounts);
+		List<Object[]> bodyParams = new ArrayList<>();
+		for (int i = 0; i < tasks.size(); i++) {
+			if (result[i] && tasks.get(i).hasOwnBody()) {
+				bodyParams.add(buildInsertTaskBodyParams(tasks.get(i)));
+			}
+		}
+		if (!bodyParams.isEmpty()) {
+			jdbcTemplate.batchUpdate(insertTaskBodySQLs.get(partitionIndex), bodyParams, insertTaskBodyParamTypes);
+		}
+		return result;
+	}
+
+	private ClusterTaskPersistenceResult[] storeTasksBulk(ClusterTaskImpl[] tasks) {
+		long partitionIndex = resolveBodyTablePartitionIndex();
+		Map<Integer, Long> storedTasks = getTransactionTemplate().execute(transactionStatus -> {
+			JdbcTemplate jdbcTemplate = getJdbcTemplate();
+			registerChannels(jdbcTemplate, Arrays.asList(tasks));
+			jdbcTemplate.execute(createBulkStagingTableSQL);
+			Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> copyTasksToBulkStaging(connection, tasks));
+			if (copied == null || copied != tasks.length) {
+				throw new IllegalStateException("expected to copy " + tasks.length + " tasks to the staging table, yet copied " + copied);
+			}
+			return jdbcTemplate.query(moveBulkStagedTasksSQLs.get(partitionIndex), rs -> {
+				Map<Integer, Long> result = new HashMap<>();
+				while (rs.next()) {
+					result.put(rs.getInt(1), rs.getLong(2));
+				}
+				return result;
+			});
+		});
+		if (storedTasks == null) {
+			throw new IllegalStateException("failed to move staged tasks to the tasks tables");
+		}
+
+		ClusterTaskPersistenceResult[] result = new ClusterTaskPersistenceResult[tasks.length];
+		for (int i = 0; i < tasks.length; i++) {
+			Long taskId = storedTasks.get(i);
+			if (taskId != null) {
+				tasks[i].id = taskId;
+				if (tasks[i].hasOwnBody()) {
+					tasks[i].partitionIndex = partitionIndex;
+				}
+				result[i] = new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.SUCCESS);
+			} else {
+				result[i] = new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE);
+			}
+		}
+		if (storedTasks.size() < tasks.length) {
+			logger.info(clusterTasksService.getInstanceID() + " bulk stored " + storedTasks.size() + " out of " + tasks.length + " tasks, the rest rejected due to uniqueness violation");
+		} else if (logger.isDebugEnabled()) {
+			logger.debug("successfully bulk stored " + tasks.length + " tasks");
+		}
+		return result;
+	}
+
+	private long copyTasksToBulkStaging(Connection connection, ClusterTaskImpl[] tasks) throws SQLException {
+		PGConnection pgConnection = connection.unwrap(PGConnection.class);
+		PGCopyOutputStream copyStream = new PGCopyOutputStream(pgConnection, copyToBulkStagingTableSQL);
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(copyStream, StandardCharsets.UTF_8), 1 << 16);
+			int compressionThreshold = getTaskBodyCompressionThreshold();
+			for (int i = 0; i < tasks.length; i++) {
+				ClusterTaskImpl task = tasks[i];
+				writer.write(String.valueOf(i));
+				writeCopyValue(writer, String.valueOf(task.taskType.value));
+				writeCopyValue(writer, task.processorType);
+				writeCopyValue(writer, task.uniquenessKey);
+				writeCopyValue(writer, task.concurrencyKey);
+				writeCopyValue(writer, task.applicationKey);
+				writeCopyValue(writer, String.valueOf(task.delayByMillis));
+				writeCopyValue(writer, task.orderingFactor == null ? null : String.valueOf(task.orderingFactor));
+				if (task.hasOwnBody()) {
+					ClusterTaskBodyCodec.EncodedBody encodedBody = ClusterTaskBodyCodec.encode(task, compressionThreshold);
+					writeCopyValue(writer, encodedBody.text);
+					writeCopyValue(writer, encodedBody.binary == null ? null : toCopyByteaHex(encodedBody.binary));
+					writeCopyValue(writer, String.valueOf(encodedBody.format));
+				} else {
+					writeCopyValue(writer, null);
+					writeCopyValue(writer, null);
+					writeCopyValue(writer, null);
+				}
+				writeCopyValue(writer, task.bodyInline ? task.body : null);
+				writer.write('\n');
+			}
+			writer.flush();
+			return copyStream.endCopy();
+		} catch (IOException ioe) {
+			throw new SQLException("failed to stream tasks to the staging table", ioe);
+		} finally {
+			if (copyStream.isActive()) {
+				copyStream.cancelCopy();
+			}
+		}
+	}
+
+	//  bytea value in hex format; the leading backslash gets escaped by writeCopyValue
+	private static String toCopyByteaHex(byte[] value) {
+		char[] hexDigits = "0123456789abcdef".toCharArray();
+		StringBuilder result = new StringBuilder(2 + value.length * 2).append("\\x");
+		for (byte b : value) {
+			result.append(hexDigits[(b >> 4) & 0xF]).append(hexDigits[b & 0xF]);
+		}
+		return result.toString();
+	}
+
+	//  writes column separator and the value in COPY text format: NULL as \N, backslash and control characters escaped
+	private static void writeCopyValue(Writer writer, String value) throws IOException {
+		writer.write('\t');
+		if (value == null) {
+			writer.write("\\N");
+			return;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '\\':
+					writer.write("\\\\");
+					break;
+				case '\n':
+					writer.write("\\n");
+					break;
+				case '\r':
+					writer.write("\\r");
+					break;
+				case '\t':
+					writer.write("\\t");
+					break;
+				default:
+					writer.write(c);
+			}
+		}
 	}
 
 	@Override
-	public void retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
+	long reserveTaskId(JdbcTemplate jdbcTemplate) {
+		Long id = jdbcTemplate.queryForObject(selectTaskIDsSQL, new Object[]{1}, new int[]{Types.INTEGER}, Long.class);
+		if (id == null) {
+			throw new IllegalStateException("failed to reserve task ID");
+		}
+		return id;
+	}
+
+	@Override
+	void insertTaskBody(JdbcTemplate jdbcTemplate, ClusterTaskImpl task) {
+		jdbcTemplate.update(insertTaskBodySQLs.get(task.partitionIndex), buildInsertTaskBodyParams(task), insertTaskBodyParamTypes);
+	}
+
+	@Override
+	public int retrieveAndDispatchTasks(Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		//  optimistic dispatch claims the tasks with no cluster wide lock at all
+		if (isOptimisticDispatchEnabled()) {
+			return optimisticallyDispatchTasks(availableProcessors);
+		}
+
 		Map<ClusterTasksProcessorBase, Collection<ClusterTaskImpl>> tasksToRun = new HashMap<>();
+		boolean concurrentDispatch = isConcurrentDispatchEnabled();
+		Map<Integer, String> selectForUpdateSQLs = concurrentDispatch ? selectForUpdateChanneledTasksSQLs : selectForUpdateTasksSQLs;
 
 		//  within the same transaction do:
 		//  - SELECT candidate tasks to be run
 		//  - LET processors to pick up the tasks that will actually run
 		//  - UPDATE those tasks as RUNNING
-		getTransactionTemplate().execute(transactionStatus -> {
-			try {
-				JdbcTemplate jdbcTemplate = getJdbcTemplate();
-				String[] availableProcessorTypes = availableProcessors.keySet().toArray(new String[0]);
-				Integer paramsTotal = null;
-				String sql = null;
-				for (Map.Entry<Integer, String> testedParam : selectForUpdateTasksSQLs.entrySet()) {
-					if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
-						sql = testedParam.getValue();
-						break;
+		//  contention of the lock fails the channeled part of the round only, the rest of the round is completed regardless
+		ClusterTasksLockContendedException contention = null;
+		try {
+			getTransactionTemplate().execute(transactionStatus -> {
+				try {
+					JdbcTemplate jdbcTemplate = getJdbcTemplate();
+					Integer paramsTotal = null;
+					String sql = null;
+					for (Map.Entry<Integer, String> testedParam : selectForUpdateSQLs.entrySet()) {
+						if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
+							sql = testedParam.getValue();
+							break;
+						}
 					}
-				}
-				if (paramsTotal == null || sql == null) {
-					throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
-				}
+					if (paramsTotal == null || sql == null) {
+						throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
+					}
+
+					//  prepare params and param types
+					Object[] params = buildSelectForUpdateTasksParams(availableProcessors, paramsTotal, !concurrentDispatch);
+					int[] paramTypes = buildSelectForUpdateTasksParamTypes(paramsTotal, !concurrentDispatch, Types.VARCHAR);
 
-				//  prepare params
-				Object[] params = new Object[paramsTotal];
-				System.arraycopy(availableProcessorTypes, 0, params, 0, availableProcessorTypes.length);
-				for (int i = availableProcessorTypes.length; i < paramsTotal; i++) params[i] = null;
-
-				//  prepare param types
-				int[] paramTypes = new int[paramsTotal];
-				for (int i = 0; i < paramsTotal; i++) paramTypes[i] = Types.VARCHAR;
-
-				List<ClusterTaskImpl> tasks;
-				jdbcTemplate.execute(lockForSelectForRunTasksSQL);
-				tasks = jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
-				if (tasks != null && !tasks.isEmpty()) {
-					Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType));
-					Set<Long> tasksToRunIDs = new HashSet<>();
-
-					//  let processors decide which tasks will be processed from all available
-					tasksByProcessor.forEach((processorType, processorTasks) -> {
-						ClusterTasksProcessorBase processor = availableProcessors.get(processorType);
-						Collection<ClusterTaskImpl> tmpTasks = processor.selectTasksToRun(processorTasks);
-						tasksToRun.put(processor, tmpTasks);
-						tasksToRunIDs.addAll(tmpTasks.stream().map(task -> task.id).collect(Collectors.toList()));
-					});
-
-					//  update selected tasks to RUNNING
-					if (!tasksToRunIDs.isEmpty()) {
-						String runtimeInstanceID = clusterTasksService.getInstanceID();
-						List<Object[]> updateParams = tasksToRunIDs.stream()
-								.sorted()
-								.map(id -> new Object[]{runtimeInstanceID, id})
-								.collect(Collectors.toList());
-						int[] updateResults = jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.VARCHAR, Types.BIGINT});
-						if (logger.isDebugEnabled()) {
-							logger.debug("update tasks to RUNNING results: " + Stream.of(updateResults).map(String::valueOf).collect(Collectors.joining(", ")));
-							logger.debug("from a total of " + tasks.size() + " available tasks " + tasksToRunIDs.size() + " has been started");
+					List<ClusterTaskImpl> tasks;
+					//  try-lock: should another node hold any of the stripes, the locked part of this round is skipped (xact locks taken so far are released on rollback)
+					for (Integer stripe : resolveDispatchLockStripes(availableProcessors.keySet())) {
+						if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(lockForSelectForRunTasksSQLs.get(stripe), Boolean.class))) {
+							throw lockContended(DISPATCH_LOCK);
 						}
-					} else {
-						logger.warn("from a total of " + tasks.size() + " available tasks none has been started");
 					}
+					tasks = jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+					if (tasks != null && !tasks.isEmpty()) {
+						Map<String, List<ClusterTaskImpl>> tasksByProcessor = tasks.stream().collect(Collectors.groupingBy(ti -> ti.processorType));
+						Set<Long> tasksToRunIDs = new HashSet<>();
+
+						//  let processors decide which tasks will be processed from all available
+						tasksByProcessor.forEach((processorType, processorTasks) -> {
+							ClusterTasksProcessorBase processor = availableProcessors.get(processorType);
+							Collection<ClusterTaskImpl> tmpTasks = processor.selectTasksToRun(processorTasks);
+							tasksToRun.put(processor, tmpTasks);
+							tasksToRunIDs.addAll(tmpTasks.stream().map(task -> task.id).collect(Collectors.toList()));
+						});
+
+						//  update selected tasks to RUNNING
+						if (!tasksToRunIDs.isEmpty()) {
+							String runtimeInstanceID = clusterTasksService.getInstanceID();
+							List<Object[]> updateParams = tasksToRunIDs.stream()
+									.sorted()
+									.map(id -> new Object[]{runtimeInstanceID, id})
+									.collect(Collectors.toList());
+							int[] updateResults = jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.VARCHAR, Types.BIGINT});
+							updateChannelsStarted(jdbcTemplate, tasksToRun);
+							if (logger.isDebugEnabled()) {
+								logger.debug("update tasks to RUNNING results: " + Stream.of(updateResults).map(String::valueOf).collect(Collectors.joining(", ")));
+								logger.debug("from a total of " + tasks.size() + " available tasks " + tasksToRunIDs.size() + " has been started");
+							}
+						} else {
+							logger.warn("from a total of " + tasks.size() + " available tasks none has been started");
+						}
+					}
+				} catch (ClusterTasksLockContendedException lce) {
+					transactionStatus.setRollbackOnly();
+					tasksToRun.clear();
+					throw lce;
+				} catch (Throwable t) {
+					transactionStatus.setRollbackOnly();
+					tasksToRun.clear();
+					throw new CtsGeneralFailure("failed to retrieve and execute tasks", t);
 				}
-			} catch (Throwable t) {
-				transactionStatus.setRollbackOnly();
-				tasksToRun.clear();
-				throw new CtsGeneralFailure("failed to retrieve and execute tasks", t);
-			}
 
-			return null;
-		});
+				return null;
+			});
+		} catch (ClusterTasksLockContendedException lce) {
+			contention = lce;
+		}
 
 		//  actually deliver tasks to processors
-		tasksToRun.forEach((processor, tasks) -> processor.handleTasks(tasks, this));
+		return completeDispatchRound(tasksToRun, availableProcessors, concurrentDispatch, contention);
+	}
+
+	@Override
+	List<ClusterTaskImpl> selectDispatchCandidates(JdbcTemplate jdbcTemplate, Map<String, ClusterTasksProcessorBase> availableProcessors) {
+		Integer paramsTotal = null;
+		String sql = null;
+		for (Map.Entry<Integer, String> testedParam : selectForUpdateTasksSQLs.entrySet()) {
+			if ((paramsTotal = testedParam.getKey()) >= availableProcessors.size()) {
+				sql = testedParam.getValue();
+				break;
+			}
+		}
+		if (paramsTotal == null || sql == null) {
+			throw new IllegalStateException("failed to match 'selectForUpdateTasks' SQL for the amount of " + availableProcessors.size() + " processors");
+		}
+
+		Object[] params = buildSelectForUpdateTasksParams(availableProcessors, paramsTotal, true);
+		int[] paramTypes = buildSelectForUpdateTasksParamTypes(paramsTotal, true, Types.VARCHAR);
+		return jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+	}
+
+	@Override
+	List<ClusterTaskImpl> selectClaimableTasks(JdbcTemplate jdbcTemplate, Map<String, Integer> claimLimits) {
+		Integer paramsTotal = null;
+		String sql = null;
+		for (Map.Entry<Integer, String> testedParam : selectClaimableTasksSQLs.entrySet()) {
+			if ((paramsTotal = testedParam.getKey()) >= claimLimits.size()) {
+				sql = testedParam.getValue();
+				break;
+			}
+		}
+		if (paramsTotal == null || sql == null) {
+			throw new IllegalStateException("failed to match 'selectClaimableTasks' SQL for the amount of " + claimLimits.size() + " processors");
+		}
+
+		Object[] params = new Object[paramsTotal * 2];
+		int[] paramTypes = new int[paramsTotal * 2];
+		int index = 0;
+		for (Map.Entry<String, Integer> claimLimit : claimLimits.entrySet()) {
+			params[index * 2] = claimLimit.getKey();
+			params[index * 2 + 1] = claimLimit.getValue();
+			index++;
+		}
+		for (int i = 0; i < paramsTotal; i++) {
+			paramTypes[i * 2] = Types.VARCHAR;
+			paramTypes[i * 2 + 1] = Types.INTEGER;
+		}
+
+		return jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+	}
+
+	@Override
+	List<ClusterTaskImpl> claimTasksStarted(JdbcTemplate jdbcTemplate, Map<String, ClusterTasksProcessorBase> processorsToClaimBy) {
+		Integer paramsTotal = null;
+		String sql = null;
+		for (Map.Entry<Integer, String> testedParam : claimTasksStartedSQLs.entrySet()) {
+			if ((paramsTotal = testedParam.getKey()) >= processorsToClaimBy.size()) {
+				sql = testedParam.getValue();
+				break;
+			}
+		}
+		if (paramsTotal == null || sql == null) {
+			throw new IllegalStateException("failed to match 'claimTasksStarted' SQL for the amount of " + processorsToClaimBy.size() + " processors");
+		}
+
+		Object[] params = new Object[paramsTotal * 2 + 1];
+		int[] paramTypes = new int[paramsTotal * 2 + 1];
+		int index = 0;
+		for (Map.Entry<String, ClusterTasksProcessorBase> processor : processorsToClaimBy.entrySet()) {
+			params[index * 2] = processor.getKey();
+			params[index * 2 + 1] = processor.getValue().getAvailableWorkers();
+			index++;
+		}
+		for (int i = 0; i < paramsTotal; i++) {
+			paramTypes[i * 2] = Types.VARCHAR;
+			paramTypes[i * 2 + 1] = Types.INTEGER;
+		}
+		params[paramsTotal * 2] = clusterTasksService.getInstanceID();
+		paramTypes[paramsTotal * 2] = Types.VARCHAR;
+
+		return jdbcTemplate.query(sql, params, paramTypes, this::tasksMetadataReader);
+	}
+
+	@Override
+	void updateTasksStarted(JdbcTemplate jdbcTemplate, Collection<Long> taskIds) {
+		String runtimeInstanceID = clusterTasksService.getInstanceID();
+		List<Object[]> updateParams = taskIds.stream()
+				.map(id -> new Object[]{runtimeInstanceID, id})
+				.collect(Collectors.toList());
+		jdbcTemplate.batchUpdate(updateTasksStartedSQL, updateParams, new int[]{Types.VARCHAR, Types.BIGINT});
+	}
+
+	@Override
+	String readBodyText(ResultSet resultSet) throws SQLException {
+		return resultSet.getString(BODY);
 	}
 
 	@Override
-	public String retrieveTaskBody(Long taskId, Long partitionIndex) {
+	public ClusterTaskBodyCodec.DecodedBody retrieveTaskBody(Long taskId, Long partitionIndex) {
 		try {
 			JdbcTemplate jdbcTemplate = getJdbcTemplate();
 			String sql = selectTaskBodyByPartitionSQLs.get(partitionIndex);
 			return jdbcTemplate.query(sql, new Object[]{taskId}, new int[]{Types.BIGINT}, rs -> {
-				String result = null;
+				ClusterTaskBodyCodec.DecodedBody result = null;
 				try {
 					if (rs.next()) {
 						try {
-							result = rs.getString(ClusterTasksDbDataProvider.BODY);
+							int format = rs.getInt(ClusterTasksDbDataProvider.BODY_FORMAT);
+							Integer bodyFormat = rs.wasNull() ? null : format;
+							String text = rs.getString(ClusterTasksDbDataProvider.BODY);
+							byte[] binary = rs.getBytes(ClusterTasksDbDataProvider.BODY_BINARY);
+							result = ClusterTaskBodyCodec.decode(text, binary, bodyFormat);
 						} catch (SQLException sqle) {
 							logger.error("failed to read cluster task body", sqle);
 							throw new CtsSqlFailure("failed to read cluster task body", sqle);
@@ -344,10 +898,10 @@ final class PostgreSqlDbDataProvider extends ClusterTasksDbDataProvider {
 	}
 
 	private Set<String> getCTSTableNames() {
-		return Stream.of(ACTIVE_NODES_TABLE_NAME.toLowerCase(), META_TABLE_NAME.toLowerCase(), BODY_TABLE_NAME.toLowerCase() + "0", BODY_TABLE_NAME.toLowerCase() + "1", BODY_TABLE_NAME.toLowerCase() + "2", BODY_TABLE_NAME.toLowerCase() + "3").collect(Collectors.toSet());
+		return Stream.of(ACTIVE_NODES_TABLE_NAME.toLowerCase(), META_TABLE_NAME.toLowerCase(), BODY_TABLE_NAME.toLowerCase() + "0", BODY_TABLE_NAME.toLowerCase() + "1", BODY_TABLE_NAME.toLowerCase() + "2", BODY_TABLE_NAME.toLowerCase() + "3", CHANNEL_TABLE_NAME.toLowerCase()).collect(Collectors.toSet());
 	}
 
 	private Set<String> getCTSIndexNames() {
-		return Stream.of("ctsan_pk", "ctskm_pk", "ctskm_idx_1", "ctskb_pk_p0", "ctskb_pk_p1", "ctskb_pk_p2", "ctskb_pk_p3").collect(Collectors.toSet());
+		return Stream.of("ctsan_pk", "ctskm_pk", "ctskm_idx_1", "ctskm_idx_7", "ctskm_idx_8", "ctskc_pk", "ctskb_pk_p0", "ctskb_pk_p1", "ctskb_pk_p2", "ctskb_pk_p3").collect(Collectors.toSet());
 	}
 }
@@ -81,10 +81,27 @@ abstract public class TaskBuilderBase implements TaskBuilders.TaskBuilder {
 		if (body == null || body.isEmpty()) {
 			throw new IllegalArgumentException("body, if/when set, MUST NOT be NULL nor EMPTY");
 		}
+		if (result.binaryBody != null) {
+			throw new IllegalArgumentException("task MAY have either text or binary body, binary body has already been set");
+		}
 		result.body = body;
 		return this;
 	}
 
+	public TaskBuilders.TaskBuilder setBinaryBody(byte[] body) {
+		if (locked) {
+			throw new IllegalStateException("task builder MAY BE used only once");
+		}
+		if (body == null || body.length == 0) {
+			throw new IllegalArgumentException("binary body, if/when set, MUST NOT be NULL nor EMPTY");
+		}
+		if (result.body != null) {
+			throw new IllegalArgumentException("task MAY have either text or binary body, text body has already been set");
+		}
+		result.binaryBody = body;
+		return this;
+	}
+
 	public ClusterTask build() {
 		if (locked) {
 			throw new IllegalStateException("task builder MAY BE built only once");
@@ -0,0 +1,2 @@
+ALTER SEQUENCE CLUSTER_TASK_ID
+    INCREMENT BY 1000;
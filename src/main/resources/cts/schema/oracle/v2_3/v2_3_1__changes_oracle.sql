@@ -0,0 +1,23 @@
+ALTER TABLE CLUSTER_TASK_BODY_P0
+    ADD (CTSKB_BODY_BINARY BLOB, CTSKB_BODY_FORMAT NUMBER(3));
+
+ALTER TABLE CLUSTER_TASK_BODY_P0
+    MODIFY (CTSKB_BODY NULL);
+
+ALTER TABLE CLUSTER_TASK_BODY_P1
+    ADD (CTSKB_BODY_BINARY BLOB, CTSKB_BODY_FORMAT NUMBER(3));
+
+ALTER TABLE CLUSTER_TASK_BODY_P1
+    MODIFY (CTSKB_BODY NULL);
+
+ALTER TABLE CLUSTER_TASK_BODY_P2
+    ADD (CTSKB_BODY_BINARY BLOB, CTSKB_BODY_FORMAT NUMBER(3));
+
+ALTER TABLE CLUSTER_TASK_BODY_P2
+    MODIFY (CTSKB_BODY NULL);
+
+ALTER TABLE CLUSTER_TASK_BODY_P3
+    ADD (CTSKB_BODY_BINARY BLOB, CTSKB_BODY_FORMAT NUMBER(3));
+
+ALTER TABLE CLUSTER_TASK_BODY_P3
+    MODIFY (CTSKB_BODY NULL);
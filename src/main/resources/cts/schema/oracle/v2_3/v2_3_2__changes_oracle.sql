@@ -0,0 +1,4 @@
+ALTER TABLE CLUSTER_TASK_META
+    ADD CTSKM_BODY_ID NUMBER(19, 0);
+
+CREATE INDEX CTSKM_IDX_7 ON CLUSTER_TASK_META (CTSKM_BODY_ID);
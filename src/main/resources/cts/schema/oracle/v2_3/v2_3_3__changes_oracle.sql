@@ -0,0 +1,2 @@
+ALTER TABLE CLUSTER_TASK_META
+    ADD CTSKM_BODY_INLINE VARCHAR2(4000 CHAR);
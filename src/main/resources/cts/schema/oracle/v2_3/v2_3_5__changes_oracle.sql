@@ -0,0 +1,7 @@
+CREATE TABLE CLUSTER_TASK_LOCK (
+    CTSKL_ID NUMBER(3, 0) NOT NULL,
+    CONSTRAINT CTSKL_PK PRIMARY KEY (CTSKL_ID)
+);
+
+INSERT INTO CLUSTER_TASK_LOCK (CTSKL_ID)
+    SELECT LEVEL - 1 FROM DUAL CONNECT BY LEVEL <= 64;
@@ -0,0 +1,7 @@
+CREATE TABLE CLUSTER_TASK_SIGNAL (
+    CTSKS_ID NUMBER(3, 0) NOT NULL,
+    CTSKS_COUNTER NUMBER(19, 0) NOT NULL,
+    CONSTRAINT CTSKS_PK PRIMARY KEY (CTSKS_ID)
+);
+
+INSERT INTO CLUSTER_TASK_SIGNAL (CTSKS_ID, CTSKS_COUNTER) VALUES (0, 0);
@@ -0,0 +1 @@
+INSERT INTO CLUSTER_TASK_LOCK (CTSKL_ID) VALUES (100);
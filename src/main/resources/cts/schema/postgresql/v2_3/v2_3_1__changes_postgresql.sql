@@ -0,0 +1,23 @@
+BEGIN;
+
+ALTER TABLE cluster_task_body_p0
+    ADD COLUMN CTSKB_BODY_BINARY BYTEA,
+    ADD COLUMN CTSKB_BODY_FORMAT SMALLINT,
+    ALTER COLUMN CTSKB_BODY DROP NOT NULL;
+
+ALTER TABLE cluster_task_body_p1
+    ADD COLUMN CTSKB_BODY_BINARY BYTEA,
+    ADD COLUMN CTSKB_BODY_FORMAT SMALLINT,
+    ALTER COLUMN CTSKB_BODY DROP NOT NULL;
+
+ALTER TABLE cluster_task_body_p2
+    ADD COLUMN CTSKB_BODY_BINARY BYTEA,
+    ADD COLUMN CTSKB_BODY_FORMAT SMALLINT,
+    ALTER COLUMN CTSKB_BODY DROP NOT NULL;
+
+ALTER TABLE cluster_task_body_p3
+    ADD COLUMN CTSKB_BODY_BINARY BYTEA,
+    ADD COLUMN CTSKB_BODY_FORMAT SMALLINT,
+    ALTER COLUMN CTSKB_BODY DROP NOT NULL;
+
+END;
@@ -0,0 +1,8 @@
+BEGIN;
+
+ALTER TABLE cluster_task_meta
+    ADD COLUMN CTSKM_BODY_ID BIGINT;
+
+CREATE INDEX ctskm_idx_7 ON cluster_task_meta (CTSKM_BODY_ID) WHERE CTSKM_BODY_ID IS NOT NULL;
+
+END;
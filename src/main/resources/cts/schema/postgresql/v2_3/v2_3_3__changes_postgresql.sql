@@ -0,0 +1,2 @@
+ALTER TABLE cluster_task_meta
+    ADD COLUMN CTSKM_BODY_INLINE CHARACTER VARYING(4000);
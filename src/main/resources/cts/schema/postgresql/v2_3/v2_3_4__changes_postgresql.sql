@@ -0,0 +1,16 @@
+BEGIN;
+
+CREATE TABLE cluster_task_channel (
+  CTSKC_CONCURRENCY_KEY CHARACTER VARYING(40) NOT NULL CONSTRAINT ctskc_pk PRIMARY KEY,
+  CTSKC_RUNNING_TASK_ID BIGINT
+);
+
+CREATE INDEX ctskm_idx_8 ON cluster_task_meta (CTSKM_CONCURRENCY_KEY, CTSKM_ORDERING_FACTOR, CTSKM_ID) WHERE CTSKM_CONCURRENCY_KEY IS NOT NULL;
+
+INSERT INTO cluster_task_channel (CTSKC_CONCURRENCY_KEY, CTSKC_RUNNING_TASK_ID)
+  SELECT CTSKM_CONCURRENCY_KEY, MAX(CASE WHEN CTSKM_STATUS = 1 THEN CTSKM_ID END)
+  FROM cluster_task_meta
+  WHERE CTSKM_CONCURRENCY_KEY IS NOT NULL
+  GROUP BY CTSKM_CONCURRENCY_KEY;
+
+END;
@@ -0,0 +1,23 @@
+ALTER TABLE CLUSTER_TASK_BODY_P0
+    ADD CTSKB_BODY_BINARY VARBINARY(MAX), CTSKB_BODY_FORMAT TINYINT
+
+ALTER TABLE CLUSTER_TASK_BODY_P0
+    ALTER COLUMN CTSKB_BODY NVARCHAR(MAX) NULL
+
+ALTER TABLE CLUSTER_TASK_BODY_P1
+    ADD CTSKB_BODY_BINARY VARBINARY(MAX), CTSKB_BODY_FORMAT TINYINT
+
+ALTER TABLE CLUSTER_TASK_BODY_P1
+    ALTER COLUMN CTSKB_BODY NVARCHAR(MAX) NULL
+
+ALTER TABLE CLUSTER_TASK_BODY_P2
+    ADD CTSKB_BODY_BINARY VARBINARY(MAX), CTSKB_BODY_FORMAT TINYINT
+
+ALTER TABLE CLUSTER_TASK_BODY_P2
+    ALTER COLUMN CTSKB_BODY NVARCHAR(MAX) NULL
+
+ALTER TABLE CLUSTER_TASK_BODY_P3
+    ADD CTSKB_BODY_BINARY VARBINARY(MAX), CTSKB_BODY_FORMAT TINYINT
+
+ALTER TABLE CLUSTER_TASK_BODY_P3
+    ALTER COLUMN CTSKB_BODY NVARCHAR(MAX) NULL
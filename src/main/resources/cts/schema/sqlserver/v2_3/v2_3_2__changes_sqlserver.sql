@@ -0,0 +1,4 @@
+ALTER TABLE CLUSTER_TASK_META
+    ADD CTSKM_BODY_ID BIGINT
+
+CREATE INDEX CTSKM_IDX_7 ON CLUSTER_TASK_META (CTSKM_BODY_ID) WHERE CTSKM_BODY_ID IS NOT NULL
@@ -0,0 +1,12 @@
+CREATE TABLE CLUSTER_TASK_CHANNEL (
+    CTSKC_CONCURRENCY_KEY NVARCHAR(40) NOT NULL CONSTRAINT CTSKC_PK PRIMARY KEY,
+    CTSKC_RUNNING_TASK_ID BIGINT NULL
+)
+
+CREATE INDEX CTSKM_IDX_8 ON CLUSTER_TASK_META (CTSKM_CONCURRENCY_KEY, CTSKM_ORDERING_FACTOR, CTSKM_ID) WHERE CTSKM_CONCURRENCY_KEY IS NOT NULL
+
+INSERT INTO CLUSTER_TASK_CHANNEL (CTSKC_CONCURRENCY_KEY, CTSKC_RUNNING_TASK_ID)
+    SELECT CTSKM_CONCURRENCY_KEY, MAX(CASE WHEN CTSKM_STATUS = 1 THEN CTSKM_ID END)
+    FROM CLUSTER_TASK_META
+    WHERE CTSKM_CONCURRENCY_KEY IS NOT NULL
+    GROUP BY CTSKM_CONCURRENCY_KEY
@@ -0,0 +1,6 @@
+CREATE TABLE CLUSTER_TASK_SIGNAL (
+    CTSKS_ID INT NOT NULL CONSTRAINT CTSKS_PK PRIMARY KEY,
+    CTSKS_COUNTER BIGINT NOT NULL
+)
+
+INSERT INTO CLUSTER_TASK_SIGNAL (CTSKS_ID, CTSKS_COUNTER) VALUES (0, 0)
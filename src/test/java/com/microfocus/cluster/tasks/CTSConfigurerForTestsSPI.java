@@ -15,6 +15,10 @@ import static com.microfocus.cluster.tasks.api.ClusterTasksServiceConfigurerSPI.
 import static com.microfocus.cluster.tasks.api.ClusterTasksServiceConfigurerSPI.DBType.POSTGRESQL;
 
 public class CTSConfigurerForTestsSPI implements ClusterTasksServiceConfigurerSPI, DisposableBean {
+	//  shared by all of the nodes raised within the tests' JVM, since all of the cluster nodes MUST run the same dispatch mode; read by CTS per dispatch round
+	private static volatile DispatchMode dispatchMode = DispatchMode.LOCKED;
+	//  read by CTS once, upon initialization, hence to be set before raising the nodes
+	private static volatile int dispatchLockStripes = 1;
 	private final CompletableFuture<Boolean> configReadyLatch = new CompletableFuture<>();
 	private final DBType dbType;
 	private final HikariDataSource dataSource;
@@ -71,6 +75,34 @@ public class CTSConfigurerForTestsSPI implements ClusterTasksServiceConfigurerSP
 		return dbType;
 	}
 
+	@Override
+	public boolean isConcurrentDispatchEnabled() {
+		return dispatchMode == DispatchMode.CONCURRENT || dispatchMode == DispatchMode.SINGLE_STATEMENT;
+	}
+
+	@Override
+	public boolean isSingleStatementClaimEnabled() {
+		return dispatchMode == DispatchMode.SINGLE_STATEMENT;
+	}
+
+	@Override
+	public boolean isOptimisticDispatchEnabled() {
+		return dispatchMode == DispatchMode.OPTIMISTIC;
+	}
+
+	@Override
+	public int getDispatchLockStripes() {
+		return dispatchLockStripes;
+	}
+
+	public static void setDispatchMode(DispatchMode dispatchMode) {
+		CTSConfigurerForTestsSPI.dispatchMode = dispatchMode;
+	}
+
+	public static void setDispatchLockStripes(int dispatchLockStripes) {
+		CTSConfigurerForTestsSPI.dispatchLockStripes = dispatchLockStripes;
+	}
+
 	private Properties resolveConfigProperties() throws IOException {
 		Properties result = new Properties();
 		String dbConfigLocation;
@@ -104,4 +136,11 @@ public class CTSConfigurerForTestsSPI implements ClusterTasksServiceConfigurerSP
 		dataSource.close();
 		System.out.println("connections pool closed");
 	}
+
+	public enum DispatchMode {
+		LOCKED,
+		CONCURRENT,
+		SINGLE_STATEMENT,   //  concurrent dispatch claiming the tasks started in a single statement, PostgreSQL only
+		OPTIMISTIC
+	}
 }
@@ -14,8 +14,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.util.UUID;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -89,6 +92,55 @@ public class UniquenessTest extends CTSTestsBase {
 		CTSTestsUtils.waitSafely(1500);
 	}
 
+	@Test
+	public void uniquenessTest_B_batch_with_duplicates() {
+		drainTasks();
+
+		//  enqueue batch where one of the tasks violates uniqueness of a preceding one - only the offending task should be rejected
+		ClusterTask[] tasks = new ClusterTask[4];
+		String[] uniquenessKeys = new String[]{"task-a", "task-b", "task-a", "task-c"};
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = TaskBuilders.uniqueTask()
+					.setUniquenessKey(uniquenessKeys[i])
+					.setDelayByMillis(500)
+					.setBody("0")
+					.build();
+		}
+		ClusterTaskPersistenceResult[] results = clusterTasksService.enqueueTasks(ClusterTasksDataProviderType.DB, ClusterTasksProcessorUniqueness_test.class.getSimpleName(), tasks);
+		assertEquals(4, results.length);
+		assertEquals(ClusterTaskInsertStatus.SUCCESS, results[0].getStatus());
+		assertEquals(ClusterTaskInsertStatus.SUCCESS, results[1].getStatus());
+		assertEquals(ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE, results[2].getStatus());
+		assertEquals(ClusterTaskInsertStatus.SUCCESS, results[3].getStatus());
+
+		waitForEndCondition(3, 5000L);
+
+		CTSTestsUtils.waitSafely(1500);
+	}
+
+	@Test
+	public void uniquenessTest_C_bulk_with_duplicates() {
+		//  enqueue amount of tasks large enough to go via bulk flow, where each 100th task violates uniqueness of a preceding one
+		//  tasks are targeted to processor that is not registered, so that they stay pending and could be counted
+		String processorType = "ClusterTasksProcessorBulk_test_na";
+		String runId = UUID.randomUUID().toString().substring(0, 8);
+		ClusterTask[] tasks = new ClusterTask[6000];
+		for (int i = 0; i < tasks.length; i++) {
+			TaskBuilders.TaskBuilder taskBuilder = TaskBuilders.uniqueTask()
+					.setUniquenessKey(runId + "-" + (i % 100 == 99 ? i - 1 : i));
+			if (i % 2 == 0) {
+				taskBuilder.setBody("body\twith\nspecial \\ characters " + i);
+			}
+			tasks[i] = taskBuilder.build();
+		}
+		ClusterTaskPersistenceResult[] results = clusterTasksService.enqueueTasks(ClusterTasksDataProviderType.DB, processorType, tasks);
+		assertEquals(tasks.length, results.length);
+		for (int i = 0; i < results.length; i++) {
+			assertEquals(i % 100 == 99 ? ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE : ClusterTaskInsertStatus.SUCCESS, results[i].getStatus());
+		}
+		assertTrue(clusterTasksService.countTasks(ClusterTasksDataProviderType.DB, processorType, ClusterTaskStatus.PENDING) >= 5940);
+	}
+
 	private void drainTasks() {
 		int tasksLeft;
 		long maxTimeToWait = 25000L;
@@ -0,0 +1,101 @@
+package com.microfocus.cluster.tasks.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Collection of unit tests for the task body codec
+ */
+
+public class ClusterTaskBodyCodecTest {
+
+	@Test
+	public void testA_body_below_threshold_stored_as_text() {
+		ClusterTaskBodyCodec.EncodedBody encoded = ClusterTaskBodyCodec.encode("short body", 1024);
+		Assert.assertEquals(ClusterTaskBodyCodec.FORMAT_TEXT, encoded.format);
+		Assert.assertEquals("short body", encoded.text);
+		Assert.assertNull(encoded.binary);
+	}
+
+	@Test
+	public void testB_body_above_threshold_compressed_and_restored() {
+		StringBuilder bodyBuilder = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			bodyBuilder.append("{\"key\":\"value ").append(i % 10).append("\", \"unicode\":\"שלום\"}");
+		}
+		String body = bodyBuilder.toString();
+
+		ClusterTaskBodyCodec.EncodedBody encoded = ClusterTaskBodyCodec.encode(body, 1024);
+		Assert.assertEquals(ClusterTaskBodyCodec.FORMAT_TEXT_GZIP, encoded.format);
+		Assert.assertNull(encoded.text);
+		Assert.assertTrue(encoded.binary.length < body.length());
+		Assert.assertEquals(body, ClusterTaskBodyCodec.decode(encoded.text, encoded.binary, encoded.format).text);
+	}
+
+	@Test
+	public void testC_compression_disabled_by_default_threshold() {
+		String body = new String(new char[10000]).replace('\0', 'a');
+		ClusterTaskBodyCodec.EncodedBody encoded = ClusterTaskBodyCodec.encode(body, 0);
+		Assert.assertEquals(ClusterTaskBodyCodec.FORMAT_TEXT, encoded.format);
+		Assert.assertEquals(body, encoded.text);
+	}
+
+	@Test
+	public void testD_legacy_body_without_format_read_as_text() {
+		Assert.assertEquals("legacy body", ClusterTaskBodyCodec.decode("legacy body", null, null).text);
+	}
+
+	@Test
+	public void testE_binary_body_stored_as_is_and_restored() {
+		byte[] body = new byte[]{0, 1, 2, (byte) 0xFF, (byte) 0xFE};
+		ClusterTaskImpl task = new ClusterTaskImpl();
+		task.binaryBody = body;
+
+		ClusterTaskBodyCodec.EncodedBody encoded = ClusterTaskBodyCodec.encode(task, 1024);
+		Assert.assertEquals(ClusterTaskBodyCodec.FORMAT_BINARY, encoded.format);
+		Assert.assertNull(encoded.text);
+		Assert.assertSame(body, encoded.binary);
+
+		ClusterTaskBodyCodec.DecodedBody decoded = ClusterTaskBodyCodec.decode(encoded.text, encoded.binary, encoded.format);
+		Assert.assertNull(decoded.text);
+		Assert.assertArrayEquals(body, decoded.binary);
+	}
+
+	@Test
+	public void testF_binary_body_above_threshold_compressed_and_restored() {
+		byte[] body = new byte[10000];
+		for (int i = 0; i < body.length; i++) {
+			body[i] = (byte) (i % 7);
+		}
+
+		ClusterTaskBodyCodec.EncodedBody encoded = ClusterTaskBodyCodec.encode(body, 1024);
+		Assert.assertEquals(ClusterTaskBodyCodec.FORMAT_BINARY_GZIP, encoded.format);
+		Assert.assertTrue(encoded.binary.length < body.length);
+		Assert.assertArrayEquals(body, ClusterTaskBodyCodec.decode(encoded.text, encoded.binary, encoded.format).binary);
+	}
+
+	@Test
+	public void testG_compressed_text_body_streamed() throws Exception {
+		String body = new String(new char[5000]).replace('\0', 'b');
+		ClusterTaskBodyCodec.EncodedBody encoded = ClusterTaskBodyCodec.encode(body, 1024);
+		Assert.assertEquals(ClusterTaskBodyCodec.FORMAT_TEXT_GZIP, encoded.format);
+
+		String streamed = ClusterTaskBodyCodec.stream(
+				encoded.format,
+				() -> null,
+				() -> new ByteArrayInputStream(encoded.binary),
+				(text, binary) -> {
+					Assert.assertNull(binary);
+					StringBuilder result = new StringBuilder();
+					char[] buffer = new char[1024];
+					int read;
+					while ((read = text.read(buffer)) > 0) {
+						result.append(buffer, 0, read);
+					}
+					return result.toString();
+				});
+		Assert.assertEquals(body, streamed);
+	}
+}
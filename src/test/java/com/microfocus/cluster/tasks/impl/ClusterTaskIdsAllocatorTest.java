@@ -0,0 +1,61 @@
+package com.microfocus.cluster.tasks.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collection of unit tests for the hi-lo task IDs allocator
+ */
+
+public class ClusterTaskIdsAllocatorTest {
+
+	@Test
+	public void testA_ids_handed_out_of_reserved_blocks() {
+		AtomicLong sequence = new AtomicLong(1000);
+		AtomicInteger reservations = new AtomicInteger();
+		ClusterTaskIdsAllocator allocator = new ClusterTaskIdsAllocator(() -> {
+			reservations.incrementAndGet();
+			return new ClusterTaskIdsAllocator.IdsBlock(sequence.getAndAdd(10), 10);
+		});
+
+		for (long expected = 1000; expected < 1025; expected++) {
+			Assert.assertEquals(expected, allocator.nextId());
+		}
+		Assert.assertEquals(3, reservations.get());
+	}
+
+	@Test
+	public void testB_concurrent_allocation_unique() throws InterruptedException {
+		AtomicLong sequence = new AtomicLong(1);
+		ClusterTaskIdsAllocator allocator = new ClusterTaskIdsAllocator(() -> new ClusterTaskIdsAllocator.IdsBlock(sequence.getAndAdd(7), 7));
+
+		int threads = 8;
+		int idsPerThread = 1000;
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			executor.execute(() -> {
+				for (int i = 0; i < idsPerThread; i++) {
+					ids.add(allocator.nextId());
+				}
+			});
+		}
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		Assert.assertEquals(threads * idsPerThread, ids.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testC_invalid_block_rejected() {
+		ClusterTaskIdsAllocator allocator = new ClusterTaskIdsAllocator(() -> new ClusterTaskIdsAllocator.IdsBlock(1, 0));
+		allocator.nextId();
+	}
+}
@@ -4,6 +4,8 @@ import com.microfocus.cluster.tasks.api.enums.ClusterTaskType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -71,4 +73,55 @@ public class ClusterTaskImplTest {
 
 		Assert.assertEquals(stringifyTask, stringifyNext);
 	}
+
+	@Test
+	public void testD() throws IOException {
+		ClusterTaskImpl task = new ClusterTaskImpl();
+		task.body = "text body";
+		Assert.assertEquals("text body", task.readBody((text, binary) -> {
+			Assert.assertNull(binary);
+			return new BufferedReader(text).readLine();
+		}));
+
+		task.body = null;
+		task.binaryBody = new byte[]{1, 2, 3};
+		Assert.assertEquals(Integer.valueOf(3), task.readBody((text, binary) -> {
+			Assert.assertNull(text);
+			int length = 0;
+			while (binary.read() >= 0) {
+				length++;
+			}
+			return length;
+		}));
+
+		task.binaryBody = null;
+		Assert.assertTrue(task.readBody((text, binary) -> text == null && binary == null));
+	}
+
+	@Test
+	public void testE() {
+		ClusterTaskImpl task = new ClusterTaskImpl();
+		task.id = 10L;
+		task.body = "body";
+		Assert.assertTrue(task.hasOwnBody());
+		Assert.assertEquals(Long.valueOf(10L), task.resolveBodyId());
+
+		task.bodyId = 5L;
+		ClusterTaskImpl copy = new ClusterTaskImpl(task);
+		Assert.assertFalse(copy.hasOwnBody());
+		Assert.assertTrue(copy.hasBody());
+		Assert.assertEquals(Long.valueOf(5L), copy.resolveBodyId());
+	}
+
+	@Test
+	public void testF() {
+		ClusterTaskImpl task = new ClusterTaskImpl();
+		task.body = "body";
+		task.bodyInline = true;
+		Assert.assertTrue(task.hasBody());
+		Assert.assertFalse(task.hasOwnBody());
+
+		ClusterTaskImpl copy = new ClusterTaskImpl(task);
+		Assert.assertTrue(copy.bodyInline);
+	}
 }
@@ -0,0 +1,162 @@
+package com.microfocus.cluster.tasks.impl;
+
+import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
+import com.microfocus.cluster.tasks.api.enums.ClusterTaskInsertStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collection of unit tests for the asynchronous enqueue buffer
+ */
+
+public class ClusterTasksEnqueueBufferTest {
+
+	@Test
+	public void testA_concurrent_submissions_coalesced() throws Exception {
+		AtomicInteger storeCalls = new AtomicInteger();
+		ClusterTasksDataProvider dataProvider = dataProviderStub(tasks -> {
+			storeCalls.incrementAndGet();
+			ClusterTaskPersistenceResult[] result = new ClusterTaskPersistenceResult[tasks.length];
+			for (int i = 0; i < tasks.length; i++) {
+				result[i] = new ClusterTaskPersistenceResultImpl(tasks[i].uniquenessKey.startsWith("dup")
+						? ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE
+						: ClusterTaskInsertStatus.SUCCESS);
+			}
+			return result;
+		});
+		ClusterTasksEnqueueBuffer buffer = new ClusterTasksEnqueueBuffer(dataProvider, "test", 1000, 1000, 200);
+
+		int submitters = 20;
+		CountDownLatch startLatch = new CountDownLatch(1);
+		List<CompletableFuture<CompletableFuture<ClusterTaskPersistenceResult[]>>> submissions = new ArrayList<>();
+		for (int i = 0; i < submitters; i++) {
+			String uniquenessKey = (i % 2 == 0 ? "dup" : "task") + i;
+			submissions.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					startLatch.await();
+				} catch (InterruptedException ie) {
+					throw new IllegalStateException(ie);
+				}
+				return buffer.submit(new ClusterTaskImpl[]{task(uniquenessKey), task(uniquenessKey)});
+			}));
+		}
+		startLatch.countDown();
+
+		for (int i = 0; i < submitters; i++) {
+			ClusterTaskPersistenceResult[] results = submissions.get(i).get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+			Assert.assertEquals(2, results.length);
+			ClusterTaskInsertStatus expected = i % 2 == 0 ? ClusterTaskInsertStatus.UNIQUE_CONSTRAINT_FAILURE : ClusterTaskInsertStatus.SUCCESS;
+			Assert.assertEquals(expected, results[0].getStatus());
+			Assert.assertEquals(expected, results[1].getStatus());
+		}
+		Assert.assertTrue("expected submissions to be coalesced, yet got " + storeCalls.get() + " store calls", storeCalls.get() < submitters);
+
+		buffer.halt().get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testB_flush_threshold_respected() throws Exception {
+		List<Integer> flushSizes = new ArrayList<>();
+		ClusterTasksDataProvider dataProvider = dataProviderStub(tasks -> {
+			flushSizes.add(tasks.length);
+			return successes(tasks.length);
+		});
+		ClusterTasksEnqueueBuffer buffer = new ClusterTasksEnqueueBuffer(dataProvider, "test", 1000, 3, 5000);
+
+		long started = System.currentTimeMillis();
+		CompletableFuture<ClusterTaskPersistenceResult[]> promise = buffer.submit(new ClusterTaskImpl[]{task("a"), task("b"), task("c")});
+		Assert.assertEquals(3, promise.get(2, TimeUnit.SECONDS).length);
+		Assert.assertTrue("flush expected to happen before flush window is over", System.currentTimeMillis() - started < 5000);
+		Assert.assertEquals(1, flushSizes.size());
+
+		buffer.halt().get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testC_store_failure_propagated() throws Exception {
+		ClusterTasksDataProvider dataProvider = dataProviderStub(tasks -> {
+			throw new IllegalStateException("DB is down");
+		});
+		ClusterTasksEnqueueBuffer buffer = new ClusterTasksEnqueueBuffer(dataProvider, "test", 10, 10, 0);
+
+		CompletableFuture<ClusterTaskPersistenceResult[]> promise = buffer.submit(new ClusterTaskImpl[]{task("a")});
+		try {
+			promise.get(2, TimeUnit.SECONDS);
+			Assert.fail("expected to fail");
+		} catch (ExecutionException ee) {
+			Assert.assertTrue(ee.getCause() instanceof IllegalStateException);
+		}
+
+		buffer.halt().get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testD_backpressure_when_full() throws Exception {
+		CountDownLatch storeLatch = new CountDownLatch(1);
+		ClusterTasksDataProvider dataProvider = dataProviderStub(tasks -> {
+			try {
+				storeLatch.await();
+			} catch (InterruptedException ie) {
+				throw new IllegalStateException(ie);
+			}
+			return successes(tasks.length);
+		});
+		ClusterTasksEnqueueBuffer buffer = new ClusterTasksEnqueueBuffer(dataProvider, "test", 2, 10, 0);
+
+		CompletableFuture<ClusterTaskPersistenceResult[]> first = buffer.submit(new ClusterTaskImpl[]{task("a"), task("b")});
+		CompletableFuture<CompletableFuture<ClusterTaskPersistenceResult[]>> second = CompletableFuture.supplyAsync(() -> buffer.submit(new ClusterTaskImpl[]{task("c")}));
+
+		Thread.sleep(300);
+		Assert.assertFalse("second submission expected to be blocked while buffer is full", second.isDone());
+
+		storeLatch.countDown();
+		Assert.assertEquals(2, first.get(2, TimeUnit.SECONDS).length);
+		Assert.assertEquals(1, second.get(2, TimeUnit.SECONDS).get(2, TimeUnit.SECONDS).length);
+
+		buffer.halt().get(5, TimeUnit.SECONDS);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testE_submit_after_halt_rejected() throws Exception {
+		ClusterTasksEnqueueBuffer buffer = new ClusterTasksEnqueueBuffer(dataProviderStub(tasks -> successes(tasks.length)), "test");
+		buffer.halt().get(5, TimeUnit.SECONDS);
+		buffer.submit(new ClusterTaskImpl[]{task("a")});
+	}
+
+	private static ClusterTasksDataProvider dataProviderStub(Function<ClusterTaskImpl[], ClusterTaskPersistenceResult[]> storeTasks) {
+		return (ClusterTasksDataProvider) Proxy.newProxyInstance(
+				ClusterTasksDataProvider.class.getClassLoader(),
+				new Class[]{ClusterTasksDataProvider.class},
+				(proxy, method, args) -> {
+					if ("storeTasks".equals(method.getName())) {
+						return storeTasks.apply((ClusterTaskImpl[]) args[0]);
+					} else {
+						throw new UnsupportedOperationException(method.getName() + " is not supported by the stub");
+					}
+				});
+	}
+
+	private static ClusterTaskPersistenceResult[] successes(int number) {
+		ClusterTaskPersistenceResult[] result = new ClusterTaskPersistenceResult[number];
+		for (int i = 0; i < number; i++) {
+			result[i] = new ClusterTaskPersistenceResultImpl(ClusterTaskInsertStatus.SUCCESS);
+		}
+		return result;
+	}
+
+	private static ClusterTaskImpl task(String uniquenessKey) {
+		ClusterTaskImpl task = new ClusterTaskImpl();
+		task.uniquenessKey = uniquenessKey;
+		return task;
+	}
+}
@@ -0,0 +1,51 @@
+package com.microfocus.cluster.tasks.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Collection of unit tests for the concurrency keys fairness map
+ */
+
+public class ClusterTasksFairnessMapTest {
+
+	@Test
+	public void testA_touches_tracked() {
+		ClusterTasksFairnessMap fairnessMap = new ClusterTasksFairnessMap();
+		fairnessMap.touch("a", 100);
+		fairnessMap.touch("b", 200);
+		fairnessMap.touch("a", 300);
+
+		Assert.assertEquals(300, fairnessMap.getLastTouch("a"));
+		Assert.assertEquals(200, fairnessMap.getLastTouch("b"));
+		Assert.assertEquals(0, fairnessMap.getLastTouch("c"));
+		Assert.assertEquals(2, fairnessMap.size());
+	}
+
+	@Test
+	public void testB_least_recently_touched_evicted_over_max_size() {
+		ClusterTasksFairnessMap fairnessMap = new ClusterTasksFairnessMap(3, Long.MAX_VALUE);
+		fairnessMap.touch("a", 1);
+		fairnessMap.touch("b", 2);
+		fairnessMap.touch("c", 3);
+		fairnessMap.touch("a", 4);
+		fairnessMap.touch("d", 5);
+
+		Assert.assertEquals(3, fairnessMap.size());
+		Assert.assertEquals(0, fairnessMap.getLastTouch("b"));
+		Assert.assertEquals(4, fairnessMap.getLastTouch("a"));
+		Assert.assertEquals(5, fairnessMap.getLastTouch("d"));
+	}
+
+	@Test
+	public void testC_expired_evicted() {
+		ClusterTasksFairnessMap fairnessMap = new ClusterTasksFairnessMap(100, 1000);
+		fairnessMap.touch("a", 0);
+		fairnessMap.touch("b", 500);
+		fairnessMap.touch("c", 1200);
+
+		Assert.assertEquals(2, fairnessMap.size());
+		Assert.assertEquals(0, fairnessMap.getLastTouch("a"));
+		Assert.assertEquals(500, fairnessMap.getLastTouch("b"));
+	}
+}
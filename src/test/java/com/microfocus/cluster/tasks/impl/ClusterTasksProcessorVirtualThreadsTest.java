@@ -0,0 +1,130 @@
+package com.microfocus.cluster.tasks.impl;
+
+import com.microfocus.cluster.tasks.CTSTestsUtils;
+import com.microfocus.cluster.tasks.api.ClusterTasksServiceConfigurerSPI;
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
+import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collection of unit tests for the processor running its tasks on virtual threads
+ * - CTS is raised with configuration that never gets ready, so that no DB is involved, tasks are handed out to the processor directly, as the dispatcher does
+ */
+
+public class ClusterTasksProcessorVirtualThreadsTest {
+	private static final int numberOfWorkersPerNode = 3;
+
+	@Test
+	public void testA_in_flight_tasks_bounded_by_workers() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.register(ClusterTasksServiceSchemaManager.class, ClusterTasksServiceImpl.class, NeverReadyConfigurer.class, VirtualThreadsProcessor.class);
+		context.refresh();
+		try {
+			VirtualThreadsProcessor processor = context.getBean(VirtualThreadsProcessor.class);
+			ClusterTasksDataProvider dataProvider = (ClusterTasksDataProvider) Proxy.newProxyInstance(
+					ClusterTasksDataProvider.class.getClassLoader(),
+					new Class[]{ClusterTasksDataProvider.class},
+					(proxy, method, args) -> "removeTaskById".equals(method.getName()) ? true : null);
+
+			int tasksTotal = 20;
+			List<ClusterTaskImpl> pendingTasks = new ArrayList<>();
+			for (long i = 0; i < tasksTotal; i++) {
+				ClusterTaskImpl task = new ClusterTaskImpl();
+				task.id = i;
+				task.processorType = processor.getType();
+				pendingTasks.add(task);
+			}
+
+			//  dispatch rounds, each handing out all of the pending tasks as candidates
+			long timeout = System.currentTimeMillis() + 20000;
+			while (!pendingTasks.isEmpty() && System.currentTimeMillis() < timeout) {
+				if (processor.isReadyToHandleTaskInternal()) {
+					Collection<ClusterTaskImpl> tasksToRun = processor.selectTasksToRun(pendingTasks);
+					pendingTasks.removeAll(tasksToRun);
+					processor.handleTasks(tasksToRun, dataProvider);
+				}
+				CTSTestsUtils.waitSafely(10);
+			}
+			CTSTestsUtils.waitUntil(20000, () -> processor.tasksProcessed.get() >= tasksTotal && processor.getAvailableWorkers() == numberOfWorkersPerNode ? true : null);
+
+			Assert.assertEquals(tasksTotal, processor.tasksProcessed.get());
+			Assert.assertTrue("more than " + numberOfWorkersPerNode + " tasks were in flight at once: " + processor.maxInFlight.get(),
+					processor.maxInFlight.get() <= numberOfWorkersPerNode);
+			Assert.assertEquals(numberOfWorkersPerNode, processor.getAvailableWorkers());
+
+			//  JDKs having no virtual threads (the Java 8 baseline) fall back to the pool of platform threads
+			if (!isVirtualThreadsSupported()) {
+				Assert.assertFalse(processor.threadNames.isEmpty());
+				Assert.assertTrue(processor.threadNames.size() <= numberOfWorkersPerNode);
+				processor.threadNames.forEach(threadName -> Assert.assertTrue("unexpected worker thread " + threadName,
+						threadName.startsWith("CTP ") && threadName.contains(" on behalf of " + processor.getType() + "; TID: ")));
+			}
+		} finally {
+			context.close();
+		}
+	}
+
+	private static boolean isVirtualThreadsSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException nsme) {
+			return false;
+		}
+	}
+
+	private static final class NeverReadyConfigurer implements ClusterTasksServiceConfigurerSPI {
+
+		@Override
+		public CompletableFuture<Boolean> getConfigReadyLatch() {
+			return new CompletableFuture<>();
+		}
+
+		@Override
+		public DataSource getDataSource() {
+			return null;
+		}
+
+		@Override
+		public DBType getDbType() {
+			return null;
+		}
+	}
+
+	private static final class VirtualThreadsProcessor extends ClusterTasksProcessorBase {
+		private final AtomicInteger inFlight = new AtomicInteger(0);
+		private final AtomicInteger maxInFlight = new AtomicInteger(0);
+		private final AtomicInteger tasksProcessed = new AtomicInteger(0);
+		private final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+		private VirtualThreadsProcessor() {
+			super(ClusterTasksDataProviderType.DB, numberOfWorkersPerNode);
+		}
+
+		@Override
+		public void processTask(ClusterTask task) {
+			threadNames.add(Thread.currentThread().getName());
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			CTSTestsUtils.waitSafely(30);
+			inFlight.decrementAndGet();
+			tasksProcessed.incrementAndGet();
+		}
+
+		@Override
+		protected boolean isVirtualThreadsEnabled() {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.microfocus.cluster.tasks.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Collection of unit tests for the shared workers budget
+ */
+
+public class ClusterTasksWorkersBudgetTest {
+
+	@Test
+	public void testA_idle_capacity_flows_to_busy_processor() {
+		ClusterTasksWorkersBudget budget = new ClusterTasksWorkersBudget(10);
+		budget.register("a", 0, 8);
+		budget.register("b", 0, 8);
+
+		Assert.assertEquals(8, budget.getAvailable("a"));
+		for (int i = 0; i < 8; i++) {
+			budget.acquire("a");
+		}
+		Assert.assertEquals(0, budget.getAvailable("a"));
+		Assert.assertEquals(2, budget.getAvailable("b"));
+
+		budget.release("a");
+		Assert.assertEquals(1, budget.getAvailable("a"));
+		Assert.assertEquals(3, budget.getAvailable("b"));
+	}
+
+	@Test
+	public void testB_guaranteed_minimum_kept_for_others() {
+		ClusterTasksWorkersBudget budget = new ClusterTasksWorkersBudget(10);
+		budget.register("a", 0, 10);
+		budget.register("b", 3, 10);
+
+		Assert.assertEquals(7, budget.getAvailable("a"));
+		Assert.assertEquals(10, budget.getAvailable("b"));
+		for (int i = 0; i < 7; i++) {
+			budget.acquire("a");
+		}
+		Assert.assertEquals(0, budget.getAvailable("a"));
+		Assert.assertEquals(3, budget.getAvailable("b"));
+	}
+
+	@Test
+	public void testC_round_reservations_dropped_at_round_end() {
+		ClusterTasksWorkersBudget budget = new ClusterTasksWorkersBudget(5);
+		budget.register("a", 0, 5);
+		budget.register("b", 0, 5);
+
+		budget.reserve("a", 4);
+		Assert.assertEquals(1, budget.getAvailable("b"));
+
+		budget.acquire("a");
+		budget.acquire("a");
+		Assert.assertEquals(2, budget.getRunning("a"));
+		Assert.assertEquals(1, budget.getAvailable("b"));
+
+		budget.endRound();
+		Assert.assertEquals(3, budget.getAvailable("a"));
+		Assert.assertEquals(3, budget.getAvailable("b"));
+	}
+}
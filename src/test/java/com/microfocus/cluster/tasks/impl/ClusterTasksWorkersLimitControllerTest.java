@@ -0,0 +1,70 @@
+package com.microfocus.cluster.tasks.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Collection of unit tests for the workers limit controller
+ */
+
+public class ClusterTasksWorkersLimitControllerTest {
+	private static final long INTERVAL = ClusterTasksWorkersLimitController.EVALUATION_INTERVAL;
+
+	@Test
+	public void testA_limit_grows_with_backlog_up_to_maximum() {
+		ClusterTasksWorkersLimitController controller = new ClusterTasksWorkersLimitController(4, 1, 6, 0);
+		long now = 0;
+		for (int i = 0; i < 5; i++) {
+			controller.recordTaskDuration(0.1);
+			now += INTERVAL;
+			controller.evaluate(now, true, 1.0, 0.2);
+		}
+		Assert.assertEquals(6, controller.getLimit());
+	}
+
+	@Test
+	public void testB_limit_cut_on_duration_growth() {
+		ClusterTasksWorkersLimitController controller = new ClusterTasksWorkersLimitController(8, 1, 16, 0);
+		controller.recordTaskDuration(0.1);
+		Assert.assertEquals(8, controller.evaluate(INTERVAL, false, 1.0, 0.2));
+
+		controller.recordTaskDuration(0.5);
+		Assert.assertEquals(6, controller.evaluate(2 * INTERVAL, true, 1.0, 0.2));
+	}
+
+	@Test
+	public void testC_limit_held_when_not_judgeable() {
+		ClusterTasksWorkersLimitController controller = new ClusterTasksWorkersLimitController(4, 1, 8, 0);
+
+		//  interval not passed yet
+		controller.recordTaskDuration(0.1);
+		Assert.assertEquals(4, controller.evaluate(INTERVAL - 1, true, 1.0, 0.2));
+
+		//  host overloaded
+		Assert.assertEquals(4, controller.evaluate(INTERVAL, true, 1.0, 1.5));
+
+		//  no tasks finished within the interval
+		Assert.assertEquals(4, controller.evaluate(2 * INTERVAL, true, 1.0, 0.2));
+
+		//  workers not fully utilized
+		controller.recordTaskDuration(0.1);
+		Assert.assertEquals(4, controller.evaluate(3 * INTERVAL, true, 0.5, 0.2));
+	}
+
+	@Test
+	public void testD_limit_set_manually_survives_evaluation() {
+		ClusterTasksWorkersLimitController controller = new ClusterTasksWorkersLimitController(4, 1, 8, 0);
+		Assert.assertEquals(6, controller.setLimit(6));
+
+		//  interval not passed yet
+		Assert.assertEquals(6, controller.evaluate(INTERVAL - 1, false, 1.0, 0.2));
+
+		//  interval passed, no change due
+		controller.recordTaskDuration(0.1);
+		Assert.assertEquals(6, controller.evaluate(INTERVAL, false, 0.5, 0.2));
+
+		//  limits clamped
+		Assert.assertEquals(8, controller.setLimit(20));
+		Assert.assertEquals(1, controller.setLimit(0));
+	}
+}
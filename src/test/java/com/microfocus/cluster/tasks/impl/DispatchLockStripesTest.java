@@ -0,0 +1,26 @@
+package com.microfocus.cluster.tasks.impl;
+
+import com.microfocus.cluster.tasks.CTSConfigurerForTestsSPI;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * Runs the dispatch modes integration tests on nodes having the dispatch lock split into stripes
+ * - the processors of the tests fall into different stripes, so that the locked rounds take more than one stripe each
+ */
+
+public class DispatchLockStripesTest extends DispatchModesTest {
+	private static final int dispatchLockStripes = 4;
+
+	@BeforeClass
+	public static void raiseNodes() throws InterruptedException {
+		CTSConfigurerForTestsSPI.setDispatchLockStripes(dispatchLockStripes);
+		DispatchModesTest.raiseNodes();
+	}
+
+	@AfterClass
+	public static void stopNodes() {
+		DispatchModesTest.stopNodes();
+		CTSConfigurerForTestsSPI.setDispatchLockStripes(1);
+	}
+}
@@ -0,0 +1,239 @@
+package com.microfocus.cluster.tasks.impl;
+
+import com.microfocus.cluster.tasks.CTSConfigurerForTestsSPI;
+import com.microfocus.cluster.tasks.CTSConfigurerForTestsSPI.DispatchMode;
+import com.microfocus.cluster.tasks.CTSTestsUtils;
+import com.microfocus.cluster.tasks.api.ClusterTasksService;
+import com.microfocus.cluster.tasks.api.ClusterTasksServiceConfigurerSPI;
+import com.microfocus.cluster.tasks.api.builders.TaskBuilders;
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
+import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
+import com.microfocus.cluster.tasks.api.enums.ClusterTaskInsertStatus;
+import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
+import com.microfocus.cluster.tasks.processors.ClusterTasksProcessorDispatchModesBacklog_test;
+import com.microfocus.cluster.tasks.processors.ClusterTasksProcessorDispatchModes_test;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Collection of integration tests verifying the execution invariants under each of the dispatch modes, in a cluster of a few nodes
+ * - no more than one running task per concurrency key
+ * - tasks of a channel run in the order of their enqueue
+ * - non-channeled tasks run once and only once
+ */
+
+@RunWith(Parameterized.class)
+public class DispatchModesTest {
+	private static final Logger logger = LoggerFactory.getLogger(DispatchModesTest.class);
+	private static final int numberOfNodes = 3;
+	private static final List<ClassPathXmlApplicationContext> contexts = new LinkedList<>();
+
+	@Parameterized.Parameters(name = "{0}")
+	public static Collection<Object[]> dispatchModes() {
+		return Arrays.asList(new Object[][]{
+				{DispatchMode.LOCKED},
+				{DispatchMode.CONCURRENT},
+				{DispatchMode.SINGLE_STATEMENT},
+				{DispatchMode.OPTIMISTIC}
+		});
+	}
+
+	@Parameterized.Parameter
+	public DispatchMode dispatchMode;
+
+	@BeforeClass
+	public static void raiseNodes() throws InterruptedException {
+		//  load contexts to simulate cluster of a multiple nodes
+		CountDownLatch waitForAllInit = new CountDownLatch(numberOfNodes);
+		for (int i = 0; i < numberOfNodes; i++) {
+			ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("/cluster-tasks-dispatch-modes-context-test.xml");
+			contexts.add(context);
+			context.getBean(ClusterTasksService.class)
+					.getReadyPromise()
+					.handleAsync((r, e) -> {
+						if (r != null && r) {
+							waitForAllInit.countDown();
+						} else {
+							throw new IllegalStateException("some of the contexts failed to get initialized", e);
+						}
+						return null;
+					});
+		}
+		waitForAllInit.await();
+		logger.info(numberOfNodes + " nodes initialized successfully");
+	}
+
+	@AfterClass
+	public static void stopNodes() {
+		contexts.forEach(c -> {
+			try {
+				c.getBean(ClusterTasksService.class).stop()
+						.get();
+			} catch (Exception e) {
+				logger.warn("interrupted while stopping CTS");
+			}
+			c.close();
+		});
+		contexts.clear();
+		CTSConfigurerForTestsSPI.setDispatchMode(DispatchMode.LOCKED);
+	}
+
+	@Before
+	public void switchDispatchMode() {
+		Assume.assumeTrue("single statement claim is supported by PostgreSQL only",
+				dispatchMode != DispatchMode.SINGLE_STATEMENT || contexts.get(0).getBean(CTSConfigurerForTestsSPI.class).getDbType() == ClusterTasksServiceConfigurerSPI.DBType.POSTGRESQL);
+		CTSConfigurerForTestsSPI.setDispatchMode(dispatchMode);
+	}
+
+	@Test
+	public void testA_channeled_and_non_channeled_tasks() {
+		String runId = UUID.randomUUID().toString();
+		ClusterTasksProcessorDispatchModes_test.startRun(runId);
+		List<String> channels = enqueueTasks(runId, 6, 8, 40);
+
+		verifyRun(channels, 8, 40);
+	}
+
+	//  channels deleted behind the back of CTS (as if the tasks were enqueued by a former version) are expected to be restored by the staled tasks GC
+	@Test
+	public void testB_missing_channels_restored() {
+		String runId = UUID.randomUUID().toString();
+		ClusterTasksProcessorDispatchModes_test.startRun(runId);
+		ClusterTasksProcessorDispatchModes_test.suspended = true;
+		try {
+			List<String> channels = enqueueTasks(runId, 3, 5, 0);
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(contexts.get(0).getBean(CTSConfigurerForTestsSPI.class).getDataSource());
+			for (String channel : channels) {
+				assertEquals(1, jdbcTemplate.update("DELETE FROM " + ClusterTasksDbDataProvider.CHANNEL_TABLE_NAME +
+						" WHERE " + ClusterTasksDbDataProvider.CHANNEL_KEY + " = ?", channel));
+			}
+
+			contexts.forEach(c -> c.getBean(ClusterTasksServiceImpl.class).getMaintainer().setMaintenanceInterval(2000));
+			ClusterTasksProcessorDispatchModes_test.suspended = false;
+
+			verifyRun(channels, 5, 0);
+		} finally {
+			ClusterTasksProcessorDispatchModes_test.suspended = false;
+			contexts.forEach(c -> c.getBean(ClusterTasksServiceImpl.class).getMaintainer().setMaintenanceInterval(0));
+		}
+	}
+
+	//  follow-up tasks claimed by the workers under the channel leases are expected to keep all of the invariants of the dispatched ones
+	@Test
+	public void testC_channel_leases() {
+		String runId = UUID.randomUUID().toString();
+		ClusterTasksProcessorDispatchModes_test.startRun(runId);
+		ClusterTasksProcessorDispatchModes_test.channelLeaseLength = 2;
+		try {
+			List<String> channels = enqueueTasks(runId, 6, 8, 20);
+
+			verifyRun(channels, 8, 20);
+		} finally {
+			ClusterTasksProcessorDispatchModes_test.channelLeaseLength = 0;
+		}
+	}
+
+	//  older backlog of a processor short of workers is expected not to hold back the tasks of a processor having free workers
+	@Test
+	public void testD_uneven_backlog_does_not_starve_other_processors() {
+		String runId = UUID.randomUUID().toString();
+		ClusterTasksProcessorDispatchModes_test.startRun(runId);
+		ClusterTasksProcessorDispatchModesBacklog_test.startRun(runId);
+		int backlogTasks = 60;
+		for (int i = 0; i < backlogTasks; i++) {
+			ClusterTask task = TaskBuilders.simpleTask()
+					.setBody(ClusterTasksProcessorDispatchModes_test.buildBody(runId, i))
+					.build();
+			ClusterTaskPersistenceResult[] enqueueResults = contexts.get(i % numberOfNodes).getBean(ClusterTasksService.class).enqueueTasks(
+					ClusterTasksDataProviderType.DB,
+					ClusterTasksProcessorDispatchModesBacklog_test.class.getSimpleName(),
+					task);
+			assertEquals(ClusterTaskInsertStatus.SUCCESS, enqueueResults[0].getStatus());
+		}
+		List<String> channels = enqueueTasks(runId, 0, 0, 12);
+
+		verifyRun(channels, 0, 12);
+		assertTrue("tasks of the processor having free workers waited for the backlog of the other one to drain",
+				ClusterTasksProcessorDispatchModesBacklog_test.tasksProcessed.get() < backlogTasks);
+
+		//  let the backlog drain, so that it won't interfere with the following tests
+		CTSTestsUtils.waitUntil(60000, () -> ClusterTasksProcessorDispatchModesBacklog_test.tasksProcessed.get() >= backlogTasks ? true : null);
+	}
+
+	/**
+	 * enqueues channeled tasks, all of each channel by a single node in a single batch (so that their IDs follow the enqueue order),
+	 * and non-channeled tasks, spread over all of the nodes
+	 */
+	private List<String> enqueueTasks(String runId, int numberOfChannels, int tasksPerChannel, int nonChanneledTasks) {
+		List<String> channels = new ArrayList<>();
+		for (int c = 0; c < numberOfChannels; c++) {
+			String concurrencyKey = UUID.randomUUID().toString().replaceAll("-", "");
+			channels.add(concurrencyKey);
+			ClusterTask[] tasks = new ClusterTask[tasksPerChannel];
+			for (int i = 0; i < tasksPerChannel; i++) {
+				tasks[i] = TaskBuilders.channeledTask()
+						.setConcurrencyKey(concurrencyKey)
+						.setBody(ClusterTasksProcessorDispatchModes_test.buildBody(runId, i))
+						.build();
+			}
+			enqueueTasks(contexts.get(c % numberOfNodes), tasks);
+		}
+		for (int i = 0; i < nonChanneledTasks; i++) {
+			ClusterTask task = TaskBuilders.simpleTask()
+					.setBody(ClusterTasksProcessorDispatchModes_test.buildBody(runId, i))
+					.build();
+			enqueueTasks(contexts.get(i % numberOfNodes), task);
+		}
+		return channels;
+	}
+
+	private void enqueueTasks(ClassPathXmlApplicationContext context, ClusterTask... tasks) {
+		ClusterTaskPersistenceResult[] enqueueResults = context.getBean(ClusterTasksService.class).enqueueTasks(
+				ClusterTasksDataProviderType.DB,
+				ClusterTasksProcessorDispatchModes_test.class.getSimpleName(),
+				tasks);
+		for (ClusterTaskPersistenceResult result : enqueueResults) {
+			assertEquals(ClusterTaskInsertStatus.SUCCESS, result.getStatus());
+		}
+	}
+
+	private void verifyRun(List<String> channels, int tasksPerChannel, int nonChanneledTasks) {
+		int tasksTotal = channels.size() * tasksPerChannel + nonChanneledTasks;
+		CTSTestsUtils.waitUntil(60000, () -> ClusterTasksProcessorDispatchModes_test.tasksProcessed.get() >= tasksTotal ? true : null);
+		CTSTestsUtils.waitSafely(2000);   //  verify no more interactions
+
+		assertEquals("tasks of the same concurrency key ran concurrently", 0, ClusterTasksProcessorDispatchModes_test.keyConcurrencyViolations.get());
+		assertEquals(tasksTotal, ClusterTasksProcessorDispatchModes_test.tasksProcessed.get());
+		assertEquals(tasksTotal, ClusterTasksProcessorDispatchModes_test.runsPerTask.size());
+		ClusterTasksProcessorDispatchModes_test.runsPerTask.forEach((taskId, runs) ->
+				assertEquals("task " + taskId + " ran more than once", 1, runs.get()));
+
+		List<Integer> expectedOrder = new ArrayList<>();
+		for (int i = 0; i < tasksPerChannel; i++) {
+			expectedOrder.add(i);
+		}
+		for (String channel : channels) {
+			assertEquals("tasks of channel " + channel + " ran out of order", expectedOrder, ClusterTasksProcessorDispatchModes_test.channelsExecutionOrder.get(channel));
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.microfocus.cluster.tasks.impl;
+
+import com.microfocus.cluster.tasks.CTSConfigurerForTestsSPI;
+import com.microfocus.cluster.tasks.CTSTestsUtils;
+import com.microfocus.cluster.tasks.api.ClusterTasksService;
+import com.microfocus.cluster.tasks.api.builders.TaskBuilders;
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
+import com.microfocus.cluster.tasks.api.dto.ClusterTaskPersistenceResult;
+import com.microfocus.cluster.tasks.api.enums.ClusterTaskInsertStatus;
+import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
+import com.microfocus.cluster.tasks.processors.ClusterTasksSharedBodyTest_A;
+import com.microfocus.cluster.tasks.processors.ClusterTasksSharedBodyTest_B;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Test/s to verify that the body shared by the tasks of a fan-out enqueue is read by all of them and outlives all but the last one of them
+ */
+
+public class SharedBodyTest {
+	private static final Logger logger = LoggerFactory.getLogger(SharedBodyTest.class);
+	private static final int numberOfBodyPartitions = 4;
+
+	@Test
+	public void TestA_shared_body_collected_after_last_task() {
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("/shared-body-tasks-context-test.xml");
+		ClusterTasksService clusterTasksService = context.getBean(ClusterTasksService.class);
+		clusterTasksService.getReadyPromise().join();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(CTSConfigurerForTestsSPI.class).getDataSource());
+		context.getBean(ClusterTasksServiceImpl.class).getMaintainer().setMaintenanceInterval(2000);
+
+		try {
+			//  [YG] TODO: do better drain out
+			//  let's drain out any old tasks if present
+			CTSTestsUtils.waitSafely(2000);
+			ClusterTasksSharedBodyTest_A.bodiesByTaskId.clear();
+			ClusterTasksSharedBodyTest_B.bodiesByTaskId.clear();
+			ClusterTasksSharedBodyTest_B.holdTasks = true;
+
+			//  fan out a single body to 2 processors
+			String body = "shared body " + UUID.randomUUID().toString();
+			Map<String, ClusterTask[]> tasksByProcessorType = new HashMap<>();
+			tasksByProcessorType.put(ClusterTasksSharedBodyTest_A.class.getSimpleName(), new ClusterTask[]{TaskBuilders.simpleTask().setBody(body).build()});
+			tasksByProcessorType.put(ClusterTasksSharedBodyTest_B.class.getSimpleName(), new ClusterTask[]{TaskBuilders.simpleTask().setBody(body).build()});
+			Map<String, ClusterTaskPersistenceResult[]> enqueueResults = clusterTasksService.enqueueTasksWithSharedBody(ClusterTasksDataProviderType.DB, tasksByProcessorType);
+			enqueueResults.values().forEach(results -> assertEquals(ClusterTaskInsertStatus.SUCCESS, results[0].getStatus()));
+
+			//  both tasks read the body (via the shared body ID), B holds its task
+			CTSTestsUtils.waitUntil(10000, () -> ClusterTasksSharedBodyTest_A.bodiesByTaskId.size() == 1 && ClusterTasksSharedBodyTest_B.bodiesByTaskId.size() == 1 ? true : null);
+			Long taskIdA = ClusterTasksSharedBodyTest_A.bodiesByTaskId.keySet().iterator().next();
+			Long taskIdB = ClusterTasksSharedBodyTest_B.bodiesByTaskId.keySet().iterator().next();
+			assertEquals(body, ClusterTasksSharedBodyTest_A.bodiesByTaskId.get(taskIdA));
+			assertEquals(body, ClusterTasksSharedBodyTest_B.bodiesByTaskId.get(taskIdB));
+			Long sharedBodyId = jdbcTemplate.queryForObject("SELECT " + ClusterTasksDbDataProvider.META_BODY_ID + " FROM " + ClusterTasksDbDataProvider.META_TABLE_NAME +
+					" WHERE " + ClusterTasksDbDataProvider.META_ID + " = ?", Long.class, taskIdB);
+			assertNotNull(sharedBodyId);
+
+			//  first task done and removed, body survives the maintenance rounds while referenced by the second one
+			CTSTestsUtils.waitUntil(10000, () -> countTasks(jdbcTemplate, taskIdA) == 0 ? true : null);
+			CTSTestsUtils.waitSafely(5000);
+			assertEquals(1, countBodies(jdbcTemplate, sharedBodyId));
+
+			//  last task done, body collected
+			ClusterTasksSharedBodyTest_B.holdTasks = false;
+			CTSTestsUtils.waitUntil(20000, () -> countTasks(jdbcTemplate, taskIdB) == 0 && countBodies(jdbcTemplate, sharedBodyId) == 0 ? true : null);
+		} finally {
+			ClusterTasksSharedBodyTest_B.holdTasks = false;
+			try {
+				clusterTasksService.stop()
+						.get();
+			} catch (Exception e) {
+				logger.warn("interrupted while stopping CTS");
+			}
+			context.close();
+		}
+	}
+
+	private int countTasks(JdbcTemplate jdbcTemplate, Long taskId) {
+		Integer result = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + ClusterTasksDbDataProvider.META_TABLE_NAME +
+				" WHERE " + ClusterTasksDbDataProvider.META_ID + " = ?", Integer.class, taskId);
+		return result == null ? 0 : result;
+	}
+
+	private int countBodies(JdbcTemplate jdbcTemplate, Long bodyId) {
+		int result = 0;
+		for (int partition = 0; partition < numberOfBodyPartitions; partition++) {
+			Integer partitionResult = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + ClusterTasksDbDataProvider.BODY_TABLE_NAME + partition +
+					" WHERE " + ClusterTasksDbDataProvider.BODY_ID + " = ?", Integer.class, bodyId);
+			result += partitionResult == null ? 0 : partitionResult;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,36 @@
+package com.microfocus.cluster.tasks.processors;
+
+import com.microfocus.cluster.tasks.CTSTestsUtils;
+import com.microfocus.cluster.tasks.api.ClusterTasksProcessorSimple;
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
+import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Slow single worker processor, used to build up a backlog competing with the other processors upon dispatch
+ * - task body is '{run ID}|{index}', tasks of the other runs (leftovers of the former tests) are ignored
+ */
+
+public class ClusterTasksProcessorDispatchModesBacklog_test extends ClusterTasksProcessorSimple {
+	public static final AtomicInteger tasksProcessed = new AtomicInteger(0);
+	private static volatile String runId = "";
+
+	protected ClusterTasksProcessorDispatchModesBacklog_test() {
+		super(ClusterTasksDataProviderType.DB, 1);
+	}
+
+	public static void startRun(String runId) {
+		tasksProcessed.set(0);
+		ClusterTasksProcessorDispatchModesBacklog_test.runId = runId;
+	}
+
+	@Override
+	public void processTask(ClusterTask task) {
+		if (task.getBody() == null || !task.getBody().startsWith(runId + "|")) {
+			return;
+		}
+		CTSTestsUtils.waitSafely(500);
+		tasksProcessed.incrementAndGet();
+	}
+}
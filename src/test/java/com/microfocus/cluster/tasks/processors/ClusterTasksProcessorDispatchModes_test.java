@@ -0,0 +1,84 @@
+package com.microfocus.cluster.tasks.processors;
+
+import com.microfocus.cluster.tasks.CTSTestsUtils;
+import com.microfocus.cluster.tasks.api.ClusterTasksProcessorSimple;
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
+import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processor tracking the execution invariants of the dispatch modes
+ * - state is static, so that the runs of all of the nodes raised within the tests' JVM are tracked together
+ * - task body is '{run ID}|{index}', tasks of the other runs (leftovers of the former tests) are ignored
+ */
+
+public class ClusterTasksProcessorDispatchModes_test extends ClusterTasksProcessorSimple {
+	private static final Map<String, AtomicInteger> runningPerKey = new ConcurrentHashMap<>();
+	public static final Map<String, List<Integer>> channelsExecutionOrder = new ConcurrentHashMap<>();
+	public static final Map<Long, AtomicInteger> runsPerTask = new ConcurrentHashMap<>();
+	public static final AtomicInteger tasksProcessed = new AtomicInteger(0);
+	public static final AtomicInteger keyConcurrencyViolations = new AtomicInteger(0);
+	private static volatile String runId = "";
+	public static volatile boolean suspended = false;
+	public static volatile int channelLeaseLength = 0;
+
+	protected ClusterTasksProcessorDispatchModes_test() {
+		super(ClusterTasksDataProviderType.DB, 4);
+	}
+
+	public static void startRun(String runId) {
+		runningPerKey.clear();
+		channelsExecutionOrder.clear();
+		runsPerTask.clear();
+		tasksProcessed.set(0);
+		keyConcurrencyViolations.set(0);
+		ClusterTasksProcessorDispatchModes_test.runId = runId;
+	}
+
+	public static String buildBody(String runId, int index) {
+		return runId + "|" + index;
+	}
+
+	@Override
+	public void processTask(ClusterTask task) {
+		String runPrefix = runId + "|";
+		if (task.getBody() == null || !task.getBody().startsWith(runPrefix)) {
+			return;
+		}
+		int index = Integer.parseInt(task.getBody().substring(runPrefix.length()));
+		runsPerTask.computeIfAbsent(task.getId(), id -> new AtomicInteger(0)).incrementAndGet();
+
+		String concurrencyKey = task.getConcurrencyKey();
+		if (concurrencyKey != null) {
+			AtomicInteger running = runningPerKey.computeIfAbsent(concurrencyKey, key -> new AtomicInteger(0));
+			if (running.incrementAndGet() > 1) {
+				keyConcurrencyViolations.incrementAndGet();
+			}
+			try {
+				channelsExecutionOrder.computeIfAbsent(concurrencyKey, key -> Collections.synchronizedList(new LinkedList<>())).add(index);
+				CTSTestsUtils.waitSafely(20);
+			} finally {
+				running.decrementAndGet();
+			}
+		} else {
+			CTSTestsUtils.waitSafely(20);
+		}
+		tasksProcessed.incrementAndGet();
+	}
+
+	@Override
+	protected boolean isReadyToHandleTasks() {
+		return !suspended;
+	}
+
+	@Override
+	protected int getChannelLeaseLength() {
+		return channelLeaseLength;
+	}
+}
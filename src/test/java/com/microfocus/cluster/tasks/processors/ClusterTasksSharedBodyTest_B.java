@@ -0,0 +1,26 @@
+package com.microfocus.cluster.tasks.processors;
+
+import com.microfocus.cluster.tasks.CTSTestsUtils;
+import com.microfocus.cluster.tasks.api.ClusterTasksProcessorSimple;
+import com.microfocus.cluster.tasks.api.dto.ClusterTask;
+import com.microfocus.cluster.tasks.api.enums.ClusterTasksDataProviderType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClusterTasksSharedBodyTest_B extends ClusterTasksProcessorSimple {
+	public static final Map<Long, String> bodiesByTaskId = new ConcurrentHashMap<>();
+	public static volatile boolean holdTasks = false;
+
+	protected ClusterTasksSharedBodyTest_B() {
+		super(ClusterTasksDataProviderType.DB, 1);
+	}
+
+	@Override
+	public void processTask(ClusterTask task) {
+		bodiesByTaskId.put(task.getId(), String.valueOf(task.getBody()));
+		while (holdTasks) {
+			CTSTestsUtils.waitSafely(100);
+		}
+	}
+}